@@ -1,4 +1,10 @@
 -- From 0-TableCreations.sql
+DROP TABLE IF EXISTS PurgeJob;
+DROP TABLE IF EXISTS PlayEvent;
+DROP TABLE IF EXISTS PlayHourly;
+DROP TABLE IF EXISTS PlayDaily;
+DROP TABLE IF EXISTS PlayRollupWatermark;
+DROP TABLE IF EXISTS ArtistSongStats;
 DROP TABLE IF EXISTS PlaylistSong;
 DROP TABLE IF EXISTS Playlist;
 DROP TABLE IF EXISTS Song;
@@ -9,7 +15,11 @@ DROP TABLE IF EXISTS `User`;
 CREATE TABLE IF NOT EXISTS `User` (
   UserID INT auto_increment PRIMARY KEY,
   Username VARCHAR(50) NOT NULL UNIQUE,
-  Password VARCHAR(255) NOT NULL
+  Password VARCHAR(255) NOT NULL,
+  -- Optimistic concurrency: every edit does Version = Version + 1 WHERE Version = <what it read>
+  Version INT NOT NULL DEFAULT 0,
+  -- Soft delete: set when the user is deleted, the row itself goes once PurgeJob finishes
+  DeletedAt DATETIME NULL
 );
 
 CREATE TABLE IF NOT EXISTS Artist (
@@ -18,6 +28,8 @@ CREATE TABLE IF NOT EXISTS Artist (
   Genre VARCHAR(50),
   Country VARCHAR(50),
   UserID INT,
+  Version INT NOT NULL DEFAULT 0,
+  DeletedAt DATETIME NULL,
   CONSTRAINT fk_artist_user
     FOREIGN KEY (UserID) REFERENCES User(UserID)
     ON UPDATE CASCADE ON DELETE SET NULL
@@ -39,6 +51,8 @@ CREATE TABLE IF NOT EXISTS Song (
   Duration INT NOT NULL CHECK (Duration > 0),
   AlbumID INT NOT NULL,
   TimesPlayed INT NOT NULL default 0 CHECK (TimesPlayed >= 0),
+  -- Bumped by edits of Title/Duration/AlbumID, not by play counts
+  Version INT NOT NULL DEFAULT 0,
   CONSTRAINT fk_song_album
     FOREIGN KEY (AlbumID) REFERENCES Album(AlbumID)
     ON UPDATE CASCADE ON DELETE CASCADE
@@ -58,7 +72,11 @@ CREATE TABLE IF NOT EXISTS PlaylistSong (
   PlaylistID INT NOT NULL,
   SongID INT NOT NULL,
   AddedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  -- Playback order. Sparse (multiples of 2^20) so a move takes the midpoint
+  -- of its neighbours instead of renumbering the list. NOT NULL after backfill below.
+  Position BIGINT NULL,
   PRIMARY KEY (PlaylistID, SongID),
+  UNIQUE KEY uq_plsong_position (PlaylistID, Position),
   CONSTRAINT fk_plsong_playlist
     FOREIGN KEY (PlaylistID) REFERENCES Playlist(PlaylistID)
     ON UPDATE CASCADE ON DELETE CASCADE,
@@ -67,6 +85,21 @@ CREATE TABLE IF NOT EXISTS PlaylistSong (
     ON UPDATE CASCADE ON DELETE CASCADE
 );
 
+-- Background cascade for soft-deleted User/Artist rows. No FK to the
+-- root row: it is deleted as the job's last step.
+CREATE TABLE IF NOT EXISTS PurgeJob (
+  JobID INT auto_increment PRIMARY KEY,
+  RootTable VARCHAR(10) NOT NULL,            -- 'User' or 'Artist'
+  RootID INT NOT NULL,
+  Phase VARCHAR(30) NOT NULL DEFAULT 'queued',
+  RowsDeleted BIGINT NOT NULL DEFAULT 0,
+  Chunks INT NOT NULL DEFAULT 0,
+  CreatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  UpdatedAt TIMESTAMP NULL,
+  FinishedAt TIMESTAMP NULL,
+  KEY idx_purgejob_open (FinishedAt, JobID)
+);
+
 SHOW TABLES;
 
 -- From 1-PopulateDB.sql
@@ -312,10 +345,231 @@ INSERT INTO PlaylistSong (PlaylistID, SongID, AddedAt) VALUES
 (29, 58, NOW()), (29, 59, NOW()), (29, 60, NOW()),
 (30, 6, NOW()),  (30, 34, NOW()), (30, 44, NOW());
 
+-- Give the links above an initial playback order (AddedAt, then SongID), spaced 2^20 apart
+UPDATE PlaylistSong ps
+JOIN (
+  SELECT PlaylistID, SongID,
+         ROW_NUMBER() OVER (PARTITION BY PlaylistID ORDER BY AddedAt, SongID) AS rn
+  FROM PlaylistSong
+) r ON r.PlaylistID = ps.PlaylistID AND r.SongID = ps.SongID
+SET ps.Position = r.rn * 1048576;
+
+ALTER TABLE PlaylistSong MODIFY Position BIGINT NOT NULL;
+
 -- From 2-Indexes.sql
 CREATE INDEX idx_album_artist ON Album(ArtistID);
 CREATE INDEX idx_song_album ON Song(AlbumID);
 CREATE INDEX idx_playlist_user ON Playlist(UserID);
 CREATE INDEX idx_plsong_playlist ON PlaylistSong(PlaylistID);
 CREATE INDEX idx_plsong_song ON PlaylistSong(SongID);
+-- Natural-key lookups (name/title search); User.Username is already UNIQUE
+CREATE INDEX idx_artist_name ON Artist(Name);
+CREATE INDEX idx_song_title ON Song(Title);
+-- Most played first (Charts refills read the top N in index order)
+CREATE INDEX idx_song_plays ON Song(TimesPlayed DESC, SongID);
+
+-- =========================
+-- ARTIST STATS SUMMARY — materialized v_artist_song_stats
+-- One row per artist, kept up to date by the triggers below,
+-- so reads are a primary-key lookup instead of a 4-table GROUP BY.
+-- AvgDurationSeconds = ROUND(TotalDuration / SongCount) at read time.
+-- =========================
+CREATE TABLE IF NOT EXISTS ArtistSongStats (
+  ArtistID INT PRIMARY KEY,
+  SongCount INT NOT NULL DEFAULT 0,
+  TotalPlays BIGINT NOT NULL DEFAULT 0,
+  TotalDuration BIGINT NOT NULL DEFAULT 0,
+  KEY idx_stats_plays (TotalPlays DESC, ArtistID),
+  CONSTRAINT fk_stats_artist
+    FOREIGN KEY (ArtistID) REFERENCES Artist(ArtistID)
+    ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+-- Full rebuild (also used to seed the table after population)
+DROP PROCEDURE IF EXISTS RebuildArtistSongStats;
+DELIMITER //
+CREATE PROCEDURE RebuildArtistSongStats()
+BEGIN
+  DELETE FROM ArtistSongStats;
+  INSERT INTO ArtistSongStats (ArtistID, SongCount, TotalPlays, TotalDuration)
+  SELECT a.ArtistID, COUNT(s.SongID), COALESCE(SUM(s.TimesPlayed), 0), COALESCE(SUM(s.Duration), 0)
+  FROM Artist a
+  LEFT JOIN Album al ON al.ArtistID = a.ArtistID
+  LEFT JOIN Song  s  ON s.AlbumID   = al.AlbumID
+  GROUP BY a.ArtistID;
+END//
+DELIMITER ;
+
+CALL RebuildArtistSongStats();
+
+-- Incremental maintenance.
+-- Note: MySQL does not fire triggers for FK cascades, so Album deletes
+-- subtract their songs here, and Artist deletes cascade the stats row away.
+DELIMITER //
+CREATE TRIGGER trigger_stats_artist_insert
+AFTER INSERT ON Artist
+FOR EACH ROW
+BEGIN
+  -- @restoring: a snapshot restore loads ArtistSongStats itself
+  IF @restoring IS NULL THEN
+    INSERT INTO ArtistSongStats (ArtistID) VALUES (NEW.ArtistID);
+  END IF;
+END//
+
+CREATE TRIGGER trigger_stats_song_insert
+AFTER INSERT ON Song
+FOR EACH ROW
+BEGIN
+  IF @restoring IS NULL THEN
+    UPDATE ArtistSongStats
+    SET SongCount = SongCount + 1,
+        TotalPlays = TotalPlays + NEW.TimesPlayed,
+        TotalDuration = TotalDuration + NEW.Duration
+    WHERE ArtistID = (SELECT ArtistID FROM Album WHERE AlbumID = NEW.AlbumID);
+  END IF;
+END//
+
+CREATE TRIGGER trigger_stats_song_update
+AFTER UPDATE ON Song
+FOR EACH ROW
+BEGIN
+  IF NEW.AlbumID = OLD.AlbumID THEN
+    -- Hot path (play counts, edits): one delta on one row
+    UPDATE ArtistSongStats
+    SET TotalPlays = TotalPlays + (NEW.TimesPlayed - OLD.TimesPlayed),
+        TotalDuration = TotalDuration + (NEW.Duration - OLD.Duration)
+    WHERE ArtistID = (SELECT ArtistID FROM Album WHERE AlbumID = NEW.AlbumID);
+  ELSE
+    UPDATE ArtistSongStats
+    SET SongCount = SongCount - 1,
+        TotalPlays = TotalPlays - OLD.TimesPlayed,
+        TotalDuration = TotalDuration - OLD.Duration
+    WHERE ArtistID = (SELECT ArtistID FROM Album WHERE AlbumID = OLD.AlbumID);
+
+    UPDATE ArtistSongStats
+    SET SongCount = SongCount + 1,
+        TotalPlays = TotalPlays + NEW.TimesPlayed,
+        TotalDuration = TotalDuration + NEW.Duration
+    WHERE ArtistID = (SELECT ArtistID FROM Album WHERE AlbumID = NEW.AlbumID);
+  END IF;
+END//
+
+CREATE TRIGGER trigger_stats_song_delete
+AFTER DELETE ON Song
+FOR EACH ROW
+BEGIN
+  UPDATE ArtistSongStats
+  SET SongCount = SongCount - 1,
+      TotalPlays = TotalPlays - OLD.TimesPlayed,
+      TotalDuration = TotalDuration - OLD.Duration
+  WHERE ArtistID = (SELECT ArtistID FROM Album WHERE AlbumID = OLD.AlbumID);
+END//
+
+CREATE TRIGGER trigger_stats_album_delete
+BEFORE DELETE ON Album
+FOR EACH ROW
+BEGIN
+  -- Songs are about to be removed by ON DELETE CASCADE (which fires no Song triggers)
+  UPDATE ArtistSongStats st
+  JOIN (
+    SELECT COUNT(*) AS c, COALESCE(SUM(TimesPlayed), 0) AS p, COALESCE(SUM(Duration), 0) AS d
+    FROM Song
+    WHERE AlbumID = OLD.AlbumID
+  ) x
+  SET st.SongCount = st.SongCount - x.c,
+      st.TotalPlays = st.TotalPlays - x.p,
+      st.TotalDuration = st.TotalDuration - x.d
+  WHERE st.ArtistID = OLD.ArtistID;
+END//
+
+CREATE TRIGGER trigger_stats_album_update
+AFTER UPDATE ON Album
+FOR EACH ROW
+BEGIN
+  -- Album moved to another artist: move its songs' totals along with it
+  IF NEW.ArtistID <> OLD.ArtistID THEN
+    UPDATE ArtistSongStats st
+    JOIN (
+      SELECT COUNT(*) AS c, COALESCE(SUM(TimesPlayed), 0) AS p, COALESCE(SUM(Duration), 0) AS d
+      FROM Song
+      WHERE AlbumID = NEW.AlbumID
+    ) x
+    SET st.SongCount = st.SongCount + IF(st.ArtistID = NEW.ArtistID, x.c, -x.c),
+        st.TotalPlays = st.TotalPlays + IF(st.ArtistID = NEW.ArtistID, x.p, -x.p),
+        st.TotalDuration = st.TotalDuration + IF(st.ArtistID = NEW.ArtistID, x.d, -x.d)
+    WHERE st.ArtistID IN (OLD.ArtistID, NEW.ArtistID);
+  END IF;
+END//
+DELIMITER ;
+
+-- =========================
+-- PLAY HISTORY
+-- PlayEvent: raw plays written by the play-count flusher in the same
+-- transaction as Song.TimesPlayed, one row per (second, song, user).
+-- Partitioned by day so retention is DROP PARTITION, not DELETE; the app
+-- adds the day partitions ahead of time (pmax stays empty).
+-- Partitioned tables cannot have foreign keys, so SongID/UserID are
+-- unchecked here and the rollup skips events of deleted songs.
+-- =========================
+CREATE TABLE IF NOT EXISTS PlayEvent (
+  EventID BIGINT NOT NULL AUTO_INCREMENT,
+  PlayedAt DATETIME NOT NULL,
+  SongID INT NOT NULL,
+  UserID INT NULL,
+  Plays INT NOT NULL DEFAULT 1,
+  PRIMARY KEY (EventID, PlayedAt),
+  KEY idx_playevent_song (SongID, PlayedAt),
+  KEY idx_playevent_user (UserID, PlayedAt)
+)
+PARTITION BY RANGE (TO_DAYS(PlayedAt)) (
+  PARTITION p_start VALUES LESS THAN (TO_DAYS('2025-01-01')),
+  PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- Rollups of every event up to PlayRollupWatermark.LastEventID.
+-- PlayDaily.Day = '1000-01-01' holds plays counted before history began
+-- (seed data, imports), so per song:
+--   TimesPlayed = SUM(PlayDaily.Plays) + plays of events past the watermark
+CREATE TABLE IF NOT EXISTS PlayHourly (
+  HourStart DATETIME NOT NULL,
+  SongID INT NOT NULL,
+  Plays BIGINT NOT NULL,
+  PRIMARY KEY (HourStart, SongID),
+  KEY idx_playhourly_song (SongID, HourStart),
+  CONSTRAINT fk_playhourly_song
+    FOREIGN KEY (SongID) REFERENCES Song(SongID)
+    ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS PlayDaily (
+  Day DATE NOT NULL,
+  SongID INT NOT NULL,
+  Plays BIGINT NOT NULL,
+  PRIMARY KEY (Day, SongID),
+  KEY idx_playdaily_song (SongID, Day),
+  CONSTRAINT fk_playdaily_song
+    FOREIGN KEY (SongID) REFERENCES Song(SongID)
+    ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS PlayRollupWatermark (
+  ID TINYINT PRIMARY KEY,
+  LastEventID BIGINT NOT NULL
+);
+
+INSERT INTO PlayRollupWatermark (ID, LastEventID) VALUES (1, 0);
+
+INSERT INTO PlayDaily (Day, SongID, Plays)
+SELECT '1000-01-01', SongID, TimesPlayed FROM Song WHERE TimesPlayed > 0;
 
+DELIMITER //
+CREATE TRIGGER trigger_history_song_insert
+AFTER INSERT ON Song
+FOR EACH ROW
+BEGIN
+  -- Songs inserted with plays already counted (imports) start with a baseline
+  IF NEW.TimesPlayed > 0 AND @restoring IS NULL THEN
+    INSERT INTO PlayDaily (Day, SongID, Plays) VALUES ('1000-01-01', NEW.SongID, NEW.TimesPlayed);
+  END IF;
+END//
+DELIMITER ;
@@ -5,4 +5,7 @@ CREATE INDEX idx_song_album ON Song(AlbumID);
 CREATE INDEX idx_playlist_user ON Playlist(UserID);
 CREATE INDEX idx_plsong_playlist ON PlaylistSong(PlaylistID);
 CREATE INDEX idx_plsong_song ON PlaylistSong(SongID);
+-- Natural-key lookups (name/title search); User.Username is already UNIQUE
+CREATE INDEX idx_artist_name ON Artist(Name);
+CREATE INDEX idx_song_title ON Song(Title);
 
@@ -23,16 +23,24 @@ BEGIN
             SET MESSAGE_TEXT = 'Album does not exist.';
     END IF;
 
+    -- Album existence was checked above; idx_song_album covers this lookup
     SELECT SUM(s.Duration)
     INTO TotalDuration
     FROM Song s
-    JOIN Album a ON s.AlbumID = a.AlbumID
-    WHERE a.AlbumID = a_id;
+    WHERE s.AlbumID = a_id;
 
     RETURN TotalDuration;
 END$$
 
 DELIMITER ;
 
-SELECT *, AlbumDuration(Album.AlbumID) AS TotalDuration FROM Album
-ORDER BY Album.ReleaseDate;
\ No newline at end of file
+-- All albums: one grouped pass over Song instead of calling the function per row
+SELECT al.AlbumID, al.Title, al.ReleaseDate, al.ArtistID,
+       COUNT(s.SongID) AS SongCount,
+       COALESCE(SUM(s.Duration), 0) AS TotalDuration
+FROM Album al
+JOIN Artist a ON a.ArtistID = al.ArtistID
+LEFT JOIN Song s ON s.AlbumID = al.AlbumID
+WHERE a.DeletedAt IS NULL
+GROUP BY al.AlbumID
+ORDER BY al.ReleaseDate;
\ No newline at end of file
@@ -22,6 +22,7 @@ FROM `User` u
 JOIN Artist a       ON a.UserID = u.UserID       -- Only users who are artists
 LEFT JOIN Album al  ON al.ArtistID = a.ArtistID  -- Artists may have 0+ albums
 LEFT JOIN Song  s   ON s.AlbumID   = al.AlbumID  -- Albums may have 0+ songs
+WHERE u.DeletedAt IS NULL AND a.DeletedAt IS NULL -- Soft-deleted rows await purge
 GROUP BY
     u.UserID,
     u.Username,
@@ -54,6 +55,7 @@ FROM (
     JOIN Artist a      ON a.UserID   = u.UserID
     JOIN Album  al     ON al.ArtistID = a.ArtistID
     JOIN Song   s      ON s.AlbumID   = al.AlbumID
+    WHERE u.DeletedAt IS NULL AND a.DeletedAt IS NULL
 ) ranked
 WHERE rn = 1;
 
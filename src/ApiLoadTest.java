@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* ---------------------------------------------------
+   API LOAD TEST
+   N concurrent clients issue GETs against the running ApiServer for a
+   fixed time; every request's latency is kept, so requests/sec and the
+   percentiles are exact for the run.
+   --------------------------------------------------- */
+public class ApiLoadTest {
+
+    public record Result(long requests, long errors, double seconds, long[] sortedNanos) {
+        @Override
+        public String toString() {
+            return String.format("%d requests in %.1f s = %.0f req/s | errors=%d | p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                    requests, seconds, requests / seconds, errors,
+                    ApiServer.percentile(sortedNanos, 0.50), ApiServer.percentile(sortedNanos, 0.99),
+                    sortedNanos.length == 0 ? 0 : sortedNanos[sortedNanos.length - 1] / 1e6);
+        }
+    }
+
+    // A read mix over real IDs: single rows (cache), pages, a view, a report and a chart
+    public static List<String> readPaths(ConnectionPool pool) throws SQLException {
+        List<String> paths = new ArrayList<>();
+        for (int id : sampleIds(pool, "SELECT SongID FROM Song ORDER BY RAND() LIMIT 200")) paths.add("/songs/" + id);
+        for (int id : sampleIds(pool, "SELECT ArtistID FROM Artist WHERE DeletedAt IS NULL ORDER BY RAND() LIMIT 100")) paths.add("/artists/" + id);
+        for (int i = 0; i < 20; i++) {
+            paths.add("/songs?limit=50");
+            paths.add("/artists?limit=50");
+            paths.add("/users?limit=50");
+        }
+        for (int i = 0; i < 5; i++) {
+            paths.add("/views/artist-song-stats?limit=20");
+            paths.add("/reports/top-songs");
+            paths.add("/charts/songs?limit=10");
+        }
+        return paths;
+    }
+
+    private static List<Integer> sampleIds(ConnectionPool pool, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    public static Result run(String baseUrl, List<String> paths, int clients, int seconds) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService workers = VirtualThreads.newPerTaskExecutor("api-load", clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        long[] errors = new long[clients];
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            results.add(workers.submit(() -> {
+                long[] latencies = new long[1024];
+                int n = 0;
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + paths.get(rnd.nextInt(paths.size()))))
+                            .timeout(Duration.ofSeconds(10))
+                            .GET()
+                            .build();
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<Void> resp = http.send(req, HttpResponse.BodyHandlers.discarding());
+                        if (resp.statusCode() >= 400) errors[client]++;
+                    } catch (IOException e) {
+                        errors[client]++;
+                    }
+                    if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+                    latencies[n++] = System.nanoTime() - t0;
+                }
+                return Arrays.copyOf(latencies, n);
+            }));
+        }
+        workers.shutdown();
+
+        List<long[]> all = new ArrayList<>();
+        int total = 0;
+        for (Future<long[]> f : results) {
+            try {
+                long[] l = f.get();
+                all.add(l);
+                total += l.length;
+            } catch (java.util.concurrent.ExecutionException e) {
+                System.out.println("Load client failed: " + e.getCause());
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        long[] merged = new long[total];
+        int at = 0;
+        for (long[] l : all) {
+            System.arraycopy(l, 0, merged, at, l.length);
+            at += l.length;
+        }
+        Arrays.sort(merged);
+        return new Result(total, Arrays.stream(errors).sum(), secs, merged);
+    }
+}
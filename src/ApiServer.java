@@ -0,0 +1,871 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* ---------------------------------------------------
+   HTTP/JSON API (JDK built-in HttpServer)
+   The same User/Artist/Song CRUD, views, reports and AlbumDuration routine
+   as the menus, one request per (virtual) thread, each borrowing from the
+   shared ConnectionPool (lists, views and reports through the ReadRouter).
+   Lists are keyset pages (?after=ID&limit=N) and are written to the
+   socket row by row as they are read.
+   PUT with a "Version" only applies to that Version (409 otherwise);
+   without one, concurrent edits of other fields are merged.
+   Every request's latency is recorded per route for GET /metrics.
+   --------------------------------------------------- */
+public class ApiServer implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    // Error with an HTTP status; the message becomes {"error": ...}
+    private static final class ApiError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        ApiError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Latencies of the last SAMPLES requests of one route, for percentiles
+    private static final class RouteStats {
+        static final int SAMPLES = 8192;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLongArray recent = new AtomicLongArray(SAMPLES);
+
+        void record(long nanos, boolean error) {
+            long n = count.getAndIncrement();
+            recent.set((int) (n % SAMPLES), nanos);
+            totalNanos.addAndGet(nanos);
+            if (error) errors.incrementAndGet();
+        }
+
+        long[] sorted() {
+            int n = (int) Math.min(count.get(), SAMPLES);
+            long[] copy = new long[n];
+            for (int i = 0; i < n; i++) copy[i] = recent.get(i);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private final ConnectionSource reads; // lists, views, reports: may be a replica
+    private final ReportCache reportCache;
+    private final Catalog catalog;
+    private final Charts charts;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
+    private static final Set<String> KNOWN_ROUTES = knownRoutes();
+    private volatile long metricsSince = System.nanoTime();
+
+    public ApiServer(ConnectionSource reads, ReportCache reportCache, Catalog catalog, Charts charts,
+                     int port, int defaultPageSize, int maxPageSize, int platformThreads) throws IOException {
+        this.reads = reads;
+        this.reportCache = reportCache;
+        this.catalog = catalog;
+        this.charts = charts;
+        this.maxPageSize = Math.max(1, maxPageSize);
+        this.defaultPageSize = Math.max(1, Math.min(defaultPageSize, this.maxPageSize));
+
+        // Without TCP_NODELAY small responses wait on delayed ACKs (~40 ms each); read once, at first use
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = VirtualThreads.newPerTaskExecutor("api-request", platformThreads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /* ---------------------------------------------------
+       DISPATCH
+       --------------------------------------------------- */
+    private void handle(HttpExchange ex) {
+        long start = System.nanoTime();
+        String route = ex.getRequestMethod() + " ?";
+        int status = 500;
+
+        try {
+            // Read-your-writes across requests: the client sends back the X-Last-Write of its last write
+            ConnectionPool.lastWriteOnThisThread(lastWriteOf(ex));
+            String[] path = ex.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+            route = ex.getRequestMethod() + " " + routeName(path);
+            status = dispatch(ex, ex.getRequestMethod(), path, query(ex));
+        } catch (ApiError e) {
+            status = e.status;
+            sendError(ex, status, e.getMessage());
+        } catch (SQLTimeoutException e) {
+            status = 503; // pool exhausted or query timed out
+            sendError(ex, status, e.getMessage());
+        } catch (SQLIntegrityConstraintViolationException | Catalog.ConflictException e) {
+            status = 409;
+            sendError(ex, status, e.getMessage());
+        } catch (SQLException e) {
+            status = "45000".equals(e.getSQLState()) ? 400 : 500; // SIGNAL from a routine
+            sendError(ex, status, e.getMessage());
+        } catch (IOException e) {
+            status = 499; // client went away mid-response
+        } catch (RuntimeException e) {
+            sendError(ex, status, e.toString());
+        } finally {
+            ex.close();
+            // Anything else shares one entry per method, so random URLs cannot grow the map
+            if (!KNOWN_ROUTES.contains(route)) {
+                route = (METHODS.contains(ex.getRequestMethod()) ? ex.getRequestMethod() : "OTHER") + " <unknown>";
+            }
+            routes.computeIfAbsent(route, r -> new RouteStats()).record(System.nanoTime() - start, status >= 400);
+        }
+    }
+
+    // Every method + routeName that dispatch() serves
+    private static Set<String> knownRoutes() {
+        Set<String> known = new HashSet<>(List.of("GET /", "PATCH /songs", "GET /views/artist-song-stats",
+                "GET /views/artist-top-song", "GET /albums/{id}/duration", "GET /reports", "GET /charts/songs",
+                "GET /charts/artists", "GET /metrics"));
+        for (String resource : List.of("/users", "/artists", "/songs")) {
+            known.add("GET " + resource);
+            known.add("POST " + resource);
+            for (String method : List.of("GET", "PUT", "DELETE")) known.add(method + " " + resource + "/{id}");
+        }
+        for (Reports.Report r : Reports.dashboard()) known.add("GET /reports/" + r.name);
+        return known;
+    }
+
+    // "/songs/42" -> "/songs/{id}", so metrics group by endpoint, not by ID
+    private static String routeName(String[] path) {
+        StringBuilder sb = new StringBuilder();
+        for (String p : path) sb.append('/').append(p.matches("\\d+") ? "{id}" : p);
+        return sb.length() == 0 ? "/" : sb.toString();
+    }
+
+    private int dispatch(HttpExchange ex, String method, String[] path, Map<String, String> q)
+            throws IOException, SQLException {
+        String resource = path[0];
+        Integer id = path.length > 1 ? parseId(path[1]) : null;
+
+        switch (resource) {
+            case "":
+                return sendJson(ex, 200, "{\"endpoints\": [\"/users\", \"/artists\", \"/songs\", "
+                        + "\"/views/artist-song-stats\", \"/views/artist-top-song\", \"/albums/{id}/duration\", "
+                        + "\"/reports\", \"/reports/{name}\", \"/charts/songs\", \"/metrics\"]}");
+            case "users":
+            case "artists":
+            case "songs":
+                if (path.length > 2 || (path.length == 2 && id == null)) throw new ApiError(404, "No such endpoint.");
+                return crud(ex, method, resource, id, q);
+            case "views":
+                requireGet(method);
+                if (path.length != 2) throw new ApiError(404, "Views: artist-song-stats, artist-top-song");
+                return view(ex, path[1], q);
+            case "albums":
+                requireGet(method);
+                if (id == null || path.length != 3 || !path[2].equals("duration")) {
+                    throw new ApiError(404, "Use /albums/{id}/duration");
+                }
+                return albumDuration(ex, id);
+            case "reports":
+                requireGet(method);
+                return path.length == 1 ? listReports(ex) : report(ex, path[1]);
+            case "charts":
+                requireGet(method);
+                return chart(ex, path.length > 1 ? path[1] : "", q);
+            case "metrics":
+                requireGet(method);
+                if ("true".equals(q.get("reset"))) resetMetrics();
+                return sendJson(ex, 200, metricsJson());
+            default:
+                throw new ApiError(404, "No such endpoint.");
+        }
+    }
+
+    /* ---------------------------------------------------
+       CRUD (through the Catalog, like the menus)
+       --------------------------------------------------- */
+    private int crud(HttpExchange ex, String method, String resource, Integer id, Map<String, String> q)
+            throws IOException, SQLException {
+        if (method.equals("GET") && id == null) return list(ex, resource, q);
+        if (method.equals("POST")) {
+            if (id != null) throw new ApiError(405, "POST to /" + resource + " without an ID.");
+            return create(ex, resource, parseObject(readBody(ex)));
+        }
+        if (method.equals("PATCH") && id == null && resource.equals("songs")) {
+            return batchUpdateSongs(ex, parseArray(readBody(ex)));
+        }
+        if (id == null) throw new ApiError(405, method + " needs /" + resource + "/{id}");
+
+        switch (method) {
+            case "GET": {
+                Object[] row = get(resource, id);
+                if (row == null) throw new ApiError(404, "Not found.");
+                return sendJson(ex, 200, object(columns(resource), row));
+            }
+            case "PUT":
+                return update(ex, resource, id, parseObject(readBody(ex)));
+            case "DELETE":
+                return delete(ex, resource, id);
+            default:
+                throw new ApiError(405, "Method not allowed.");
+        }
+    }
+
+    private static String[] columns(String resource) {
+        switch (resource) {
+            case "users": return new String[]{"UserID", "Username", "Version"}; // never the password
+            case "artists": return Catalog.Artist.COLUMNS;
+            default: return Catalog.Song.COLUMNS;
+        }
+    }
+
+    private Object[] get(String resource, int id) throws SQLException {
+        switch (resource) {
+            case "users": {
+                Catalog.User u = catalog.user(id);
+                return u == null ? null : new Object[]{u.userId(), u.username(), u.version()};
+            }
+            case "artists": {
+                Catalog.Artist a = catalog.artist(id);
+                return a == null ? null : a.values();
+            }
+            default: {
+                Catalog.Song s = catalog.song(id);
+                return s == null ? null : s.values();
+            }
+        }
+    }
+
+    private int create(HttpExchange ex, String resource, Map<String, Object> body) throws IOException, SQLException {
+        Object[] row;
+        switch (resource) {
+            case "users": {
+                Catalog.User u = catalog.insertUser(requiredString(body, "Username"), requiredString(body, "Password"));
+                row = new Object[]{u.userId(), u.username(), u.version()};
+                break;
+            }
+            case "artists":
+                row = catalog.insertArtist(requiredString(body, "Name"), optionalString(body, "Genre", null),
+                        optionalString(body, "Country", null), optionalInt(body, "UserID", null)).values();
+                break;
+            default:
+                row = catalog.insertSong(requiredString(body, "Title"), requiredInt(body, "Duration"),
+                        requiredInt(body, "AlbumID")).values();
+        }
+        return sendJson(ex, 201, object(columns(resource), row));
+    }
+
+    // Fields left out of the body keep their current value
+    private int update(HttpExchange ex, String resource, int id, Map<String, Object> body)
+            throws IOException, SQLException {
+        Integer version = optionalInt(body, "Version", null);
+        Object[] row = null;
+        switch (resource) {
+            case "users": {
+                Catalog.User old = catalog.user(id);
+                if (old == null) break;
+                Catalog.User edited = new Catalog.User(id, optionalString(body, "Username", old.username()),
+                        optionalString(body, "Password", old.password()), version != null ? version : old.version());
+                Catalog.User u = version != null ? catalog.updateUser(edited) : catalog.updateUser(old, edited);
+                if (u != null) row = new Object[]{u.userId(), u.username(), u.version()};
+                break;
+            }
+            case "artists": {
+                Catalog.Artist old = catalog.artist(id);
+                if (old == null) break;
+                Catalog.Artist edited = new Catalog.Artist(id, optionalString(body, "Name", old.name()),
+                        optionalString(body, "Genre", old.genre()), optionalString(body, "Country", old.country()),
+                        optionalInt(body, "UserID", old.userId()), version != null ? version : old.version());
+                Catalog.Artist a = version != null ? catalog.updateArtist(edited) : catalog.updateArtist(old, edited);
+                if (a != null) {
+                    row = a.values();
+                    if (!a.name().equals(old.name())) charts.artistRenamed(id, a.name());
+                }
+                break;
+            }
+            default: {
+                Catalog.Song old = catalog.song(id);
+                if (old == null) break;
+                Catalog.Song edited = new Catalog.Song(id, optionalString(body, "Title", old.title()),
+                        keepInt(body, "Duration", old.duration()), keepInt(body, "AlbumID", old.albumId()),
+                        version != null ? version : old.version());
+                Catalog.Song s = version != null ? catalog.updateSong(edited) : catalog.updateSong(old, edited);
+                if (s != null) {
+                    row = s.values();
+                    charts.songChanged(id);
+                }
+            }
+        }
+        if (row == null) throw new ApiError(404, "Not found.");
+        return sendJson(ex, 200, object(columns(resource), row));
+    }
+
+    // PATCH /songs [{"SongID": 1, "Version": 3, "Duration": 200}, ...]: all applied or none (409)
+    private int batchUpdateSongs(HttpExchange ex, List<Map<String, Object>> body) throws IOException, SQLException {
+        List<Catalog.SongChange> changes = new ArrayList<>();
+        List<Integer> chartsAffected = new ArrayList<>();
+        for (Map<String, Object> c : body) {
+            if (c.containsKey("Title") && c.get("Title") == null) throw new ApiError(400, "Title cannot be null.");
+            changes.add(new Catalog.SongChange(requiredInt(c, "SongID"), requiredInt(c, "Version"),
+                    optionalString(c, "Title", null), keepInteger(c, "Duration"), keepInteger(c, "AlbumID")));
+            if (c.containsKey("Title") || c.containsKey("AlbumID")) chartsAffected.add(requiredInt(c, "SongID"));
+        }
+        int updated;
+        try {
+            updated = catalog.updateSongs(changes);
+        } catch (IllegalArgumentException e) {
+            throw new ApiError(400, e.getMessage());
+        }
+        if (!chartsAffected.isEmpty()) charts.songsChanged(chartsAffected);
+        return sendJson(ex, 200, "{\"updated\": " + updated + "}");
+    }
+
+    private int delete(HttpExchange ex, String resource, int id) throws IOException, SQLException {
+        boolean deleted;
+        switch (resource) {
+            case "users":
+                deleted = catalog.deleteUser(id);
+                break;
+            case "artists":
+                deleted = catalog.deleteArtist(id);
+                if (deleted) charts.artistRemoved(id);
+                break;
+            default:
+                deleted = catalog.deleteSong(id);
+                if (deleted) charts.songDeleted(id);
+        }
+        if (!deleted) throw new ApiError(404, "Not found.");
+        setLastWriteHeader(ex);
+        ex.sendResponseHeaders(204, -1);
+        return 204;
+    }
+
+    /* ---------------------------------------------------
+       LISTS, VIEWS, REPORTS (streamed)
+       --------------------------------------------------- */
+    private int list(HttpExchange ex, String resource, Map<String, String> q) throws IOException, SQLException {
+        switch (resource) {
+            case "users":
+                return page(ex, "/users", "SELECT UserID, Username, Version FROM `User` "
+                        + "WHERE UserID > ? AND DeletedAt IS NULL ORDER BY UserID LIMIT ?", "UserID", q);
+            case "artists":
+                return page(ex, "/artists", "SELECT ArtistID, Name, Genre, Country, UserID, Version FROM Artist "
+                        + "WHERE ArtistID > ? AND DeletedAt IS NULL ORDER BY ArtistID LIMIT ?", "ArtistID", q);
+            default:
+                return page(ex, "/songs", "SELECT SongID, Title, Duration, AlbumID, TimesPlayed, Version FROM Song "
+                        + "WHERE SongID > ? AND " + Catalog.songVisible("Song") + " ORDER BY SongID LIMIT ?", "SongID", q);
+        }
+    }
+
+    private int view(HttpExchange ex, String name, Map<String, String> q) throws IOException, SQLException {
+        switch (name) {
+            case "artist-song-stats":
+                return page(ex, "/views/artist-song-stats", "SELECT * FROM v_artist_song_stats "
+                        + "WHERE ArtistID > ? ORDER BY ArtistID LIMIT ?", "ArtistID", q);
+            case "artist-top-song":
+                return page(ex, "/views/artist-top-song", "SELECT * FROM v_artist_top_song "
+                        + "WHERE ArtistID > ? ORDER BY ArtistID LIMIT ?", "ArtistID", q);
+            default:
+                throw new ApiError(404, "Views: artist-song-stats, artist-top-song");
+        }
+    }
+
+    // {"items": [...], "next": "/path?after=..&limit=.." or null}; sql takes (after, limit)
+    private int page(HttpExchange ex, String path, String sql, String keyColumn, Map<String, String> q)
+            throws IOException, SQLException {
+        long after = parseLong(q.getOrDefault("after", "0"), "after");
+        int limit = (int) Math.min(maxPageSize, Math.max(1, parseLong(q.getOrDefault("limit",
+                String.valueOf(defaultPageSize)), "limit")));
+
+        try (Connection conn = reads.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setLong(1, after);
+            ps.setInt(2, limit + 1); // one extra row says whether there is a next page
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                Writer out = startStream(ex);
+                out.write("{\"items\": [");
+                ResultSetMetaData md = rs.getMetaData();
+                int key = rs.findColumn(keyColumn);
+                int n = 0;
+                long lastKey = after;
+                boolean more = false;
+                while (rs.next()) {
+                    if (n == limit) {
+                        more = true;
+                        break;
+                    }
+                    if (n++ > 0) out.write(", ");
+                    writeRow(out, md, rs);
+                    lastKey = rs.getLong(key);
+                }
+                out.write("], \"next\": ");
+                out.write(more ? quote(path + "?after=" + lastKey + "&limit=" + limit) : "null");
+                out.write("}");
+                out.flush();
+                return 200;
+            }
+        }
+    }
+
+    private int listReports(HttpExchange ex) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"reports\": [");
+        List<Reports.Report> all = Reports.dashboard();
+        for (int i = 0; i < all.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append("{\"name\": ").append(quote(all.get(i).name))
+                    .append(", \"title\": ").append(quote(all.get(i).title)).append('}');
+        }
+        return sendJson(ex, 200, sb.append("]}").toString());
+    }
+
+    private int report(HttpExchange ex, String name) throws IOException, SQLException {
+        Reports.Report report = null;
+        for (Reports.Report r : Reports.dashboard()) {
+            if (r.name.equals(name)) report = r;
+        }
+        if (report == null) throw new ApiError(404, "No report named " + name + "; see /reports");
+
+        // ageMs (and the Age header) tell how old a cached result is; 0 when just queried
+        ReportCache.Result cached = reportCache.get(report, null);
+        if (cached != null) {
+            ex.getResponseHeaders().set("Age", String.valueOf(cached.ageMs() / 1000));
+            StringBuilder sb = new StringBuilder("{\"title\": ").append(quote(report.title))
+                    .append(", \"ageMs\": ").append(cached.ageMs()).append(", \"items\": [");
+            for (int i = 0; i < cached.rows().size(); i++) {
+                sb.append(i > 0 ? ", " : "").append(object(cached.columns(), cached.rows().get(i)));
+            }
+            return sendJson(ex, 200, sb.append("]}").toString());
+        }
+
+        ReportCache.Capture capture = reportCache.capture(report, null);
+        try (Connection conn = reads.getConnection();
+             PreparedStatement ps = conn.prepareStatement(report.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                Writer out = startStream(ex);
+                out.write("{\"title\": " + quote(report.title) + ", \"ageMs\": 0, \"items\": [");
+                ResultSetMetaData md = rs.getMetaData();
+                for (int n = 0; rs.next(); n++) {
+                    if (n > 0) out.write(", ");
+                    writeRow(out, md, rs);
+                    capture.onRow(rs);
+                }
+                capture.done(rs);
+                out.write("]}");
+                out.flush();
+                return 200;
+            }
+        }
+    }
+
+    // The AlbumDuration() routine; its SIGNALs come back as 400
+    private int albumDuration(HttpExchange ex, int albumId) throws IOException, SQLException {
+        try (Connection conn = reads.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT AlbumDuration(?)")) {
+            ps.setInt(1, albumId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return sendJson(ex, 200, "{\"AlbumID\": " + albumId + ", \"TotalDuration\": "
+                        + (rs.getObject(1) == null ? "null" : rs.getLong(1)) + "}");
+            }
+        }
+    }
+
+    // In-memory top-K, no database
+    private int chart(HttpExchange ex, String name, Map<String, String> q) throws IOException {
+        int n = (int) Math.max(1, parseLong(q.getOrDefault("limit", "10"), "limit"));
+        StringBuilder sb = new StringBuilder("{\"items\": [");
+        if (name.equals("songs")) {
+            List<Charts.SongRow> rows = charts.topSongs(n);
+            for (int i = 0; i < rows.size(); i++) sb.append(i > 0 ? ", " : "").append(object(Charts.SongRow.COLUMNS, rows.get(i).values()));
+        } else if (name.equals("artists")) {
+            List<Charts.ArtistRow> rows = charts.topArtists(n);
+            for (int i = 0; i < rows.size(); i++) sb.append(i > 0 ? ", " : "").append(object(Charts.ArtistRow.COLUMNS, rows.get(i).values()));
+        } else {
+            throw new ApiError(404, "Charts: songs, artists");
+        }
+        return sendJson(ex, 200, sb.append("]}").toString());
+    }
+
+    /* ---------------------------------------------------
+       METRICS
+       --------------------------------------------------- */
+    public void resetMetrics() {
+        routes.clear();
+        metricsSince = System.nanoTime();
+    }
+
+    public String metricsJson() {
+        double secs = Math.max(1e-9, (System.nanoTime() - metricsSince) / 1e9);
+        long total = 0;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, RouteStats> e : new TreeMap<>(routes).entrySet()) {
+            RouteStats r = e.getValue();
+            long count = r.count.get();
+            long[] s = r.sorted();
+            total += count;
+            sb.append(sb.length() == 0 ? "" : ", ").append(quote(e.getKey())).append(": ")
+                    .append(String.format("{\"requests\": %d, \"errors\": %d, \"rps\": %.1f, \"meanMs\": %.2f, "
+                                    + "\"p50Ms\": %.2f, \"p99Ms\": %.2f, \"maxMs\": %.2f}",
+                            count, r.errors.get(), count / secs, r.totalNanos.get() / 1e6 / Math.max(1, count),
+                            percentile(s, 0.50), percentile(s, 0.99), s.length == 0 ? 0 : s[s.length - 1] / 1e6));
+        }
+        return String.format("{\"seconds\": %.1f, \"requests\": %d, \"rps\": %.1f, \"routes\": {%s}}",
+                secs, total, total / secs, sb);
+    }
+
+    // Nearest-rank percentile of sorted nanos, in ms
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+    }
+
+    public String stats() {
+        long requests = 0, errors = 0;
+        for (RouteStats r : routes.values()) {
+            requests += r.count.get();
+            errors += r.errors.get();
+        }
+        return String.format("API: listening on port %d (%s) | requests=%d errors=%d",
+                port(), VirtualThreads.available() ? "virtual threads" : "platform threads", requests, errors);
+    }
+
+    /* ---------------------------------------------------
+       JSON / HTTP HELPERS
+       --------------------------------------------------- */
+    // The client's last write, never in the future; 0 when it sent none
+    private static long lastWriteOf(HttpExchange ex) {
+        try {
+            String header = ex.getRequestHeaders().getFirst("X-Last-Write");
+            return header == null ? 0 : Math.min(Long.parseLong(header.trim()), System.currentTimeMillis());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void setLastWriteHeader(HttpExchange ex) {
+        long last = ConnectionPool.lastWriteOnThisThread();
+        if (last > 0) ex.getResponseHeaders().set("X-Last-Write", String.valueOf(last));
+    }
+
+    // Chunked response; the caller writes the body as it goes
+    private static Writer startStream(HttpExchange ex) throws IOException {
+        setLastWriteHeader(ex);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        return new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    private static int sendJson(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        setLastWriteHeader(ex);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+        return status;
+    }
+
+    private static void sendError(HttpExchange ex, int status, String message) {
+        if (ex.getResponseCode() != -1) return; // headers already sent (failed mid-stream)
+        try {
+            sendJson(ex, status, "{\"error\": " + quote(message == null ? "error" : message) + "}");
+        } catch (IOException ignored) {
+            // client is gone
+        }
+    }
+
+    private static void writeRow(Writer out, ResultSetMetaData md, ResultSet rs) throws IOException, SQLException {
+        out.write('{');
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            if (i > 1) out.write(", ");
+            out.write(quote(md.getColumnLabel(i)));
+            out.write(": ");
+            out.write(value(rs.getObject(i)));
+        }
+        out.write('}');
+    }
+
+    private static String object(String[] columns, Object[] values) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(quote(columns[i])).append(": ").append(value(values[i]));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String value(Object v) {
+        if (v == null) return "null";
+        if (v instanceof Number || v instanceof Boolean) return v.toString();
+        return quote(v.toString());
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> q = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return q;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            q.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        byte[] body = ex.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) throw new ApiError(413, "Body larger than " + MAX_BODY_BYTES + " bytes.");
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // A flat JSON object of strings, numbers, booleans and nulls (all the CRUD bodies need)
+    static Map<String, Object> parseObject(String json) {
+        int[] pos = {0};
+        Map<String, Object> out = parseObject(json, pos);
+        skipSpace(json, pos);
+        if (pos[0] != json.length()) throw new ApiError(400, "Trailing characters after JSON object.");
+        return out;
+    }
+
+    // A JSON array of flat objects (batch bodies)
+    static List<Map<String, Object>> parseArray(String json) {
+        int[] pos = {0};
+        List<Map<String, Object>> out = new ArrayList<>();
+        expect(json, pos, '[');
+        skipSpace(json, pos);
+        if (peek(json, pos) == ']') {
+            pos[0]++;
+        } else {
+            while (true) {
+                out.add(parseObject(json, pos));
+                skipSpace(json, pos);
+                char c = next(json, pos);
+                if (c == ']') break;
+                if (c != ',') throw new ApiError(400, "Expected ',' or ']' at " + (pos[0] - 1));
+            }
+        }
+        skipSpace(json, pos);
+        if (pos[0] != json.length()) throw new ApiError(400, "Trailing characters after JSON array.");
+        return out;
+    }
+
+    private static Map<String, Object> parseObject(String json, int[] pos) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        expect(json, pos, '{');
+        skipSpace(json, pos);
+        if (peek(json, pos) == '}') {
+            pos[0]++;
+            return out;
+        }
+        while (true) {
+            skipSpace(json, pos);
+            String key = parseString(json, pos);
+            expect(json, pos, ':');
+            out.put(key, parseValue(json, pos));
+            skipSpace(json, pos);
+            char c = next(json, pos);
+            if (c == '}') break;
+            if (c != ',') throw new ApiError(400, "Expected ',' or '}' at " + (pos[0] - 1));
+        }
+        return out;
+    }
+
+    private static Object parseValue(String s, int[] pos) {
+        skipSpace(s, pos);
+        char c = peek(s, pos);
+        if (c == '"') return parseString(s, pos);
+        if (c == '{' || c == '[') throw new ApiError(400, "Nested objects and arrays are not supported.");
+
+        int start = pos[0];
+        while (pos[0] < s.length() && ",} \t\r\n".indexOf(s.charAt(pos[0])) < 0) pos[0]++;
+        String word = s.substring(start, pos[0]);
+        switch (word) {
+            case "null": return null;
+            case "true": return Boolean.TRUE;
+            case "false": return Boolean.FALSE;
+            default:
+                try {
+                    return word.contains(".") || word.contains("e") || word.contains("E")
+                            ? (Object) Double.parseDouble(word) : (Object) Long.parseLong(word);
+                } catch (NumberFormatException e) {
+                    throw new ApiError(400, "Bad JSON value: " + word);
+                }
+        }
+    }
+
+    private static String parseString(String s, int[] pos) {
+        expect(s, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next(s, pos);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = next(s, pos);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos[0] + 4 > s.length()) throw new ApiError(400, "Bad \\u escape.");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos[0], pos[0] + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw new ApiError(400, "Bad \\u escape.");
+                    }
+                    pos[0] += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+    }
+
+    private static void expect(String s, int[] pos, char c) {
+        skipSpace(s, pos);
+        if (next(s, pos) != c) throw new ApiError(400, "Expected '" + c + "' at " + (pos[0] - 1));
+    }
+
+    private static char next(String s, int[] pos) {
+        if (pos[0] >= s.length()) throw new ApiError(400, "Unexpected end of JSON.");
+        return s.charAt(pos[0]++);
+    }
+
+    private static char peek(String s, int[] pos) {
+        if (pos[0] >= s.length()) throw new ApiError(400, "Unexpected end of JSON.");
+        return s.charAt(pos[0]);
+    }
+
+    private static void skipSpace(String s, int[] pos) {
+        while (pos[0] < s.length() && Character.isWhitespace(s.charAt(pos[0]))) pos[0]++;
+    }
+
+    private static String requiredString(Map<String, Object> body, String field) {
+        String v = optionalString(body, field, null);
+        if (v == null || v.isBlank()) throw new ApiError(400, field + " is required.");
+        return v;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field, String fallback) {
+        if (!body.containsKey(field)) return fallback;
+        Object v = body.get(field);
+        return v == null ? null : v.toString();
+    }
+
+    private static int requiredInt(Map<String, Object> body, String field) {
+        Integer v = optionalInt(body, field, null);
+        if (v == null) throw new ApiError(400, field + " is required.");
+        return v;
+    }
+
+    private static Integer optionalInt(Map<String, Object> body, String field, Integer fallback) {
+        if (!body.containsKey(field)) return fallback;
+        Object v = body.get(field);
+        if (v == null) return null;
+        if (v instanceof Long && (Long) v >= Integer.MIN_VALUE && (Long) v <= Integer.MAX_VALUE) {
+            return ((Long) v).intValue();
+        }
+        throw new ApiError(400, field + " must be an integer.");
+    }
+
+    // NOT NULL columns: absent keeps the current value, null is rejected
+    private static int keepInt(Map<String, Object> body, String field, int current) {
+        return body.containsKey(field) ? requiredInt(body, field) : current;
+    }
+
+    // Same, for batch changes: null (absent) keeps each row's own value
+    private static Integer keepInteger(Map<String, Object> body, String field) {
+        return body.containsKey(field) ? (Integer) requiredInt(body, field) : null;
+    }
+
+    private static Integer parseId(String s) {
+        try {
+            return Integer.valueOf(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long parseLong(String s, String name) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new ApiError(400, name + " must be a number.");
+        }
+    }
+
+    private static void requireGet(String method) {
+        if (!method.equals("GET")) throw new ApiError(405, "Only GET is supported here.");
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/* ---------------------------------------------------
+   BULK CSV/TSV IMPORT
+   Streams rows into JDBC batches and commits periodically. Rows the
+   database refuses (FK, CHECK, trigger) go to <file>.rejects with the
+   reason instead of aborting the load.
+   --------------------------------------------------- */
+public class BulkImporter {
+
+    // Importable tables and their columns (first is the primary key)
+    private static final Map<String, String[]> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("User", new String[]{"UserID", "Username", "Password"});
+        TABLES.put("Artist", new String[]{"ArtistID", "Name", "Genre", "Country", "UserID"});
+        TABLES.put("Album", new String[]{"AlbumID", "Title", "ReleaseDate", "ArtistID"});
+        TABLES.put("Song", new String[]{"SongID", "Title", "Duration", "AlbumID", "TimesPlayed"});
+    }
+
+    private static final long PROGRESS_EVERY_NANOS = 2_000_000_000L;
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final int commitEvery;
+
+    public BulkImporter(ConnectionPool pool, int batchSize, int commitEvery) {
+        this.pool = pool;
+        this.batchSize = Math.max(1, batchSize);
+        this.commitEvery = Math.max(this.batchSize, commitEvery);
+    }
+
+    public static String[] tables() {
+        return TABLES.keySet().toArray(new String[0]);
+    }
+
+    public static final class Result {
+        long rows;
+        long inserted;
+        long rejected;
+        long nanos;
+        Path rejectsFile;
+
+        public long inserted() { return inserted; }
+
+        @Override
+        public String toString() {
+            double secs = nanos / 1e9;
+            return String.format("Read %d rows: %d inserted, %d rejected in %.2f s (%.0f rows/sec)%s",
+                    rows, inserted, rejected, secs, secs > 0 ? rows / secs : 0.0,
+                    rejected > 0 ? "\nRejected rows written to " + rejectsFile : "");
+        }
+    }
+
+    public Result importFile(String table, String filePath) throws IOException, SQLException {
+        String canonical = canonicalTable(table);
+        if (canonical == null) throw new IllegalArgumentException("Cannot import into table: " + table);
+
+        Path path = Path.of(filePath);
+        char sep = filePath.toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        Result result = new Result();
+        result.rejectsFile = Path.of(filePath + ".rejects");
+        long start = System.nanoTime();
+
+        try (DelimitedReader in = new DelimitedReader(Files.newBufferedReader(path, StandardCharsets.UTF_8), sep);
+             RejectWriter rejects = new RejectWriter(result.rejectsFile, sep);
+             Connection conn = pool.getConnection()) {
+
+            String[] header = in.next();
+            if (header == null) throw new IOException("File is empty: " + filePath);
+            String[] columns = mapHeader(canonical, header);
+            rejects.header = header;
+
+            String sql = "INSERT INTO `" + canonical + "` (" + String.join(", ", columns) + ") VALUES ("
+                    + "?, ".repeat(columns.length - 1) + "?)";
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                List<String[]> batch = new ArrayList<>(batchSize);
+                long sinceCommit = 0;
+                long lastProgress = System.nanoTime();
+                String[] record;
+
+                while ((record = in.next()) != null) {
+                    result.rows++;
+
+                    // Checks we can do without a round trip
+                    String problem = validate(columns, record);
+                    if (problem != null) {
+                        result.rejected++;
+                        rejects.write(record, problem);
+                        continue;
+                    }
+
+                    bind(ps, columns, record);
+                    ps.addBatch();
+                    batch.add(record);
+
+                    if (batch.size() >= batchSize) {
+                        sinceCommit += flush(conn, ps, columns, batch, result, rejects);
+                        if (sinceCommit >= commitEvery) {
+                            conn.commit();
+                            pool.wrote(null, canonical);
+                            sinceCommit = 0;
+                        }
+                    }
+
+                    if (System.nanoTime() - lastProgress >= PROGRESS_EVERY_NANOS) {
+                        lastProgress = System.nanoTime();
+                        printProgress(result, start);
+                    }
+                }
+
+                flush(conn, ps, columns, batch, result, rejects);
+                conn.commit();
+                pool.wrote(null, canonical);
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        result.nanos = System.nanoTime() - start;
+        if (result.rejected == 0) Files.deleteIfExists(result.rejectsFile);
+        return result;
+    }
+
+    // Sends the batch; if the server refuses it, replays the rows one by one so only the bad ones are rejected
+    private int flush(Connection conn, PreparedStatement ps, String[] columns, List<String[]> batch,
+                      Result result, RejectWriter rejects) throws SQLException, IOException {
+        if (batch.isEmpty()) return 0;
+
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            ps.executeBatch();
+            result.inserted += batch.size();
+        } catch (BatchUpdateException e) {
+            ps.clearBatch();
+            conn.rollback(savepoint);
+
+            for (String[] record : batch) {
+                try {
+                    bind(ps, columns, record);
+                    ps.executeUpdate(); // a failed statement is undone on its own; the transaction lives on
+                    result.inserted++;
+                } catch (SQLException rowError) {
+                    result.rejected++;
+                    rejects.write(record, rowError.getMessage());
+                }
+            }
+        } finally {
+            conn.releaseSavepoint(savepoint);
+        }
+
+        int sent = batch.size();
+        batch.clear();
+        return sent;
+    }
+
+    private static void printProgress(Result result, long start) {
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  ... %d rows (%d inserted, %d rejected), %.0f rows/sec%n",
+                result.rows, result.inserted, result.rejected, result.rows / secs);
+    }
+
+    /* ---------------------------------------------------
+       COLUMNS, VALIDATION AND BINDING
+       --------------------------------------------------- */
+    private static String canonicalTable(String table) {
+        for (String t : TABLES.keySet()) {
+            if (t.equalsIgnoreCase(table.trim())) return t;
+        }
+        return null;
+    }
+
+    private static String[] mapHeader(String table, String[] header) throws IOException {
+        String[] allowed = TABLES.get(table);
+        String[] columns = new String[header.length];
+
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i] == null ? "" : header[i].trim();
+            for (String col : allowed) {
+                if (col.equalsIgnoreCase(name)) columns[i] = col;
+            }
+            if (columns[i] == null) {
+                throw new IOException("Unknown column '" + name + "' for " + table
+                        + " (expected some of " + String.join(", ", allowed) + ")");
+            }
+        }
+        return columns;
+    }
+
+    // Mirrors the schema's CHECK constraints and the no-future-ReleaseDate trigger
+    private static String validate(String[] columns, String[] record) {
+        if (record.length != columns.length) {
+            return "Expected " + columns.length + " fields but found " + record.length;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            String value = record[i];
+            if (value == null) continue;
+
+            try {
+                switch (columns[i]) {
+                    case "Duration":
+                        if (Integer.parseInt(value.trim()) <= 0) return "Duration must be > 0";
+                        break;
+                    case "TimesPlayed":
+                        if (Integer.parseInt(value.trim()) < 0) return "TimesPlayed must be >= 0";
+                        break;
+                    case "ReleaseDate":
+                        if (LocalDate.parse(value.trim()).isAfter(LocalDate.now())) {
+                            return "ReleaseDate cannot be in the future";
+                        }
+                        break;
+                    default:
+                        if (columns[i].endsWith("ID")) Integer.parseInt(value.trim());
+                }
+            } catch (NumberFormatException e) {
+                return "Invalid number for " + columns[i] + ": " + value;
+            } catch (DateTimeParseException e) {
+                return "Invalid date for " + columns[i] + " (expected YYYY-MM-DD): " + value;
+            }
+        }
+        return null;
+    }
+
+    private static void bind(PreparedStatement ps, String[] columns, String[] record) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            String value = record[i];
+            String col = columns[i];
+
+            if (value == null) {
+                ps.setNull(i + 1, col.equals("ReleaseDate") ? Types.DATE
+                        : isIntColumn(col) ? Types.INTEGER : Types.VARCHAR);
+            } else if (col.equals("ReleaseDate")) {
+                ps.setDate(i + 1, Date.valueOf(value.trim()));
+            } else if (isIntColumn(col)) {
+                ps.setInt(i + 1, Integer.parseInt(value.trim()));
+            } else {
+                ps.setString(i + 1, value);
+            }
+        }
+    }
+
+    private static boolean isIntColumn(String col) {
+        return col.endsWith("ID") || col.equals("Duration") || col.equals("TimesPlayed");
+    }
+
+    /* ---------------------------------------------------
+       DELIMITED FILE READER / REJECT WRITER
+       --------------------------------------------------- */
+    // RFC 4180 style: quoted fields may contain the separator, newlines and doubled quotes.
+    // An empty unquoted field reads as NULL; "" reads as an empty string.
+    static final class DelimitedReader implements AutoCloseable {
+        private final Reader in;
+        private final char sep;
+        private final char[] buf = new char[64 * 1024];
+        private int pos;
+        private int limit;
+
+        DelimitedReader(BufferedReader in, char sep) {
+            this.in = in;
+            this.sep = sep;
+        }
+
+        String[] next() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') c = read(); // skip blank lines
+            if (c < 0) return null;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+
+            while (true) {
+                if (c == '"' && field.length() == 0 && !quoted) {
+                    quoted = true;
+                    readQuoted(field);
+                    c = read();
+                    continue;
+                }
+
+                if (c < 0 || c == '\n' || c == sep) {
+                    fields.add(!quoted && field.length() == 0 ? null : field.toString());
+                    field.setLength(0);
+                    quoted = false;
+                    if (c != sep) break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            return fields.toArray(new String[0]);
+        }
+
+        private void readQuoted(StringBuilder field) throws IOException {
+            int c;
+            while ((c = read()) >= 0) {
+                if (c == '"') {
+                    if (peek() != '"') return;
+                    read();
+                }
+                field.append((char) c);
+            }
+        }
+
+        private int read() throws IOException {
+            if (pos == limit && !fill()) return -1;
+            return buf[pos++];
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit && !fill()) return -1;
+            return buf[pos];
+        }
+
+        private boolean fill() throws IOException {
+            int n = in.read(buf, 0, buf.length);
+            if (n <= 0) return false;
+            pos = 0;
+            limit = n;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class RejectWriter implements AutoCloseable {
+        private final Path path;
+        private final char sep;
+        private Writer out;
+        String[] header;
+
+        RejectWriter(Path path, char sep) {
+            this.path = path;
+            this.sep = sep;
+        }
+
+        void write(String[] record, String reason) throws IOException {
+            if (out == null) {
+                out = new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8), 64 * 1024);
+                if (header != null) writeRecord(header, "_error");
+            }
+            writeRecord(record, reason);
+        }
+
+        private void writeRecord(String[] record, String last) throws IOException {
+            for (String field : record) {
+                out.write(quote(field));
+                out.write(sep);
+            }
+            out.write(quote(last));
+            out.write('\n');
+        }
+
+        private String quote(String field) {
+            if (field == null) return "";
+            boolean needs = field.isEmpty() || field.indexOf(sep) >= 0 || field.indexOf('"') >= 0
+                    || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0;
+            return needs ? '"' + field.replace("\"", "\"\"") + '"' : field;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+        }
+    }
+}
@@ -0,0 +1,590 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/* ---------------------------------------------------
+   CATALOG (cached primary-key lookups)
+   User, Artist, Album and Song rows by ID, read through an EntityCache.
+   Whoever writes one of these tables calls the matching invalidate*
+   method, which also drops the rows an FK cascade changed.
+   User, Artist and Song carry a Version: an update only applies when the
+   row still has the Version it was read at (optimistic concurrency).
+   --------------------------------------------------- */
+public class Catalog {
+
+    // A soft-deleted artist's albums and songs are hidden from the delete on, not from the purge.
+    // Conditions on an Album / Song row, given the table name or alias it is referred to by.
+    public static String albumVisible(String album) {
+        return "EXISTS (SELECT 1 FROM Artist va WHERE va.ArtistID = " + album + ".ArtistID AND va.DeletedAt IS NULL)";
+    }
+
+    public static String songVisible(String song) {
+        return "EXISTS (SELECT 1 FROM Album val JOIN Artist va ON va.ArtistID = val.ArtistID "
+                + "WHERE val.AlbumID = " + song + ".AlbumID AND va.DeletedAt IS NULL)";
+    }
+
+    // values() is ID first, Version last
+    public interface Versioned {
+        int version();
+        Object[] values();
+    }
+
+    public record User(int userId, String username, String password, int version) implements Versioned {
+        public static final String[] COLUMNS = {"UserID", "Username", "Password", "Version"};
+        public Object[] values() { return new Object[]{userId, username, password, version}; }
+    }
+
+    public record Artist(int artistId, String name, String genre, String country, Integer userId, int version)
+            implements Versioned {
+        public static final String[] COLUMNS = {"ArtistID", "Name", "Genre", "Country", "UserID", "Version"};
+        public Object[] values() { return new Object[]{artistId, name, genre, country, userId, version}; }
+    }
+
+    public record Album(int albumId, String title, Date releaseDate, int artistId) {
+        public static final String[] COLUMNS = {"AlbumID", "Title", "ReleaseDate", "ArtistID"};
+        public Object[] values() { return new Object[]{albumId, title, releaseDate, artistId}; }
+    }
+
+    // TimesPlayed is left out: the write-behind play counter changes it constantly
+    public record Song(int songId, String title, int duration, int albumId, int version) implements Versioned {
+        public static final String[] COLUMNS = {"SongID", "Title", "Duration", "AlbumID", "Version"};
+        public Object[] values() { return new Object[]{songId, title, duration, albumId, version}; }
+    }
+
+    // One song's edit in a batch; null fields keep their current value
+    public record SongChange(int songId, int expectedVersion, String title, Integer duration, Integer albumId) {
+    }
+
+    // The row was changed since it was read; current is the row as it is now (null for a batch)
+    public static final class ConflictException extends SQLException {
+        private static final long serialVersionUID = 1L;
+        private final transient Versioned current;
+
+        ConflictException(String message, Versioned current) {
+            super(message);
+            this.current = current;
+        }
+
+        public Versioned current() {
+            return current;
+        }
+    }
+
+    private static final int BATCH_CHUNK = 1000; // songs per UPDATE ... JOIN statement
+
+    private final ConnectionPool pool;
+    private final EntityCache<Integer, User> users;
+    private final EntityCache<Integer, Artist> artists;
+    private final EntityCache<Integer, Album> albums;
+    private final EntityCache<Integer, Song> songs;
+    private volatile boolean softDeletes;
+    private final boolean mergeOnConflict;
+    private final int maxRetries;
+
+    // Counters
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+
+    public Catalog(ConnectionPool pool, int maxEntries, long ttlMs, boolean mergeOnConflict, int maxRetries) {
+        this.pool = pool;
+        this.mergeOnConflict = mergeOnConflict;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.users = new EntityCache<>("User", maxEntries, ttlMs, this::loadUser);
+        this.artists = new EntityCache<>("Artist", maxEntries, ttlMs, this::loadArtist);
+        this.albums = new EntityCache<>("Album", maxEntries, ttlMs, this::loadAlbum);
+        this.songs = new EntityCache<>("Song", maxEntries, ttlMs, this::loadSong);
+    }
+
+    public static Catalog fromProperties(ConnectionPool pool, Properties props) {
+        return new Catalog(pool,
+                ConnectionPool.intProp(props, "cache.maxEntries", 10000),
+                ConnectionPool.longProp(props, "cache.ttlMs", 60000),
+                !"fail".equalsIgnoreCase(props.getProperty("update.onConflict", "merge").trim()),
+                ConnectionPool.intProp(props, "update.maxRetries", 3));
+    }
+
+    // Needs the DeletedAt columns and PurgeJob table, and a running Purger
+    public void softDeletes(boolean on) {
+        softDeletes = on;
+    }
+
+    /* ---------------------------------------------------
+       LOOKUPS (null when the row does not exist)
+       --------------------------------------------------- */
+    public User user(int id) throws SQLException {
+        return users.get(id);
+    }
+
+    public Artist artist(int id) throws SQLException {
+        return artists.get(id);
+    }
+
+    public Album album(int id) throws SQLException {
+        return albums.get(id);
+    }
+
+    public Song song(int id) throws SQLException {
+        return songs.get(id);
+    }
+
+    private User loadUser(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT UserID, Username, Password, Version FROM `User` "
+                             + "WHERE UserID = ? AND DeletedAt IS NULL")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new User(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)) : null;
+            }
+        }
+    }
+
+    private Artist loadArtist(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT ArtistID, Name, Genre, Country, UserID, Version FROM Artist "
+                             + "WHERE ArtistID = ? AND DeletedAt IS NULL")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Artist(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        (Integer) rs.getObject(5), rs.getInt(6)) : null;
+            }
+        }
+    }
+
+    private Album loadAlbum(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT AlbumID, Title, ReleaseDate, ArtistID FROM Album WHERE AlbumID = ? AND "
+                             + albumVisible("Album"))) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Album(rs.getInt(1), rs.getString(2), rs.getDate(3), rs.getInt(4)) : null;
+            }
+        }
+    }
+
+    private Song loadSong(Integer id) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT SongID, Title, Duration, AlbumID, Version FROM Song WHERE SongID = ? AND "
+                             + songVisible("Song"))) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Song(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getInt(5))
+                        : null;
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       WRITES
+       One statement each. The written row is built from the generated key
+       and the values we sent, cached, and returned; nothing is re-selected.
+       Updates and deletes return null / false when the ID does not exist
+       (or the row is soft-deleted).
+       update*(row) is conditional on row.version() and throws a
+       ConflictException when someone else got there first.
+       update*(base, edited) is the read-modify-write flow: base is the row
+       the edit started from, and with update.onConflict=merge a conflict is
+       retried on top of the current row when no field was changed on both
+       sides (up to update.maxRetries times).
+       --------------------------------------------------- */
+    public User insertUser(String username, String password) throws SQLException {
+        int id = insert("INSERT INTO `User` (Username, Password) VALUES (?, ?)", username, password);
+        User row = new User(id, username, password, 0);
+        users.put(id, row);
+        pool.wrote(null, "User");
+        return row;
+    }
+
+    public Artist insertArtist(String name, String genre, String country, Integer userId) throws SQLException {
+        int id = insert("INSERT INTO Artist (Name, Genre, Country, UserID) VALUES (?, ?, ?, ?)",
+                name, genre, country, userId);
+        Artist row = new Artist(id, name, genre, country, userId, 0);
+        artists.put(id, row);
+        pool.wrote(id, "Artist");
+        return row;
+    }
+
+    // Still one statement: the album is checked by the INSERT ... SELECT itself
+    public Song insertSong(String title, int duration, int albumId) throws SQLException {
+        int id = insert("INSERT INTO Song (Title, Duration, AlbumID) SELECT ?, ?, AlbumID FROM Album "
+                + "WHERE AlbumID = ? AND " + albumVisible("Album"), title, duration, albumId);
+        if (id == 0) throw new SQLIntegrityConstraintViolationException("No album with ID " + albumId + ".");
+        Song row = new Song(id, title, duration, albumId, 0);
+        songs.put(id, row);
+        pool.wrote(artistOf(albumId), "Song");
+        return row;
+    }
+
+    public User updateUser(User row) throws SQLException {
+        if (update("UPDATE `User` SET Username = ?, Password = ?, Version = Version + 1 "
+                        + "WHERE UserID = ? AND Version = ? AND DeletedAt IS NULL",
+                row.username(), row.password(), row.userId(), row.version()) == 0) {
+            return notUpdated(users, "User", row.userId());
+        }
+        User written = new User(row.userId(), row.username(), row.password(), row.version() + 1);
+        users.put(row.userId(), written);
+        pool.wrote(null, "User");
+        return written;
+    }
+
+    public User updateUser(User base, User edited) throws SQLException {
+        return merging(base, edited, this::updateUser,
+                v -> new User((Integer) v[0], (String) v[1], (String) v[2], (Integer) v[3]));
+    }
+
+    public Artist updateArtist(Artist row) throws SQLException {
+        if (update("UPDATE Artist SET Name = ?, Genre = ?, Country = ?, UserID = ?, Version = Version + 1 "
+                        + "WHERE ArtistID = ? AND Version = ? AND DeletedAt IS NULL",
+                row.name(), row.genre(), row.country(), row.userId(), row.artistId(), row.version()) == 0) {
+            return notUpdated(artists, "Artist", row.artistId());
+        }
+        Artist written = new Artist(row.artistId(), row.name(), row.genre(), row.country(), row.userId(),
+                row.version() + 1);
+        artists.put(row.artistId(), written);
+        pool.wrote(row.artistId(), "Artist");
+        return written;
+    }
+
+    public Artist updateArtist(Artist base, Artist edited) throws SQLException {
+        return merging(base, edited, this::updateArtist,
+                v -> new Artist((Integer) v[0], (String) v[1], (String) v[2], (String) v[3], (Integer) v[4],
+                        (Integer) v[5]));
+    }
+
+    public Song updateSong(Song row) throws SQLException {
+        if (update("UPDATE Song SET Title = ?, Duration = ?, AlbumID = ?, Version = Version + 1 "
+                        + "WHERE SongID = ? AND Version = ? AND " + songVisible("Song"),
+                row.title(), row.duration(), row.albumId(), row.songId(), row.version()) == 0) {
+            return notUpdated(songs, "Song", row.songId());
+        }
+        Song written = new Song(row.songId(), row.title(), row.duration(), row.albumId(), row.version() + 1);
+        songs.put(row.songId(), written);
+        pool.wrote(null, "Song"); // may have moved between artists
+        return written;
+    }
+
+    public Song updateSong(Song base, Song edited) throws SQLException {
+        return merging(base, edited, this::updateSong,
+                v -> new Song((Integer) v[0], (String) v[1], (Integer) v[2], (Integer) v[3], (Integer) v[4]));
+    }
+
+    // The conditional UPDATE matched nothing: null if the row is gone, otherwise a conflict
+    private <T extends Versioned> T notUpdated(EntityCache<Integer, T> cache, String table, int id)
+            throws SQLException {
+        cache.invalidate(id);
+        T current = cache.get(id); // re-read, so a retry starts from the new Version
+        if (current == null) return null;
+        conflicts.incrementAndGet();
+        throw new ConflictException(table + " " + id + " was changed by someone else (now at Version "
+                + current.version() + ").", current);
+    }
+
+    @FunctionalInterface
+    private interface Write<T> {
+        T apply(T row) throws SQLException;
+    }
+
+    private <T extends Versioned> T merging(T base, T edited, Write<T> write, Function<Object[], T> build)
+            throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return write.apply(edited);
+            } catch (ConflictException e) {
+                if (!mergeOnConflict || attempt >= maxRetries) throw e;
+                @SuppressWarnings("unchecked")
+                T current = (T) e.current();
+                Object[] values = merge(base.values(), edited.values(), current.values());
+                if (values == null) {
+                    throw new ConflictException(e.getMessage() + " The same field was changed on both sides.", current);
+                }
+                base = current;
+                edited = build.apply(values);
+                merged.incrementAndGet();
+            }
+        }
+    }
+
+    // Three-way merge of values() arrays: our changed fields on top of theirs; null if both changed one differently
+    private static Object[] merge(Object[] base, Object[] ours, Object[] theirs) {
+        Object[] out = theirs.clone(); // keeps their Version, which the retry is conditional on
+        for (int i = 1; i < out.length - 1; i++) {
+            if (Objects.equals(ours[i], base[i])) continue;
+            if (!Objects.equals(theirs[i], base[i]) && !Objects.equals(theirs[i], ours[i])) return null;
+            out[i] = ours[i];
+        }
+        return out;
+    }
+
+    /* ---------------------------------------------------
+       BATCH UPDATE
+       Many songs' edits in one UPDATE Song JOIN (<changes>) per BATCH_CHUNK
+       songs, all in one transaction, each row matched on its expected
+       Version. All or nothing: when some rows are stale, the transaction
+       is rolled back, and with update.onConflict=merge the stale changes
+       are re-based on the current Version and the batch retried (the
+       fields a change names win, the others keep the newer values).
+       Returns the number of songs updated; throws when one does not exist.
+       --------------------------------------------------- */
+    public int updateSongs(List<SongChange> changes) throws SQLException {
+        Map<Integer, SongChange> byId = new LinkedHashMap<>();
+        for (SongChange c : changes) {
+            if (byId.put(c.songId(), c) != null) {
+                throw new IllegalArgumentException("SongID " + c.songId() + " appears twice in the batch.");
+            }
+        }
+        if (byId.isEmpty()) return 0;
+
+        try {
+            for (int attempt = 0; ; attempt++) {
+                Map<Integer, Integer> stale = applySongChanges(new ArrayList<>(byId.values()));
+                if (stale.isEmpty()) return byId.size();
+
+                List<Integer> missing = new ArrayList<>();
+                stale.forEach((id, version) -> { if (version == null) missing.add(id); });
+                if (!missing.isEmpty()) throw new SQLException("No song with ID(s) " + missing + "; nothing was updated.");
+                conflicts.addAndGet(stale.size());
+                if (!mergeOnConflict || attempt >= maxRetries) {
+                    throw new ConflictException(stale.size() + " song(s) were changed by someone else: "
+                            + stale.keySet() + "; nothing was updated.", null);
+                }
+                stale.forEach((id, version) -> {
+                    SongChange c = byId.get(id);
+                    byId.put(id, new SongChange(id, version, c.title(), c.duration(), c.albumId()));
+                });
+                merged.addAndGet(stale.size());
+            }
+        } finally {
+            for (int songId : byId.keySet()) songs.invalidate(songId);
+        }
+    }
+
+    // Empty when every row matched and the batch committed; otherwise rolled back and
+    // SongID -> current Version (null when the song is gone) for the rows that did not match
+    private Map<Integer, Integer> applySongChanges(List<SongChange> changes) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int matched = 0;
+                for (int from = 0; from < changes.size(); from += BATCH_CHUNK) {
+                    List<SongChange> chunk = changes.subList(from, Math.min(changes.size(), from + BATCH_CHUNK));
+                    try (PreparedStatement ps = conn.prepareStatement(batchUpdateSql(chunk.size()))) {
+                        int p = 0;
+                        for (SongChange c : chunk) {
+                            ps.setInt(++p, c.songId());
+                            ps.setInt(++p, c.expectedVersion());
+                            ps.setObject(++p, c.title(), Types.VARCHAR);
+                            ps.setObject(++p, c.duration(), Types.INTEGER);
+                            ps.setObject(++p, c.albumId(), Types.INTEGER);
+                        }
+                        matched += ps.executeUpdate(); // IDs are distinct, so one row per matched change
+                    }
+                }
+                if (matched == changes.size()) {
+                    conn.commit();
+                    pool.wrote(null, "Song");
+                    return Map.of();
+                }
+                conn.rollback(); // read the current Versions outside the failed transaction
+                return staleVersions(conn, changes);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static String batchUpdateSql(int rows) {
+        return "UPDATE Song s JOIN ("
+                + "SELECT CAST(? AS SIGNED) AS SongID, CAST(? AS SIGNED) AS Version, CAST(? AS CHAR(50)) AS Title, "
+                + "CAST(? AS SIGNED) AS Duration, CAST(? AS SIGNED) AS AlbumID"
+                + " UNION ALL SELECT ?, ?, ?, ?, ?".repeat(rows - 1)
+                + ") c ON c.SongID = s.SongID AND c.Version = s.Version AND " + songVisible("s") + " "
+                + "SET s.Title = COALESCE(c.Title, s.Title), s.Duration = COALESCE(c.Duration, s.Duration), "
+                + "s.AlbumID = COALESCE(c.AlbumID, s.AlbumID), s.Version = s.Version + 1";
+    }
+
+    private static Map<Integer, Integer> staleVersions(Connection conn, List<SongChange> changes) throws SQLException {
+        Map<Integer, Integer> stale = new LinkedHashMap<>();
+        for (SongChange c : changes) stale.put(c.songId(), null);
+        for (int from = 0; from < changes.size(); from += BATCH_CHUNK) {
+            List<SongChange> chunk = changes.subList(from, Math.min(changes.size(), from + BATCH_CHUNK));
+            try (PreparedStatement ps = conn.prepareStatement("SELECT SongID, Version FROM Song WHERE SongID IN ("
+                    + "?, ".repeat(chunk.size() - 1) + "?) AND " + songVisible("Song"))) {
+                for (int i = 0; i < chunk.size(); i++) ps.setInt(i + 1, chunk.get(i).songId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) stale.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        conn.rollback();
+        for (SongChange c : changes) stale.remove(c.songId(), c.expectedVersion());
+        return stale;
+    }
+
+    // With soft deletes on, the row is hidden now and its cascade is left to the Purger
+    public boolean deleteUser(int userId) throws SQLException {
+        if (softDeletes) {
+            boolean marked = markDeleted("`User`", "UserID", "User", userId);
+            invalidateUser(userId);
+            return marked;
+        }
+        int rows = update("DELETE FROM `User` WHERE UserID = ?", userId);
+        userDeleted(userId);
+        if (rows > 0) pool.wrote(null, "User", "Playlist", "Artist");
+        return rows > 0;
+    }
+
+    public boolean deleteArtist(int artistId) throws SQLException {
+        if (softDeletes) {
+            boolean marked = markDeleted("Artist", "ArtistID", "Artist", artistId);
+            artistDeleted(artistId); // its albums and songs are hidden now too
+            return marked;
+        }
+        int rows = update("DELETE FROM Artist WHERE ArtistID = ?", artistId);
+        artistDeleted(artistId);
+        if (rows > 0) pool.wrote(artistId, "Artist", "Album", "Song");
+        return rows > 0;
+    }
+
+    public boolean deleteSong(int songId) throws SQLException {
+        int rows = update("DELETE FROM Song WHERE SongID = ?", songId);
+        invalidateSong(songId);
+        if (rows > 0) pool.wrote(null, "Song");
+        return rows > 0;
+    }
+
+    // Stamps DeletedAt and queues the PurgeJob in one transaction; two single-row writes
+    private boolean markDeleted(String table, String idColumn, String rootTable, int id) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int rows;
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE " + table + " SET DeletedAt = NOW() "
+                        + "WHERE " + idColumn + " = ? AND DeletedAt IS NULL")) {
+                    ps.setInt(1, id);
+                    rows = ps.executeUpdate();
+                }
+                if (rows > 0) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO PurgeJob (RootTable, RootID) VALUES (?, ?)")) {
+                        ps.setString(1, rootTable);
+                        ps.setInt(2, id);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                if (rows > 0 && rootTable.equals("Artist")) pool.wrote(id, "Artist", "Album", "Song");
+                else if (rows > 0) pool.wrote(null, rootTable);
+                return rows > 0;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // For narrowing a song write to its artist. Only from the cache, so a write stays one
+    // server call; null (every artist) when the album is not cached
+    private Integer artistOf(int albumId) {
+        Album album = albums.peek(albumId);
+        return album == null ? null : album.artistId();
+    }
+
+    private int insert(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            bind(ps, params);
+            if (ps.executeUpdate() == 0) return 0; // INSERT ... SELECT that found nothing
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new SQLException("No generated key returned for: " + sql);
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private int update(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object p = params[i];
+            if (p == null) ps.setNull(i + 1, Types.NULL); // MySQL ignores the declared type for NULL
+            else ps.setObject(i + 1, p);
+        }
+    }
+
+    /* ---------------------------------------------------
+       INVALIDATION (call after the write commits)
+       --------------------------------------------------- */
+    // Row changed in place (its primary key stays the same)
+    public void invalidateUser(int userId) {
+        users.invalidate(userId);
+    }
+
+    public void invalidateArtist(int artistId) {
+        artists.invalidate(artistId);
+    }
+
+    public void invalidateAlbum(int albumId) {
+        albums.invalidate(albumId);
+    }
+
+    public void invalidateSong(int songId) {
+        songs.invalidate(songId);
+    }
+
+    // Row deleted: also drop what the FK cascades touched
+    public void userDeleted(int userId) {
+        users.invalidate(userId);
+        // Artist.UserID is ON DELETE SET NULL
+        artists.invalidateIf(a -> a.userId() != null && a.userId() == userId);
+    }
+
+    public void artistDeleted(int artistId) {
+        artists.invalidate(artistId);
+        // Albums cascade, and their songs with them. The album cache may not hold every
+        // album of this artist, so songs are dropped wholesale.
+        albums.invalidateIf(al -> al.artistId() == artistId);
+        songs.clear();
+    }
+
+    public void albumDeleted(int albumId) {
+        albums.invalidate(albumId);
+        songs.invalidateIf(s -> s.albumId() == albumId);
+    }
+
+    // After anything that rewrites tables wholesale (Reset Database)
+    public void invalidateAll() {
+        users.clear();
+        artists.clear();
+        albums.clear();
+        songs.clear();
+    }
+
+    public String stats() {
+        return "Entity cache:\n  " + users + "\n  " + artists + "\n  " + albums + "\n  " + songs
+                + String.format("%nOptimistic updates: conflicts=%d merged=%d (on conflict: %s, max %d retries)",
+                conflicts.get(), merged.get(), mergeOnConflict ? "merge" : "fail", maxRetries);
+    }
+}
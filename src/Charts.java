@@ -0,0 +1,649 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* ---------------------------------------------------
+   IN-MEMORY CHARTS
+   Each chart (top songs, top artists, top songs of one artist) keeps its
+   top K plus some headroom in a sorted set, so memory does not grow with
+   the catalog. Plays only grow: a song or artist outside a chart stays
+   below its last entry until its absolute count passes it, which a flush
+   checks with one IN-list lookup per 1000 songs it does not hold.
+   Deletes and moves only shrink a chart; one that falls below K is
+   refilled from the database (idx_song_plays, idx_stats_plays).
+   Per-artist charts load on first read, at most maxArtistCharts of them.
+   Database reads run with no play-count flush in progress, so the counts
+   they see and the deltas added in memory never overlap. Writers update
+   the sets under one lock and then publish immutable lists; readers only
+   read a volatile reference.
+   --------------------------------------------------- */
+public class Charts {
+
+    public record SongRow(int rank, int songId, String title, int artistId, String artist, long plays) {
+        public static final String[] COLUMNS = {"Rank", "SongID", "Title", "ArtistID", "Artist", "Plays"};
+        public Object[] values() { return new Object[]{rank, songId, title, artistId, artist, plays}; }
+    }
+
+    public record ArtistRow(int rank, int artistId, String artist, long plays) {
+        public static final String[] COLUMNS = {"Rank", "ArtistID", "Artist", "Plays"};
+        public Object[] values() { return new Object[]{rank, artistId, artist, plays}; }
+    }
+
+    // Mutable ranking entries; only touched under lock, and always removed from a set before changing
+    private static final class SongEntry {
+        final int songId;
+        String title;
+        int artistId;
+        String artist;
+        long plays;
+        boolean inTop, inArtistTop; // which charts hold it; dropped from songs once in neither
+
+        SongEntry(int songId, String title, int artistId, String artist, long plays) {
+            this.songId = songId;
+            this.title = title;
+            this.artistId = artistId;
+            this.artist = artist;
+            this.plays = plays;
+        }
+    }
+
+    private static final class ArtistEntry {
+        final int artistId;
+        String name;
+        long plays;
+
+        ArtistEntry(int artistId, String name, long plays) {
+            this.artistId = artistId;
+            this.name = name;
+            this.plays = plays;
+        }
+    }
+
+    // One artist's songs; the least recently read chart goes first past maxArtistCharts
+    private static final class ArtistChart {
+        final int artistId;
+        final TopSet<SongEntry> songs;
+        volatile List<SongRow> top = List.of();
+        volatile long lastRead = System.nanoTime();
+
+        ArtistChart(int artistId, int capacity) {
+            this.artistId = artistId;
+            this.songs = new TopSet<>(BY_SONG_PLAYS, capacity);
+        }
+    }
+
+    // The exact top `capacity` of its domain: nothing outside ranks above last().
+    // complete: the whole domain is inside (it was smaller than capacity when loaded).
+    private static final class TopSet<E> {
+        final TreeSet<E> set;
+        final int capacity;
+        boolean complete;
+
+        TopSet(Comparator<E> order, int capacity) {
+            this.set = new TreeSet<>(order);
+            this.capacity = capacity;
+        }
+
+        // Admission threshold for an entry from outside: it must rank above the last entry
+        boolean admits(E e) {
+            return complete || (!set.isEmpty() && set.comparator().compare(e, set.last()) < 0);
+        }
+
+        // Returns the entry left outside: e if not admitted, the evicted last entry, or null
+        E offer(E e) {
+            if (!admits(e)) return e;
+            set.add(e);
+            if (set.size() <= capacity) return null;
+            complete = false;
+            return set.pollLast();
+        }
+
+        boolean needsRefill(int k) {
+            return !complete && set.size() < k;
+        }
+    }
+
+    // Absolute counts read from the database
+    private record SongInfo(int songId, String title, long plays, int artistId, String artist, long artistPlays) {
+    }
+
+    private static final Comparator<SongEntry> BY_SONG_PLAYS =
+            Comparator.<SongEntry>comparingLong(e -> -e.plays).thenComparingInt(e -> e.songId);
+    private static final Comparator<ArtistEntry> BY_ARTIST_PLAYS =
+            Comparator.<ArtistEntry>comparingLong(e -> -e.plays).thenComparingInt(e -> e.artistId);
+
+    private static final int LOOKUP_BATCH = 1000;
+
+    // ORDER BY matches the comparators, so a LIMIT n read is exactly a chart's top n
+    private static final String SONG_SQL =
+            "SELECT s.SongID, s.Title, s.TimesPlayed, ar.ArtistID, ar.Name, COALESCE(st.TotalPlays, 0) "
+                    + "FROM Song s "
+                    + "JOIN Album al  ON al.AlbumID = s.AlbumID "
+                    + "JOIN Artist ar ON ar.ArtistID = al.ArtistID "
+                    + "LEFT JOIN ArtistSongStats st ON st.ArtistID = ar.ArtistID "
+                    + "WHERE ar.DeletedAt IS NULL ";
+    private static final String TOP_SONGS_SQL = SONG_SQL + "ORDER BY s.TimesPlayed DESC, s.SongID LIMIT ?";
+    private static final String ARTIST_SONGS_SQL = SONG_SQL
+            + "AND ar.ArtistID = ? ORDER BY s.TimesPlayed DESC, s.SongID LIMIT ?";
+    private static final String TOP_ARTISTS_SQL = "SELECT st.ArtistID, ar.Name, st.TotalPlays "
+            + "FROM ArtistSongStats st "
+            + "JOIN Artist ar ON ar.ArtistID = st.ArtistID "
+            + "WHERE ar.DeletedAt IS NULL "
+            + "ORDER BY st.TotalPlays DESC, st.ArtistID LIMIT ?";
+
+    private final ConnectionPool pool;
+    private final PlayCountIngestor playCounts;
+    private final int k;
+    private final int artistK;
+    private final int maxArtistCharts;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, SongEntry> songs = new HashMap<>();     // songs in any chart
+    private final Map<Integer, ArtistEntry> artists = new HashMap<>(); // artists in the top artists
+    private final TopSet<SongEntry> songRanking;
+    private final TopSet<ArtistEntry> artistRanking;
+    private final Map<Integer, ArtistChart> artistCharts = new ConcurrentHashMap<>();
+
+    // Published snapshots
+    private volatile List<SongRow> topSongs = List.of();
+    private volatile List<ArtistRow> topArtists = List.of();
+
+    public Charts(ConnectionPool pool, PlayCountIngestor playCounts, int k, int artistK, int maxArtistCharts) {
+        this.pool = pool;
+        this.playCounts = playCounts;
+        this.k = Math.max(1, k);
+        this.artistK = Math.max(1, artistK);
+        this.maxArtistCharts = Math.max(1, maxArtistCharts);
+        this.songRanking = new TopSet<>(BY_SONG_PLAYS, withHeadroom(this.k));
+        this.artistRanking = new TopSet<>(BY_ARTIST_PLAYS, withHeadroom(this.k));
+    }
+
+    // Room for a few deletes and moves before a chart needs a refill
+    private static int withHeadroom(int k) {
+        return k + Math.max(10, k / 2);
+    }
+
+    /* ---------------------------------------------------
+       READS (no locking, no database)
+       --------------------------------------------------- */
+    public List<SongRow> topSongs(int n) {
+        List<SongRow> top = topSongs;
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    public List<ArtistRow> topArtists(int n) {
+        List<ArtistRow> top = topArtists;
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    // The first read of an artist loads its chart (one indexed query)
+    public List<SongRow> topSongsForArtist(int artistId, int n) {
+        ArtistChart chart = artistCharts.get(artistId);
+        if (chart == null) {
+            try {
+                playCounts.withoutFlushing(() -> loadArtistChart(artistId));
+            } catch (SQLException e) {
+                System.out.println("Charts: could not load artist " + artistId + ": " + e.getMessage());
+                return List.of();
+            }
+            chart = artistCharts.get(artistId);
+            if (chart == null) return List.of();
+        }
+        chart.lastRead = System.nanoTime();
+        List<SongRow> top = chart.top;
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    /* ---------------------------------------------------
+       SEEDING
+       --------------------------------------------------- */
+    // Top songs and artists from the database; per-artist charts load again on their next read
+    public void reload() throws SQLException {
+        playCounts.withoutFlushing(() -> {
+            List<SongInfo> topRows = readSongs(TOP_SONGS_SQL, List.of(songRanking.capacity));
+            List<ArtistEntry> artistRows = readTopArtists();
+
+            lock.lock();
+            try {
+                for (ArtistChart chart : artistCharts.values()) dropArtistChart(chart);
+                songs.clear();
+                fillTopSongs(topRows);
+                fillTopArtists(artistRows);
+                publishGlobal();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /* ---------------------------------------------------
+       INCREMENTAL UPDATES
+       --------------------------------------------------- */
+    // Flush listener: SongID -> plays just committed to Song.TimesPlayed.
+    // Runs inside the flush, so the lookup sees exactly these deltas committed.
+    public void onPlaysFlushed(Map<Integer, Long> deltas) {
+        // Songs in no chart, or whose artist is in none, need their absolute counts
+        List<Integer> unknown = new ArrayList<>();
+        lock.lock();
+        try {
+            for (int songId : deltas.keySet()) {
+                SongEntry song = songs.get(songId);
+                if (song == null || !artists.containsKey(song.artistId)) unknown.add(songId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Map<Integer, SongInfo> found;
+        try {
+            found = lookUp(unknown);
+        } catch (SQLException e) {
+            System.out.println("Charts: could not look up " + unknown.size() + " songs: " + e.getMessage());
+            found = Map.of();
+        }
+
+        lock.lock();
+        try {
+            Map<Integer, Long> artistDeltas = new HashMap<>();
+            Set<ArtistChart> touched = new HashSet<>();
+            for (Map.Entry<Integer, Long> d : deltas.entrySet()) {
+                SongEntry song = songs.get(d.getKey());
+                if (song != null) {
+                    grow(song, d.getValue());
+                } else {
+                    SongInfo info = found.get(d.getKey());
+                    if (info == null) continue; // deleted meanwhile
+                    song = new SongEntry(info.songId(), info.title(), info.artistId(), info.artist(), info.plays());
+                }
+                offer(song);
+                ArtistChart chart = artistCharts.get(song.artistId);
+                if (chart != null) touched.add(chart);
+                artistDeltas.merge(song.artistId, d.getValue(), Long::sum);
+            }
+
+            // Artists in the chart add the deltas; the others are ranked by their absolute total
+            Map<Integer, SongInfo> byArtist = new HashMap<>();
+            for (SongInfo info : found.values()) byArtist.put(info.artistId(), info);
+            for (Map.Entry<Integer, Long> d : artistDeltas.entrySet()) {
+                ArtistEntry artist = artists.get(d.getKey());
+                if (artist != null) {
+                    rankArtist(artist.artistId, artist.name, artist.plays + d.getValue());
+                } else {
+                    SongInfo info = byArtist.get(d.getKey());
+                    if (info != null) rankArtist(info.artistId(), info.artist(), info.artistPlays());
+                }
+            }
+
+            for (ArtistChart chart : touched) publishArtist(chart);
+            publishGlobal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Title or album changed: re-read the song, keep its count
+    public void songChanged(int songId) {
+        songsChanged(List.of(songId));
+    }
+
+    // Many songs edited at once: one lookup per 1000 songs, then the charts they left are refilled
+    public void songsChanged(Collection<Integer> songIds) {
+        try {
+            playCounts.withoutFlushing(() -> {
+                Map<Integer, SongInfo> found = lookUp(songIds);
+                lock.lock();
+                try {
+                    for (int songId : songIds) {
+                        SongEntry song = songs.get(songId);
+                        SongInfo info = found.get(songId);
+                        if (song != null && (info == null || info.artistId() != song.artistId)) {
+                            removeFromArtistChart(song);
+                            if (info == null) removeFromTop(song);
+                        }
+                        if (info == null) continue;
+                        if (song == null) {
+                            song = new SongEntry(songId, info.title(), info.artistId(), info.artist(), info.plays());
+                        } else {
+                            song.title = info.title();
+                            song.artistId = info.artistId();
+                            song.artist = info.artist();
+                        }
+                        offer(song);
+                        ArtistChart chart = artistCharts.get(song.artistId);
+                        if (chart != null) publishArtist(chart);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                refill(true);
+            });
+        } catch (SQLException e) {
+            System.out.println("Charts: could not update " + songIds.size() + " songs: " + e.getMessage());
+        }
+    }
+
+    public void songDeleted(int songId) {
+        try {
+            playCounts.withoutFlushing(() -> {
+                lock.lock();
+                try {
+                    SongEntry song = songs.get(songId);
+                    if (song != null) {
+                        removeFromArtistChart(song);
+                        removeFromTop(song);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                refill(true);
+            });
+        } catch (SQLException e) {
+            System.out.println("Charts: could not refill after deleting song " + songId + ": " + e.getMessage());
+        }
+    }
+
+    // The name is baked into published rows: republished in place, no database
+    public void artistRenamed(int artistId, String name) {
+        lock.lock();
+        try {
+            ArtistEntry artist = artists.get(artistId);
+            if (artist != null) artist.name = name;
+            for (SongEntry song : songs.values()) {
+                if (song.artistId == artistId) song.artist = name;
+            }
+            ArtistChart chart = artistCharts.get(artistId);
+            if (chart != null) publishArtist(chart);
+            publishGlobal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deleted (or soft-deleted) artist: its songs leave the charts now, even before a purge
+    public void artistRemoved(int artistId) {
+        try {
+            playCounts.withoutFlushing(() -> {
+                lock.lock();
+                try {
+                    ArtistEntry artist = artists.remove(artistId);
+                    if (artist != null) artistRanking.set.remove(artist);
+                    ArtistChart chart = artistCharts.get(artistId);
+                    if (chart != null) dropArtistChart(chart);
+                    for (SongEntry song : new ArrayList<>(songRanking.set)) {
+                        if (song.artistId == artistId) removeFromTop(song);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                refill(false);
+            });
+        } catch (SQLException e) {
+            System.out.println("Charts: could not refill after removing artist " + artistId + ": " + e.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------
+       REFILLS (caller runs them with no flush in progress)
+       --------------------------------------------------- */
+    // Reloads every chart that fell below K. artistTotals: a song moved or left,
+    // so artist totals may have dropped and the top artists are re-read as well.
+    private void refill(boolean artistTotals) throws SQLException {
+        List<Integer> shortCharts = new ArrayList<>();
+        boolean topSongsShort, topArtistsShort;
+        lock.lock();
+        try {
+            topSongsShort = songRanking.needsRefill(k);
+            topArtistsShort = artistTotals || artistRanking.needsRefill(k);
+            for (ArtistChart chart : artistCharts.values()) {
+                if (chart.songs.needsRefill(artistK)) shortCharts.add(chart.artistId);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<SongInfo> topRows = topSongsShort ? readSongs(TOP_SONGS_SQL, List.of(songRanking.capacity)) : null;
+        List<ArtistEntry> artistRows = topArtistsShort ? readTopArtists() : null;
+        lock.lock();
+        try {
+            if (topRows != null) fillTopSongs(topRows);
+            if (artistRows != null) fillTopArtists(artistRows);
+            publishGlobal();
+        } finally {
+            lock.unlock();
+        }
+        for (int artistId : shortCharts) loadArtistChart(artistId);
+    }
+
+    private void loadArtistChart(int artistId) throws SQLException {
+        ArtistChart chart = new ArtistChart(artistId, withHeadroom(artistK));
+        List<SongInfo> rows = readSongs(ARTIST_SONGS_SQL, List.of(artistId, chart.songs.capacity));
+
+        lock.lock();
+        try {
+            ArtistChart old = artistCharts.get(artistId);
+            if (old != null) dropArtistChart(old);
+            for (SongInfo row : rows) {
+                SongEntry song = tracked(row);
+                song.inArtistTop = true;
+                chart.songs.set.add(song);
+            }
+            chart.songs.complete = rows.size() < chart.songs.capacity;
+            publishArtist(chart);
+            artistCharts.put(artistId, chart);
+
+            if (artistCharts.size() > maxArtistCharts) {
+                ArtistChart eldest = null;
+                for (ArtistChart c : artistCharts.values()) {
+                    if (c != chart && (eldest == null || c.lastRead - eldest.lastRead < 0)) eldest = c;
+                }
+                if (eldest != null) dropArtistChart(eldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // SongID IN (...) per batch; songs of deleted artists are left out
+    private Map<Integer, SongInfo> lookUp(Collection<Integer> songIds) throws SQLException {
+        Map<Integer, SongInfo> found = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(songIds);
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH) {
+            List<Integer> batch = ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH));
+            String sql = SONG_SQL + "AND s.SongID IN (" + "?, ".repeat(batch.size() - 1) + "?)";
+            for (SongInfo info : readSongs(sql, batch)) found.put(info.songId(), info);
+        }
+        return found;
+    }
+
+    private List<SongInfo> readSongs(String sql, List<Integer> params) throws SQLException {
+        List<SongInfo> rows = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) ps.setInt(i + 1, params.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new SongInfo(rs.getInt(1), rs.getString(2), rs.getLong(3), rs.getInt(4),
+                            rs.getString(5), rs.getLong(6)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private List<ArtistEntry> readTopArtists() throws SQLException {
+        List<ArtistEntry> rows = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(TOP_ARTISTS_SQL)) {
+            ps.setInt(1, artistRanking.capacity);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows.add(new ArtistEntry(rs.getInt(1), rs.getString(2), rs.getLong(3)));
+            }
+        }
+        return rows;
+    }
+
+    /* ---------------------------------------------------
+       RANKING MAINTENANCE (caller holds lock)
+       --------------------------------------------------- */
+    // Adds plays to a song already in a chart, keeping its place in each chart that holds it
+    private void grow(SongEntry song, long delta) {
+        ArtistChart chart = song.inArtistTop ? artistCharts.get(song.artistId) : null;
+        if (song.inTop) songRanking.set.remove(song);
+        if (chart != null) chart.songs.set.remove(song);
+        song.plays += delta;
+        if (song.inTop) songRanking.set.add(song);
+        if (chart != null) chart.songs.set.add(song);
+    }
+
+    // Offers a song to the charts that do not hold it yet; whatever they push out is dropped
+    private void offer(SongEntry song) {
+        if (!song.inTop) {
+            SongEntry out = songRanking.offer(song);
+            song.inTop = out != song;
+            if (out != null && out != song) {
+                out.inTop = false;
+                untrackIfUnused(out);
+            }
+        }
+        ArtistChart chart = artistCharts.get(song.artistId);
+        if (chart != null && !song.inArtistTop) {
+            SongEntry out = chart.songs.offer(song);
+            song.inArtistTop = out != song;
+            if (out != null && out != song) {
+                out.inArtistTop = false;
+                untrackIfUnused(out);
+            }
+        }
+        if (song.inTop || song.inArtistTop) songs.put(song.songId, song);
+    }
+
+    // New total for an artist. A growing artist keeps its place; one that fell is
+    // offered again, since something outside may rank above it now.
+    private void rankArtist(int artistId, String name, long plays) {
+        ArtistEntry artist = artists.get(artistId);
+        boolean grew = artist != null && plays >= artist.plays;
+        if (artist != null) artistRanking.set.remove(artist);
+        else artist = new ArtistEntry(artistId, name, plays);
+        artist.name = name;
+        artist.plays = plays;
+
+        ArtistEntry out = null;
+        if (grew) artistRanking.set.add(artist);
+        else out = artistRanking.offer(artist);
+        if (out != artist) artists.put(artistId, artist);
+        if (out != null) artists.remove(out.artistId);
+    }
+
+    private void removeFromTop(SongEntry song) {
+        if (song.inTop) songRanking.set.remove(song);
+        song.inTop = false;
+        untrackIfUnused(song);
+    }
+
+    private void removeFromArtistChart(SongEntry song) {
+        ArtistChart chart = song.inArtistTop ? artistCharts.get(song.artistId) : null;
+        if (chart != null) {
+            chart.songs.set.remove(song);
+            publishArtist(chart);
+        }
+        song.inArtistTop = false;
+        untrackIfUnused(song);
+    }
+
+    private void dropArtistChart(ArtistChart chart) {
+        artistCharts.remove(chart.artistId, chart);
+        for (SongEntry song : chart.songs.set) {
+            song.inArtistTop = false;
+            untrackIfUnused(song);
+        }
+    }
+
+    private void untrackIfUnused(SongEntry song) {
+        if (!song.inTop && !song.inArtistTop) songs.remove(song.songId, song);
+    }
+
+    // The entry for a row just read; an existing one already has the same count (no flush ran since)
+    private SongEntry tracked(SongInfo row) {
+        SongEntry song = songs.get(row.songId());
+        if (song == null) {
+            song = new SongEntry(row.songId(), row.title(), row.artistId(), row.artist(), row.plays());
+            songs.put(song.songId, song);
+        }
+        return song;
+    }
+
+    private void fillTopSongs(List<SongInfo> rows) {
+        for (SongEntry song : songRanking.set) {
+            song.inTop = false;
+            untrackIfUnused(song);
+        }
+        songRanking.set.clear();
+        for (SongInfo row : rows) {
+            SongEntry song = tracked(row);
+            song.inTop = true;
+            songRanking.set.add(song);
+        }
+        songRanking.complete = rows.size() < songRanking.capacity;
+    }
+
+    private void fillTopArtists(List<ArtistEntry> rows) {
+        artists.clear();
+        artistRanking.set.clear();
+        for (ArtistEntry artist : rows) {
+            artists.put(artist.artistId, artist);
+            artistRanking.set.add(artist);
+        }
+        artistRanking.complete = rows.size() < artistRanking.capacity;
+    }
+
+    private void publishGlobal() {
+        List<SongRow> songRows = new ArrayList<>(k);
+        for (SongEntry e : songRanking.set) {
+            if (songRows.size() == k) break;
+            songRows.add(row(songRows.size() + 1, e));
+        }
+        List<ArtistRow> artistRows = new ArrayList<>(k);
+        for (ArtistEntry a : artistRanking.set) {
+            if (artistRows.size() == k) break;
+            artistRows.add(new ArtistRow(artistRows.size() + 1, a.artistId, a.name, a.plays));
+        }
+        topSongs = Collections.unmodifiableList(songRows);
+        topArtists = Collections.unmodifiableList(artistRows);
+    }
+
+    private void publishArtist(ArtistChart chart) {
+        List<SongRow> rows = new ArrayList<>(artistK);
+        for (SongEntry e : chart.songs.set) {
+            if (rows.size() == artistK) break;
+            rows.add(row(rows.size() + 1, e));
+        }
+        chart.top = Collections.unmodifiableList(rows);
+    }
+
+    private static SongRow row(int rank, SongEntry e) {
+        return new SongRow(rank, e.songId, e.title, e.artistId, e.artist, e.plays);
+    }
+
+    public String stats() {
+        lock.lock();
+        try {
+            return String.format("Charts: %d songs and %d artists held, %d artist charts loaded "
+                            + "(top %d global, top %d per artist, at most %d artist charts)",
+                    songs.size(), artists.size(), artistCharts.size(), k, artistK, maxArtistCharts);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
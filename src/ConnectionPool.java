@@ -0,0 +1,428 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+   JDBC CONNECTION POOL
+   Hands out proxied Connections; close() returns them to the pool.
+   --------------------------------------------------- */
+public class ConnectionPool implements AutoCloseable, ConnectionSource {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSec;
+    private final int reconnectAttempts;
+    private final long reconnectBackoffMs;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+
+    // Most recently returned connection is handed out first (warm socket, warm caches)
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Counters
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    // Last application write made by the current thread (ReadRouter keeps that thread's reads
+    // here for a while after it); an API request seeds it from what its client last wrote
+    private static final ThreadLocal<long[]> THREAD_LAST_WRITE = ThreadLocal.withInitial(() -> new long[1]);
+    private final List<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    // Told which tables a committed write changed; artistId narrows it to one artist's rows (null = any)
+    public interface WriteListener {
+        void tablesChanged(Integer artistId, String... tables);
+    }
+
+    public static ConnectionPool fromProperties(Properties props) throws SQLException {
+        return new ConnectionPool(
+                props.getProperty("db.url"),
+                props.getProperty("db.user"),
+                props.getProperty("db.password"),
+                intProp(props, "db.pool.minSize", 2),
+                intProp(props, "db.pool.maxSize", 10),
+                longProp(props, "db.pool.borrowTimeoutMs", 5000),
+                longProp(props, "db.pool.idleTimeoutMs", 300_000),
+                longProp(props, "db.pool.evictionIntervalMs", 30_000),
+                longProp(props, "db.pool.validationIntervalMs", 500),
+                intProp(props, "db.pool.validationTimeoutSec", 2),
+                intProp(props, "db.pool.reconnectAttempts", 3),
+                longProp(props, "db.pool.reconnectBackoffMs", 500),
+                intProp(props, "db.statementCache.size", 64));
+    }
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, long evictionIntervalMs,
+                          long validationIntervalMs, int validationTimeoutSec,
+                          int reconnectAttempts, long reconnectBackoffMs,
+                          int statementCacheSize) throws SQLException {
+        if (url == null) throw new SQLException("db.url is not set");
+        if (maxSize < 1) throw new SQLException("db.pool.maxSize must be >= 1");
+
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = Math.max(0, Math.min(minSize, maxSize));
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.reconnectAttempts = Math.max(1, reconnectAttempts);
+        this.reconnectBackoffMs = reconnectBackoffMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Fail fast: open the minimum number of connections up front
+        try {
+            for (int i = 0; i < Math.max(1, this.minSize); i++) {
+                idle.offerLast(newEntry());
+            }
+        } catch (SQLException e) {
+            closeIdle();
+            throw e;
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle,
+                evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /* ---------------------------------------------------
+       BORROW / RETURN
+       --------------------------------------------------- */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed.");
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMs
+                        + " ms waiting for a pooled connection (maxSize=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) break;
+                discard(entry);
+            }
+            if (entry == null) entry = newEntry();
+
+            borrows.incrementAndGet();
+            return entry.checkout(this);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        try {
+            entry.statements.reclaimLeaks();
+
+            if (closed || entry.broken || entry.physical.isClosed()) {
+                discard(entry);
+                return;
+            }
+
+            // Leave no transaction or session state behind for the next borrower
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (entry.physical.isReadOnly()) entry.physical.setReadOnly(false);
+            entry.physical.clearWarnings();
+
+            entry.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastUsed < validationIntervalMs) return true;
+
+        try {
+            return entry.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /* ---------------------------------------------------
+       CREATE / RECONNECT / DISCARD
+       --------------------------------------------------- */
+    private PooledEntry newEntry() throws SQLException {
+        SQLException last = null;
+
+        for (int attempt = 1; attempt <= reconnectAttempts; attempt++) {
+            try {
+                Connection physical = DriverManager.getConnection(url, user, password);
+                total.incrementAndGet();
+                created.incrementAndGet();
+                if (attempt > 1) reconnects.incrementAndGet();
+                return new PooledEntry(physical, new StatementCache(statementCacheSize, statementStats));
+            } catch (SQLException e) {
+                last = e;
+                if (attempt < reconnectAttempts) sleepQuietly(reconnectBackoffMs * attempt);
+            }
+        }
+        throw last;
+    }
+
+    private void discard(PooledEntry entry) {
+        discarded.incrementAndGet();
+        total.decrementAndGet();
+        entry.statements.closeAll();
+        try { entry.physical.close(); } catch (SQLException ignored) {}
+    }
+
+    private void evictIdle() {
+        if (closed) return;
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledEntry> it = idle.descendingIterator(); // oldest first
+        while (it.hasNext() && total.get() > minSize) {
+            PooledEntry entry = it.next();
+            if (now - entry.lastUsed > idleTimeoutMs && idle.remove(entry)) {
+                evicted.incrementAndGet();
+                discard(entry);
+            }
+        }
+
+        // Drop dead idle connections and refill to minSize, so a DB restart heals in the background.
+        // One entry at a time is taken out while it is checked, under a permit of its own, so a
+        // borrower never finds the deque emptied by the check and opens a connection past maxSize.
+        // Newest first, each put back at the oldest end: the deque keeps its order.
+        for (PooledEntry entry : new ArrayList<>(idle)) {
+            if (closed || !permits.tryAcquire()) break; // every slot busy: nothing idle to check
+            try {
+                if (!idle.remove(entry)) continue; // borrowed meanwhile
+                if (isUsable(entry)) idle.offerLast(entry);
+                else discard(entry);
+            } finally {
+                permits.release();
+            }
+        }
+        while (!closed && total.get() < minSize) {
+            try {
+                idle.offerLast(newEntry());
+            } catch (SQLException e) {
+                break; // try again on the next run
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) discard(entry);
+    }
+
+    public String stats() {
+        int idleCount = idle.size();
+        return String.format("Pool: total=%d idle=%d active=%d (min=%d max=%d) | borrows=%d timeouts=%d "
+                        + "created=%d evicted=%d discarded=%d reconnects=%d",
+                total.get(), idleCount, maxSize - permits.availablePermits(), minSize, maxSize,
+                borrows.get(), timeouts.get(), created.get(), evicted.get(), discarded.get(), reconnects.get());
+    }
+
+    public void addWriteListener(WriteListener listener) {
+        writeListeners.add(listener);
+    }
+
+    // Call once a user-visible write has committed; background upkeep (purge chunks) calls
+    // changed() instead, so it never pins reads to the primary. Play-count flushes call neither.
+    public void wrote(Integer artistId, String... tables) {
+        THREAD_LAST_WRITE.get()[0] = System.currentTimeMillis();
+        changed(artistId, tables);
+    }
+
+    public void changed(Integer artistId, String... tables) {
+        for (WriteListener l : writeListeners) l.tablesChanged(artistId, tables);
+    }
+
+    public static long lastWriteOnThisThread() {
+        return THREAD_LAST_WRITE.get()[0];
+    }
+
+    public static void lastWriteOnThisThread(long millis) {
+        THREAD_LAST_WRITE.get()[0] = millis;
+    }
+
+    public StatementCache.Stats statementStats() {
+        return statementStats;
+    }
+
+    /* ---------------------------------------------------
+       POOLED CONNECTION PROXY
+       --------------------------------------------------- */
+    private static final class PooledEntry {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile boolean broken;
+
+        PooledEntry(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+
+        Connection checkout(ConnectionPool pool) {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(pool, this));
+        }
+    }
+
+    private static final class Handle implements InvocationHandler {
+        private final ConnectionPool pool;
+        private final PooledEntry entry;
+        private boolean returned;
+
+        Handle(ConnectionPool pool, PooledEntry entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        pool.release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + entry.physical;
+                default:
+                    break;
+            }
+
+            if (returned) throw new SQLException("Connection has already been returned to the pool.");
+
+            // Statements are served from this connection's cache and go back to it on close()
+            if (method.getName().equals("prepareStatement")) {
+                return entry.statements.prepare((Connection) proxy, args,
+                        () -> (PreparedStatement) call(method, args));
+            }
+
+            return call(method, args);
+        }
+
+        private Object call(Method method, Object[] args) throws SQLException {
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQLState class 08 = connection exception; never hand this socket out again
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (cause instanceof SQLRecoverableException || (state != null && state.startsWith("08"))) {
+                        entry.broken = true;
+                    }
+                    throw (SQLException) cause;
+                }
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new SQLException(cause);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       Helper Functions
+       --------------------------------------------------- */
+    static int intProp(Properties props, String key, int def) {
+        String v = props.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid value for " + key + ": " + v + " (using " + def + ")");
+            return def;
+        }
+    }
+
+    static long longProp(Properties props, String key, long def) {
+        String v = props.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid value for " + key + ": " + v + " (using " + def + ")");
+            return def;
+        }
+    }
+
+    static double doubleProp(Properties props, String key, double def) {
+        String v = props.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Double.parseDouble(v.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid value for " + key + ": " + v + " (using " + def + ")");
+            return def;
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
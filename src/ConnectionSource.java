@@ -0,0 +1,11 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/* ---------------------------------------------------
+   CONNECTION SOURCE
+   Where read-only code borrows a connection: the primary ConnectionPool,
+   or a ReadRouter that may hand out a replica's. close() gives it back.
+   --------------------------------------------------- */
+public interface ConnectionSource {
+    Connection getConnection() throws SQLException;
+}
@@ -0,0 +1,170 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+   DASHBOARD (reports in parallel)
+   Every report runs on its own thread with its own pooled connection and
+   a query timeout; panels are handed back in completion order, so the
+   whole dashboard takes about as long as its slowest report.
+   With a ReportCache, panels still fresh in it cost no query at all.
+   Virtual threads are used when the JVM has them (Java 21+).
+   --------------------------------------------------- */
+public class Dashboard {
+
+    // A finished report: rows (capped at MAX_ROWS), or an error message; ageMs is -1 unless cached
+    public record Panel(Reports.Report report, String[] columns, List<Object[]> rows, boolean truncated,
+                        double ms, long ageMs, String error) {
+    }
+
+    public record Summary(int completed, int failed, int cancelled, double wallMs, double sumMs, String threads) {
+        @Override
+        public String toString() {
+            return String.format("Dashboard: %d ok, %d failed, %d cancelled in %.1f ms on %s "
+                            + "(the same queries one after another: ~%.1f ms)",
+                    completed, failed, cancelled, wallMs, threads, sumMs);
+        }
+    }
+
+    public static final int MAX_ROWS = TablePrinter.SAMPLE_ROWS;
+
+    private final ConnectionSource pool;
+    private final int queryTimeoutSec;
+    private final ReportCache cache; // may be null
+
+    // Statements currently executing, so an abort can cancel them on the server
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean aborted;
+
+    public Dashboard(ConnectionSource pool, int queryTimeoutSec, ReportCache cache) {
+        this.pool = pool;
+        this.queryTimeoutSec = Math.max(0, queryTimeoutSec);
+        this.cache = cache;
+    }
+
+    // Calls onPanel on the caller's thread as each report finishes. abortRequested is polled
+    // while waiting; once it returns true the remaining reports are cancelled.
+    public Summary run(List<Reports.Report> reports, Consumer<Panel> onPanel, BooleanSupplier abortRequested)
+            throws InterruptedException {
+        aborted = false;
+        long start = System.nanoTime();
+        int completed = 0, failed = 0;
+        double sumMs = 0;
+
+        String threads = VirtualThreads.available() ? "virtual threads" : "platform threads";
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("dashboard-report", reports.size());
+        try {
+            CompletionService<Panel> done = new ExecutorCompletionService<>(executor);
+            List<Future<Panel>> futures = new ArrayList<>();
+            for (Reports.Report report : reports) futures.add(done.submit(() -> load(report)));
+
+            for (int remaining = reports.size(); remaining > 0 && !aborted; ) {
+                Future<Panel> next = done.poll(100, TimeUnit.MILLISECONDS);
+                if (next == null) {
+                    if (abortRequested.getAsBoolean()) abort(futures);
+                    continue;
+                }
+                remaining--;
+
+                Panel panel;
+                try {
+                    panel = next.get();
+                } catch (ExecutionException e) {
+                    continue; // load() reports its own errors; nothing else throws
+                }
+                if (panel.error() == null) completed++;
+                else failed++;
+                sumMs += panel.ms();
+                onPanel.accept(panel);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int cancelled = reports.size() - completed - failed;
+        return new Summary(completed, failed, cancelled, (System.nanoTime() - start) / 1e6, sumMs, threads);
+    }
+
+    private void abort(List<Future<Panel>> futures) {
+        aborted = true;
+        for (Future<Panel> f : futures) f.cancel(true);
+        // Interrupting a thread does not stop a query; KILL QUERY does
+        for (Statement st : running) {
+            try {
+                st.cancel();
+            } catch (SQLException e) {
+                // already finished
+            }
+        }
+    }
+
+    private Panel load(Reports.Report report) {
+        long start = System.nanoTime();
+        ReportCache.Result cached = cache == null ? null : cache.get(report, null);
+        if (cached != null) {
+            List<Object[]> rows = cached.rows();
+            boolean truncated = rows.size() > MAX_ROWS;
+            return new Panel(report, cached.columns(), truncated ? rows.subList(0, MAX_ROWS) : rows, truncated,
+                    (System.nanoTime() - start) / 1e6, cached.ageMs(), null);
+        }
+        ReportCache.Capture capture = cache == null ? null : cache.capture(report, null);
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(report.sql)) {
+            running.add(ps);
+            try {
+                if (aborted) return failed(report, start, "cancelled");
+                ps.setQueryTimeout(queryTimeoutSec);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData md = rs.getMetaData();
+                    String[] columns = new String[md.getColumnCount()];
+                    for (int i = 0; i < columns.length; i++) columns[i] = md.getColumnLabel(i + 1);
+
+                    // Past MAX_ROWS keep reading only while the cache still takes the result
+                    List<Object[]> rows = new ArrayList<>();
+                    boolean truncated = false;
+                    while (rs.next()) {
+                        if (capture != null) capture.onRow(rs);
+                        if (rows.size() == MAX_ROWS) {
+                            truncated = true;
+                            if (capture == null || !capture.wantsRows()) break;
+                            continue;
+                        }
+                        Object[] row = new Object[columns.length];
+                        for (int i = 0; i < row.length; i++) row[i] = rs.getObject(i + 1);
+                        rows.add(row);
+                    }
+                    if (capture != null) capture.done(rs); // no-op once it gave up
+                    return new Panel(report, columns, rows, truncated, (System.nanoTime() - start) / 1e6, -1, null);
+                }
+            } finally {
+                running.remove(ps);
+            }
+        } catch (SQLTimeoutException e) {
+            return failed(report, start, "timed out after " + queryTimeoutSec + " s");
+        } catch (SQLException e) {
+            return failed(report, start, aborted ? "cancelled" : e.getMessage());
+        }
+    }
+
+    private static Panel failed(Reports.Report report, long startNanos, String error) {
+        return new Panel(report, new String[0], List.of(), false, (System.nanoTime() - startNanos) / 1e6, -1, error);
+    }
+}
@@ -0,0 +1,243 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/* ---------------------------------------------------
+   SYNTHETIC DATA GENERATOR
+   Appends N users, artists, albums, songs, playlists and playlist
+   entries after the current MAX(ID) of each table, using explicit IDs
+   so every foreign key points at a row generated (or, when a parent
+   count is 0, already there) before it. Each table draws from its own Random(seed ^ salt): the
+   same seed and counts on the same starting data give the same rows,
+   and changing one count leaves the other tables' values unchanged.
+     - TimesPlayed is Zipfian: a random rank r in 1..N gets
+       maxPlays / r^s plays, so a few songs hold most of the plays.
+     - Playlist sizes are Pareto (long tail), capped at maxPlaylistSize.
+     - ReleaseDate is 1960-01-01..2024-12-31, never in the future.
+   Rows go in as multi-row INSERTs of rowsPerStatement rows, committed
+   every commitEvery rows. Constraints and triggers stay on.
+   --------------------------------------------------- */
+public class DataGenerator {
+
+    public record Spec(long seed, int users, int artists, int albums, int songs, int playlists) {
+    }
+
+    public static final class Result {
+        final List<String> lines = new ArrayList<>();
+        long rows;
+        long nanos;
+
+        void add(String table, long tableRows, long startNanos) {
+            double secs = (System.nanoTime() - startNanos) / 1e9;
+            lines.add(String.format("  %-12s %,12d rows in %7.2f s (%.0f rows/sec)",
+                    table, tableRows, secs, secs > 0 ? tableRows / secs : 0.0));
+            rows += tableRows;
+        }
+
+        @Override
+        public String toString() {
+            double secs = nanos / 1e9;
+            return String.join("\n", lines) + String.format("%nGenerated %d rows in %.2f s (%.0f rows/sec)",
+                    rows, secs, secs > 0 ? rows / secs : 0.0);
+        }
+    }
+
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(1960, 1, 1);
+    private static final LocalDate LAST_RELEASE = LocalDate.of(2024, 12, 31);
+    private static final double PLAYLIST_ALPHA = 1.2; // Pareto shape: smaller = longer tail
+    private static final LocalDateTime FIRST_PLAYLIST = LocalDateTime.of(2015, 1, 1, 0, 0);
+
+    private static final String[] GENRES = {"Pop", "Rock", "Hip-Hop", "R&B", "Electronic", "Jazz",
+            "Country", "Classical", "Alternative", "Latin", "Metal", "Folk"};
+    private static final String[] COUNTRIES = {"USA", "UK", "Canada", "Australia", "Germany", "France",
+            "Japan", "South Korea", "Brazil", "Mexico", "Sweden", "Nigeria"};
+    private static final String[] WORDS = {"Midnight", "Echo", "Golden", "River", "Neon", "Summer", "Ghost",
+            "Paper", "Electric", "Silent", "Wild", "Blue", "Fire", "Heart", "City", "Dream", "Velvet",
+            "Storm", "Glass", "Sugar", "Highway", "Moon", "Static", "Honey"};
+
+    private final ConnectionPool pool;
+    private final int rowsPerStatement;
+    private final int commitEvery;
+    private final double zipfExponent;
+    private final int maxPlays;
+    private final int maxPlaylistSize;
+
+    public DataGenerator(ConnectionPool pool, int rowsPerStatement, int commitEvery,
+                         double zipfExponent, int maxPlays, int maxPlaylistSize) {
+        this.pool = pool;
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        this.commitEvery = Math.max(this.rowsPerStatement, commitEvery);
+        this.zipfExponent = zipfExponent;
+        this.maxPlays = Math.max(0, maxPlays);
+        this.maxPlaylistSize = Math.max(1, maxPlaylistSize);
+    }
+
+    public Result generate(Spec spec) throws SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection()) {
+            int userBase = maxId(conn, "`User`", "UserID");
+            int artistBase = maxId(conn, "Artist", "ArtistID");
+            int albumBase = maxId(conn, "Album", "AlbumID");
+            int songBase = maxId(conn, "Song", "SongID");
+            int playlistBase = maxId(conn, "Playlist", "PlaylistID");
+
+            // Children point at the new parents, or at existing rows when none are generated
+            Ids userIds = parents(conn, "`User` WHERE DeletedAt IS NULL", "UserID", userBase, spec.users());
+            Ids artistIds = parents(conn, "Artist WHERE DeletedAt IS NULL", "ArtistID", artistBase, spec.artists());
+            Ids albumIds = parents(conn, "Album", "AlbumID", albumBase, spec.albums());
+            Ids songIds = parents(conn, "Song", "SongID", songBase, spec.songs());
+            if (spec.albums() > 0 && artistIds.size() == 0) throw new IllegalArgumentException("Albums need at least one artist");
+            if (spec.songs() > 0 && albumIds.size() == 0) throw new IllegalArgumentException("Songs need at least one album");
+            if (spec.playlists() > 0 && userIds.size() == 0) throw new IllegalArgumentException("Playlists need at least one user");
+
+            boolean oldAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                // Users
+                Random rnd = new Random(spec.seed() ^ 0x55534552L);
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "`User`", rowsPerStatement, commitEvery, true,
+                        "UserID", "Username", "Password")) {
+                    for (int i = 1; i <= spec.users(); i++) {
+                        int id = userBase + i;
+                        ins.add(id, "gen_user_" + id, Long.toHexString(rnd.nextLong()));
+                    }
+                    result.add("User", ins.finish(), ins.startNanos);
+                }
+
+                // Artists: the first ones belong to the new users, one each
+                rnd = new Random(spec.seed() ^ 0x415254L);
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "Artist", rowsPerStatement, commitEvery, true,
+                        "ArtistID", "Name", "Genre", "Country", "UserID")) {
+                    for (int i = 1; i <= spec.artists(); i++) {
+                        int id = artistBase + i;
+                        ins.add(id, words(rnd, 2) + " " + id, pick(rnd, GENRES), pick(rnd, COUNTRIES),
+                                i <= spec.users() ? userBase + i : null);
+                    }
+                    result.add("Artist", ins.finish(), ins.startNanos);
+                }
+
+                // Albums
+                rnd = new Random(spec.seed() ^ 0x414C42L);
+                int releaseDays = (int) (LAST_RELEASE.toEpochDay() - FIRST_RELEASE.toEpochDay()) + 1;
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "Album", rowsPerStatement, commitEvery, true,
+                        "AlbumID", "Title", "ReleaseDate", "ArtistID")) {
+                    for (int i = 1; i <= spec.albums(); i++) {
+                        ins.add(albumBase + i, words(rnd, 1 + rnd.nextInt(3)),
+                                java.sql.Date.valueOf(FIRST_RELEASE.plusDays(rnd.nextInt(releaseDays))),
+                                artistIds.pick(rnd));
+                    }
+                    result.add("Album", ins.finish(), ins.startNanos);
+                }
+
+                // Songs: Zipfian play counts, ~3.5 min durations
+                rnd = new Random(spec.seed() ^ 0x534F4EL);
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "Song", rowsPerStatement, commitEvery, true,
+                        "SongID", "Title", "Duration", "AlbumID", "TimesPlayed")) {
+                    for (int i = 1; i <= spec.songs(); i++) {
+                        int duration = (int) Math.max(30, Math.round(210 + 60 * rnd.nextGaussian()));
+                        int rank = 1 + rnd.nextInt(spec.songs());
+                        int plays = (int) (maxPlays / Math.pow(rank, zipfExponent));
+                        ins.add(songBase + i, words(rnd, 1 + rnd.nextInt(3)), duration,
+                                albumIds.pick(rnd), plays);
+                    }
+                    result.add("Song", ins.finish(), ins.startNanos);
+                }
+
+                // Playlists
+                rnd = new Random(spec.seed() ^ 0x504C59L);
+                int playlistSeconds = (int) java.time.Duration.between(FIRST_PLAYLIST, LAST_RELEASE.atStartOfDay()).getSeconds();
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "Playlist", rowsPerStatement, commitEvery, true,
+                        "PlaylistID", "Title", "UserID", "CreatedAt")) {
+                    for (int i = 1; i <= spec.playlists(); i++) {
+                        ins.add(playlistBase + i, words(rnd, 2), userIds.pick(rnd),
+                                Timestamp.valueOf(FIRST_PLAYLIST.plusSeconds(rnd.nextInt(playlistSeconds))));
+                    }
+                    result.add("Playlist", ins.finish(), ins.startNanos);
+                }
+
+                // Playlist entries: Pareto sizes (most playlists short, a few huge), distinct songs
+                rnd = new Random(spec.seed() ^ 0x504C53L);
+                int sizeCap = Math.min(maxPlaylistSize, songIds.size());
+                try (MultiRowInsert ins = new MultiRowInsert(conn, "PlaylistSong", rowsPerStatement, commitEvery, true,
+                        "PlaylistID", "SongID", "Position")) {
+                    Set<Integer> picked = new HashSet<>();
+                    for (int i = 1; songIds.size() > 0 && i <= spec.playlists(); i++) {
+                        int size = (int) Math.min(sizeCap, Math.floor(2 / Math.pow(1 - rnd.nextDouble(), 1 / PLAYLIST_ALPHA)) - 1);
+                        picked.clear();
+                        for (int pos = 1; pos <= size; pos++) {
+                            int songId;
+                            do {
+                                songId = songIds.pick(rnd);
+                            } while (!picked.add(songId));
+                            ins.add(playlistBase + i, songId, pos * Playlists.STEP);
+                        }
+                    }
+                    result.add("PlaylistSong", ins.finish(), ins.startNanos);
+                }
+
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(); // only the rows since the last periodic commit
+                throw e;
+            } finally {
+                conn.setAutoCommit(oldAutoCommit);
+                pool.wrote(null, "User", "Artist", "Album", "Song", "Playlist"); // periodic commits may have landed either way
+            }
+        }
+
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static int maxId(Connection conn, String table, String idColumn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // IDs base+1..base+count, or the existing ones (may have gaps) when count is 0
+    private record Ids(int base, int count, int[] existing) {
+        int size() {
+            return existing != null ? existing.length : count;
+        }
+
+        int pick(Random rnd) {
+            return existing != null ? existing[rnd.nextInt(existing.length)] : base + 1 + rnd.nextInt(count);
+        }
+    }
+
+    // from is a table, optionally with a WHERE clause
+    private static Ids parents(Connection conn, String from, String idColumn, int base, int count) throws SQLException {
+        if (count > 0) return new Ids(base, count, null);
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + idColumn + " FROM " + from + " ORDER BY " + idColumn)) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return new Ids(base, 0, ids.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static String pick(Random rnd, String[] values) {
+        return values[rnd.nextInt(values.length)];
+    }
+
+    private static String words(Random rnd, int n) {
+        StringBuilder sb = new StringBuilder(pick(rnd, WORDS));
+        for (int i = 1; i < n; i++) sb.append(' ').append(pick(rnd, WORDS));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/* ---------------------------------------------------
+   READ-THROUGH ENTITY CACHE
+   LRU by size, entries expire after a TTL. A miss calls the loader;
+   writers must invalidate what they change (nothing is detected).
+   --------------------------------------------------- */
+public class EntityCache<K, V> {
+
+    public interface Loader<K, V> {
+        // Returns null when the row does not exist (misses are not cached)
+        V load(K key) throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Loader<K, V> loader;
+    private final LinkedHashMap<K, Entry<V>> map;
+    private long generation; // bumped by every put and invalidation, so a load that raced one is not stored
+
+    // Counters
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public EntityCache(String name, int maxEntries, long ttlMs, Loader<K, V> loader) {
+        this.name = name;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.loader = loader;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= EntityCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public V get(K key) throws SQLException {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> e = map.get(key);
+            if (e != null) {
+                if (System.nanoTime() - e.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return e.value;
+                }
+                map.remove(key);
+                expirations.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        // Load outside the lock; two racing misses both hit the database. A write since the
+        // miss may be newer than what was read, so the result is then returned but not kept.
+        V value = loader.load(key);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) store(key, value);
+            }
+        }
+        return value;
+    }
+
+    // The cached value if present and fresh; never loads, counts no hit or miss
+    public synchronized V peek(K key) {
+        Entry<V> e = map.get(key);
+        return e != null && System.nanoTime() - e.expiresAt < 0 ? e.value : null;
+    }
+
+    public synchronized void put(K key, V value) {
+        generation++;
+        store(key, value);
+    }
+
+    private void store(K key, V value) {
+        if (maxEntries == 0) return;
+        map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    /* ---------------------------------------------------
+       INVALIDATION
+       --------------------------------------------------- */
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (map.remove(key) != null) invalidations.incrementAndGet();
+    }
+
+    // Drops every cached value matching the predicate (cascades to dependent rows)
+    public synchronized void invalidateIf(Predicate<V> matches) {
+        generation++;
+        Iterator<Entry<V>> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (matches.test(it.next().value)) {
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.addAndGet(map.size());
+        map.clear();
+    }
+
+    /* ---------------------------------------------------
+       STATS
+       --------------------------------------------------- */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.get(), m = misses.get();
+        return String.format("%-7s size=%d/%d | hits=%d misses=%d (hit rate %.1f%%) evictions=%d expired=%d invalidated=%d",
+                name, size(), maxEntries, h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m),
+                evictions.get(), expirations.get(), invalidations.get());
+    }
+}
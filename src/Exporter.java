@@ -0,0 +1,256 @@
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/* ---------------------------------------------------
+   STREAMING EXPORT (CSV / JSON Lines)
+   Any table or view of the schema, read with a streaming ResultSet and
+   written through one large buffer, so memory stays flat whatever the
+   row count. Optionally gzip-compressed and split into files of about
+   maxFileBytes each (CSV parts repeat the header).
+   CSV follows what BulkImporter reads back: NULL is an empty unquoted
+   field, an empty string is "".
+   --------------------------------------------------- */
+public class Exporter {
+
+    public enum Format { CSV, JSONL }
+
+    public static final class Result {
+        long rows;
+        long rawBytes;   // encoded rows before compression
+        long fileBytes;  // what reached the disk
+        long nanos;
+        long heapUsedBytes;
+        final List<Path> files = new ArrayList<>();
+
+        public List<Path> files() { return files; }
+
+        @Override
+        public String toString() {
+            double secs = nanos / 1e9;
+            return String.format("Exported %d rows to %d file(s) in %.2f s: %.0f rows/sec, %.1f MB/s "
+                            + "(%.1f MB written%s) | heap in use at end %.1f MB%n  %s",
+                    rows, files.size(), secs, secs > 0 ? rows / secs : 0.0,
+                    secs > 0 ? rawBytes / 1e6 / secs : 0.0, fileBytes / 1e6,
+                    fileBytes != rawBytes ? String.format(", %.1f MB before gzip", rawBytes / 1e6) : "",
+                    heapUsedBytes / 1e6, files.size() == 1 ? files.get(0) : files.get(0) + " ... " + files.get(files.size() - 1));
+        }
+    }
+
+    // Counts bytes on their way to the file (under gzip, so the split size is the on-disk size)
+    private static final class CountingStream extends FilterOutputStream {
+        long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private final ConnectionSource pool;
+    private final int bufferBytes;
+
+    public Exporter(ConnectionSource pool, int bufferBytes) {
+        this.pool = pool;
+        this.bufferBytes = Math.max(8192, bufferBytes);
+    }
+
+    // Exact table/view name as the schema spells it, or null
+    public String canonicalTable(String name) throws SQLException {
+        String sql = "SELECT TABLE_NAME FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    // Writes <outputBase>.csv|.jsonl[.gz], or <outputBase>-00001... when maxFileBytes > 0
+    public Result export(String table, Format format, boolean gzip, long maxFileBytes, String outputBase)
+            throws IOException, SQLException {
+        String canonical = canonicalTable(table);
+        if (canonical == null) throw new IllegalArgumentException("No table or view named " + table);
+
+        String extension = (format == Format.CSV ? ".csv" : ".jsonl") + (gzip ? ".gz" : "");
+        Path parent = Path.of(outputBase).toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM `" + canonical + "`",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE); // row-by-row from the server
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                int cols = md.getColumnCount();
+                String[] names = new String[cols];
+                boolean[] numeric = new boolean[cols];
+                for (int i = 0; i < cols; i++) {
+                    names[i] = md.getColumnLabel(i + 1);
+                    numeric[i] = isNumeric(md.getColumnType(i + 1));
+                }
+                byte[] header = format == Format.CSV ? csvHeader(names) : new byte[0];
+
+                StringBuilder line = new StringBuilder(256);
+                CountingStream counter = null;
+                OutputStream out = null;
+                try {
+                    while (rs.next()) {
+                        if (out == null || (maxFileBytes > 0 && counter.count >= maxFileBytes)) {
+                            if (out != null) {
+                                out.close();
+                                result.fileBytes += counter.count;
+                            }
+                            Path file = Path.of(maxFileBytes > 0
+                                    ? String.format("%s-%05d%s", outputBase, result.files.size() + 1, extension)
+                                    : outputBase + extension);
+                            counter = new CountingStream(Files.newOutputStream(file));
+                            out = gzip
+                                    ? new BufferedOutputStream(new GZIPOutputStream(counter, bufferBytes), bufferBytes)
+                                    : new BufferedOutputStream(counter, bufferBytes);
+                            result.files.add(file);
+                            out.write(header);
+                            result.rawBytes += header.length;
+                        }
+
+                        line.setLength(0);
+                        if (format == Format.CSV) appendCsv(line, rs, cols);
+                        else appendJson(line, rs, names, numeric);
+                        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                        out.write(bytes);
+                        result.rawBytes += bytes.length;
+                        result.rows++;
+                    }
+                } finally {
+                    if (out != null) {
+                        out.close();
+                        result.fileBytes += counter.count;
+                    }
+                }
+
+                // An empty table still gets its (header-only) file
+                if (result.files.isEmpty()) {
+                    Path file = Path.of(maxFileBytes > 0 ? String.format("%s-%05d%s", outputBase, 1, extension)
+                            : outputBase + extension);
+                    counter = new CountingStream(Files.newOutputStream(file));
+                    try (OutputStream empty = gzip ? new GZIPOutputStream(counter) : counter) {
+                        empty.write(header);
+                    }
+                    result.files.add(file);
+                    result.rawBytes += header.length;
+                    result.fileBytes += counter.count;
+                }
+            }
+        }
+
+        result.nanos = System.nanoTime() - start;
+        Runtime rt = Runtime.getRuntime();
+        result.heapUsedBytes = rt.totalMemory() - rt.freeMemory();
+        return result;
+    }
+
+    private static boolean isNumeric(int type) {
+        switch (type) {
+            case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER: case Types.BIGINT:
+            case Types.DECIMAL: case Types.NUMERIC: case Types.REAL: case Types.FLOAT: case Types.DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static byte[] csvHeader(String[] names) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) sb.append(',');
+            appendCsvField(sb, names[i]);
+        }
+        return sb.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendCsv(StringBuilder sb, ResultSet rs, int cols) throws SQLException {
+        for (int i = 1; i <= cols; i++) {
+            if (i > 1) sb.append(',');
+            String v = rs.getString(i);
+            if (v != null) appendCsvField(sb, v);
+        }
+        sb.append('\n');
+    }
+
+    private static void appendCsvField(StringBuilder sb, String v) {
+        if (!v.isEmpty() && v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0 && v.indexOf('\r') < 0) {
+            sb.append(v);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static void appendJson(StringBuilder sb, ResultSet rs, String[] names, boolean[] numeric)
+            throws SQLException {
+        sb.append('{');
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) sb.append(',');
+            appendJsonString(sb, names[i]);
+            sb.append(':');
+            String v = rs.getString(i + 1);
+            if (v == null) sb.append("null");
+            else if (numeric[i]) sb.append(v);
+            else appendJsonString(sb, v);
+        }
+        sb.append("}\n");
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,566 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/* ---------------------------------------------------
+   INDEX ADVISOR
+   Collects the SQL the application issues (statements prepared this
+   session, string literals in src/*.java, statements in sql/**.sql),
+   EXPLAINs each one and flags full scans, filesorts and temporary
+   tables. For a flagged table it proposes an index built from the
+   query's equality filters, then its ORDER BY / range column, and
+   estimates how many rows that index would save.
+   --------------------------------------------------- */
+public class IndexAdvisor {
+
+    // One statement to check and where it came from
+    static final class Query {
+        final String sql;
+        final List<String> sources = new ArrayList<>();
+
+        Query(String sql, String source) {
+            this.sql = sql;
+            sources.add(source);
+        }
+    }
+
+    // One row of EXPLAIN output
+    private static final class PlanRow {
+        int id;
+        String table;
+        String type;
+        String key;
+        long rows;
+        String extra;
+    }
+
+    private static final class Proposal {
+        String table;
+        List<String> columns;
+        long before;
+        long after;
+        boolean guessed;
+        final List<String> sources = new ArrayList<>();
+
+        String ddl() {
+            String name = "idx_" + table + "_" + String.join("_", columns);
+            return "CREATE INDEX " + name.toLowerCase(Locale.ROOT) + " ON `" + table + "`("
+                    + String.join(", ", columns) + ");";
+        }
+    }
+
+    private static final Pattern TABLE_REF = Pattern.compile(
+            "(?i)\\b(?:FROM|JOIN|UPDATE)\\s+`?(\\w+)`?(?:\\s+(?:AS\\s+)?`?(\\w+)`?)?");
+    private static final String COL = "(?:`?(\\w+)`?\\.)?`?([A-Za-z_]\\w*)`?";
+    private static final Pattern PREDICATE = Pattern.compile(
+            "(?i)" + COL + "\\s*(<=>|>=|<=|<>|!=|=|<|>|\\bLIKE\\b|\\bIN\\b|\\bBETWEEN\\b)\\s*(?:" + COL + ")?");
+    private static final Pattern ORDER_BY = Pattern.compile("(?is)\\bORDER\\s+BY\\s+(.*?)(?:\\bLIMIT\\b|$)");
+    private static final Pattern GROUP_BY = Pattern.compile(
+            "(?is)\\bGROUP\\s+BY\\s+(.*?)(?:\\bHAVING\\b|\\bORDER\\b|\\bLIMIT\\b|\\)|$)");
+    private static final Pattern LIMIT = Pattern.compile("(?i)\\bLIMIT\\s+(\\d+)(?:\\s*,\\s*(\\d+))?");
+    private static final Pattern ANALYZE_ROOT = Pattern.compile("actual time=[\\d.]+\\.\\.([\\d.]+) rows=(\\d+)");
+    private static final List<String> NOT_ALIASES = List.of("on", "where", "join", "left", "right", "inner",
+            "outer", "cross", "natural", "straight_join", "group", "order", "limit", "using", "set", "having",
+            "union", "for", "window", "lock");
+
+    private final ConnectionPool pool;
+    private final boolean analyze;
+    private final long minRows;
+
+    // Schema of the current database, keys lower-case
+    private final Map<String, String> tableNames = new HashMap<>();
+    private final Map<String, List<String>> tableColumns = new HashMap<>();
+    private final Map<String, List<List<String>>> tableIndexes = new HashMap<>();
+    private final Map<String, Long> distinctCounts = new HashMap<>();
+
+    public IndexAdvisor(ConnectionPool pool, boolean analyze, long minRows) {
+        this.pool = pool;
+        this.analyze = analyze;
+        this.minRows = minRows;
+    }
+
+    /* ---------------------------------------------------
+       COLLECTING STATEMENTS
+       --------------------------------------------------- */
+    public static List<Query> collect(Collection<String> seenThisSession, String srcDir, String sqlDir)
+            throws IOException {
+        Map<String, Query> byText = new LinkedHashMap<>();
+        for (String sql : seenThisSession) add(byText, sql, "prepared this session");
+
+        try (Stream<Path> files = Files.list(Path.of(srcDir))) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".java")).sorted()::iterator) {
+                collectJavaLiterals(byText, file);
+            }
+        }
+
+        try (Stream<Path> files = Files.walk(Path.of(sqlDir))) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".sql")).sorted()::iterator) {
+                try (SqlTokenizer tokenizer = SqlTokenizer.open(file.toString())) {
+                    String sql;
+                    while ((sql = tokenizer.next()) != null) {
+                        add(byText, sql, file + ":" + tokenizer.statementLine());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(byText.values());
+    }
+
+    // Adjacent literals joined with + are one statement; a literal glued to a variable is dynamic SQL and skipped
+    private static void collectJavaLiterals(Map<String, Query> byText, Path file) throws IOException {
+        String src = Files.readString(file, StandardCharsets.UTF_8);
+
+        int groupStart = -1, groupEnd = -1;
+        StringBuilder sql = new StringBuilder();
+        int i = 0;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (c == '/' && i + 1 < src.length() && src.charAt(i + 1) == '/') {
+                i = src.indexOf('\n', i);
+                if (i < 0) break;
+            } else if (c == '/' && i + 1 < src.length() && src.charAt(i + 1) == '*') {
+                i = src.indexOf("*/", i + 2);
+                if (i < 0) break;
+                i += 2;
+            } else if (c == '\'') {
+                i = skipQuoted(src, i, '\'');
+            } else if (c == '"') {
+                int end = skipQuoted(src, i, '"');
+                String literal = unescape(src.substring(i + 1, Math.max(i + 1, end - 1)));
+                if (groupStart >= 0 && src.substring(groupEnd, i).matches("\\s*\\+\\s*")) {
+                    sql.append(literal);
+                } else {
+                    if (groupStart >= 0) addJavaGroup(byText, file, src, groupStart, groupEnd, sql.toString());
+                    groupStart = i;
+                    sql.setLength(0);
+                    sql.append(literal);
+                }
+                groupEnd = end;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        if (groupStart >= 0) addJavaGroup(byText, file, src, groupStart, groupEnd, sql.toString());
+    }
+
+    // Index just past the closing quote
+    private static int skipQuoted(String src, int open, char quote) {
+        int i = open + 1;
+        while (i < src.length() && src.charAt(i) != quote && src.charAt(i) != '\n') {
+            i += src.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(src.length(), i + 1);
+    }
+
+    private static void addJavaGroup(Map<String, Query> byText, Path file, String src, int start, int end, String sql) {
+        String before = src.substring(0, start).stripTrailing();
+        String after = src.substring(end).stripLeading();
+        if (before.endsWith("+") || after.startsWith("+")) return;
+
+        int line = 1;
+        for (int i = 0; i < start; i++) if (src.charAt(i) == '\n') line++;
+        add(byText, sql, file.getFileName() + ":" + line);
+    }
+
+    private static void add(Map<String, Query> byText, String sql, String source) {
+        String trimmed = sql.trim();
+        if (!isCheckable(trimmed)) return;
+
+        String key = trimmed.replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        Query q = byText.get(key);
+        if (q == null) byText.put(key, new Query(trimmed, source));
+        else if (!q.sources.contains(source)) q.sources.add(source);
+    }
+
+    // Reads and in-place writes on application tables; a bare keyword literal is not a statement
+    private static boolean isCheckable(String sql) {
+        String first = firstWord(sql);
+        boolean kind = first.equals("SELECT") || first.equals("WITH") || first.equals("UPDATE") || first.equals("DELETE");
+        return kind && sql.length() > first.length() && !sql.toLowerCase(Locale.ROOT).contains("information_schema");
+    }
+
+    /* ---------------------------------------------------
+       EXPLAIN + REPORT
+       --------------------------------------------------- */
+    public void run(List<Query> queries) throws SQLException {
+        Map<String, Proposal> proposals = new LinkedHashMap<>();
+        int clean = 0, failed = 0, flaggedCount = 0;
+
+        try (Connection conn = pool.getConnection()) {
+            loadSchema(conn);
+
+            System.out.println("\n===== INDEX ADVISOR: " + queries.size() + " statements =====");
+            for (Query q : queries) {
+                String runnable = bindPlaceholders(q.sql);
+
+                List<PlanRow> plan;
+                try {
+                    plan = explain(conn, runnable);
+                } catch (SQLException e) {
+                    failed++;
+                    System.out.println("\n? " + q.sources.get(0) + " could not be explained: " + e.getMessage());
+                    continue;
+                }
+
+                Map<String, String> aliases = aliases(q.sql);
+                List<String> flags = new ArrayList<>();
+                for (int i = 0; i < plan.size(); i++) {
+                    PlanRow row = plan.get(i);
+                    boolean driving = i == 0 || plan.get(i - 1).id != row.id;
+
+                    boolean scan = ("ALL".equals(row.type) || "index".equals(row.type)) && row.rows >= minRows
+                            && row.table != null && !row.table.startsWith("<");
+                    boolean filesort = row.extra.contains("Using filesort");
+                    boolean temporary = row.extra.contains("Using temporary");
+                    if (scan) flags.add(("ALL".equals(row.type) ? "full scan of " : "full index scan of ")
+                            + row.table + " (~" + row.rows + " rows)");
+                    if (filesort) flags.add("filesort");
+                    if (temporary) flags.add("temporary table");
+
+                    if (scan || filesort || temporary) {
+                        Proposal p = propose(q.sql, aliases, row, driving, filesort || temporary);
+                        if (p != null) {
+                            Proposal existing = proposals.get(p.ddl());
+                            if (existing == null) proposals.put(p.ddl(), existing = p);
+                            else existing.before = Math.max(existing.before, p.before);
+                            for (String s : q.sources) {
+                                if (!existing.sources.contains(s)) existing.sources.add(s);
+                            }
+                        }
+                    }
+                }
+
+                if (flags.isEmpty()) {
+                    clean++;
+                    continue;
+                }
+                flaggedCount++;
+
+                String timing = "";
+                String first = firstWord(q.sql);
+                if (analyze && (first.equals("SELECT") || first.equals("WITH"))) {
+                    timing = analyze(conn, runnable);
+                }
+
+                System.out.println("\n! " + String.join(", ", q.sources) + timing);
+                System.out.println("  " + abbreviate(q.sql));
+                System.out.println("  -> " + String.join("; ", dedupe(flags)));
+            }
+        }
+
+        System.out.printf("%n%d flagged, %d use indexes throughout, %d could not be explained.%n",
+                flaggedCount, clean, failed);
+
+        List<Proposal> ranked = new ArrayList<>(proposals.values());
+        ranked.sort((a, b) -> Long.compare(b.before - b.after, a.before - a.after));
+        System.out.println("\n--- Proposed indexes (largest estimated saving first) ---");
+        if (ranked.isEmpty()) System.out.println("None.");
+        for (Proposal p : ranked) {
+            System.out.println(p.ddl());
+            System.out.printf("    %s: %s%d rows examined instead of %d (%.1fx) | %d statement(s): %s%n",
+                    p.table, p.guessed ? "~" : "", p.after, p.before,
+                    p.after == 0 ? (double) p.before : (double) p.before / p.after,
+                    p.sources.size(), String.join(", ", p.sources));
+        }
+    }
+
+    private List<PlanRow> explain(Connection conn, String sql) throws SQLException {
+        List<PlanRow> plan = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                PlanRow row = new PlanRow();
+                row.id = rs.getInt("id");
+                row.table = rs.getString("table");
+                row.type = rs.getString("type");
+                row.key = rs.getString("key");
+                row.rows = rs.getLong("rows");
+                String extra = rs.getString("Extra");
+                row.extra = extra == null ? "" : extra;
+                plan.add(row);
+            }
+        }
+        return plan;
+    }
+
+    // EXPLAIN ANALYZE runs the query (SELECTs only); returns " (X ms, N rows actual)" or ""
+    private String analyze(Connection conn, String sql) {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN ANALYZE " + sql)) {
+            if (!rs.next()) return "";
+            Matcher m = ANALYZE_ROOT.matcher(rs.getString(1));
+            return m.find() ? " (" + m.group(1) + " ms, " + m.group(2) + " rows actual)" : "";
+        } catch (SQLException e) {
+            return ""; // server before 8.0.18, or the statement cannot be analyzed
+        }
+    }
+
+    /* ---------------------------------------------------
+       PROPOSALS
+       --------------------------------------------------- */
+    private Proposal propose(String sql, Map<String, String> aliases, PlanRow row, boolean driving,
+                             boolean sortOrGroup) throws SQLException {
+        if (row.table == null) return null;
+        String table = aliases.getOrDefault(row.table.toLowerCase(Locale.ROOT), row.table.toLowerCase(Locale.ROOT));
+        if (!tableColumns.containsKey(table)) return null; // derived table or view
+
+        // Literals and an UPDATE's SET list are not filters
+        String text = sql.replaceAll("'(?:[^'\\\\]|\\\\.|'')*'", "?").replaceAll("(?is)\\bSET\\b.*?(?=\\bWHERE\\b|$)", " ");
+
+        List<String> equality = new ArrayList<>();
+        List<String> range = new ArrayList<>();
+        Matcher m = PREDICATE.matcher(text);
+        while (m.find()) {
+            String left = resolve(aliases, m.group(1), m.group(2));
+            String right = m.group(5) == null ? null : resolve(aliases, m.group(4), m.group(5));
+            boolean eq = m.group(3).equals("=") || m.group(3).equals("<=>") || m.group(3).equalsIgnoreCase("IN");
+
+            if (right != null) {
+                // Join predicate: only useful on the inner (non-driving) side of the join
+                if (driving) continue;
+                for (String side : new String[]{left, right}) {
+                    if (side != null && side.startsWith(table + ".")) addOnce(equality, column(table, side));
+                }
+            } else if (left != null && left.startsWith(table + ".")) {
+                addOnce(eq ? equality : range, column(table, left));
+            }
+        }
+
+        List<String> ordered = null;
+        if (driving && sortOrGroup) {
+            ordered = sortColumns(GROUP_BY, text, aliases, table);
+            if (ordered == null) ordered = sortColumns(ORDER_BY, text, aliases, table);
+        }
+
+        List<String> columns = new ArrayList<>(equality);
+        if (ordered != null) {
+            for (String c : ordered) addOnce(columns, c);
+        } else if (!range.isEmpty()) {
+            addOnce(columns, range.get(0));
+        }
+        if (columns.isEmpty() || isCovered(table, columns)) return null;
+
+        Proposal p = new Proposal();
+        p.table = tableNames.get(table);
+        p.columns = columns;
+        p.before = Math.max(1, row.rows);
+        if (!equality.isEmpty()) {
+            long distinct = distinct(table, equality);
+            p.after = Math.max(1, p.before / Math.max(1, distinct));
+        } else if (ordered != null && limit(text) > 0) {
+            p.after = Math.min(p.before, limit(text));
+        } else {
+            p.after = Math.max(1, p.before / 10);
+            p.guessed = true;
+        }
+        return p.after * 2 > p.before ? null : p; // not selective enough to be worth an index
+    }
+
+    private List<String> sortColumns(Pattern clause, String text, Map<String, String> aliases, String table) {
+        Matcher m = clause.matcher(text);
+        String items = null;
+        while (m.find()) items = m.group(1); // the outermost clause comes last
+        if (items == null) return null;
+
+        List<String> columns = new ArrayList<>();
+        for (String item : items.split(",")) {
+            String expr = item.trim().replaceAll("(?i)\\s+(ASC|DESC)$", "").trim();
+            Matcher c = Pattern.compile("^" + COL + "$").matcher(expr);
+            if (!c.matches()) return null;
+            String resolved = resolve(aliases, c.group(1), c.group(2));
+            if (resolved == null || !resolved.startsWith(table + ".")) return null;
+            addOnce(columns, column(table, resolved));
+        }
+        return columns;
+    }
+
+    // "alias.col" or "col" -> "table.col" (lower-case), or null if it is not a column of a table in the query
+    private String resolve(Map<String, String> aliases, String qualifier, String name) {
+        String col = name.toLowerCase(Locale.ROOT);
+        if (qualifier != null) {
+            String table = aliases.get(qualifier.toLowerCase(Locale.ROOT));
+            return table != null && hasColumn(table, col) ? table + "." + col : null;
+        }
+        for (String table : aliases.values()) {
+            if (hasColumn(table, col)) return table + "." + col;
+        }
+        return null;
+    }
+
+    private Map<String, String> aliases(String sql) {
+        Map<String, String> aliases = new LinkedHashMap<>();
+        Matcher m = TABLE_REF.matcher(sql);
+        while (m.find()) {
+            String table = m.group(1).toLowerCase(Locale.ROOT);
+            if (!tableColumns.containsKey(table)) continue;
+            aliases.put(table, table);
+            String alias = m.group(2);
+            if (alias != null && !NOT_ALIASES.contains(alias.toLowerCase(Locale.ROOT))) {
+                aliases.put(alias.toLowerCase(Locale.ROOT), table);
+            }
+        }
+        return aliases;
+    }
+
+    private boolean hasColumn(String table, String col) {
+        for (String c : tableColumns.getOrDefault(table, List.of())) {
+            if (c.equalsIgnoreCase(col)) return true;
+        }
+        return false;
+    }
+
+    private String column(String table, String qualified) {
+        String col = qualified.substring(table.length() + 1);
+        for (String c : tableColumns.get(table)) {
+            if (c.equalsIgnoreCase(col)) return c;
+        }
+        return col;
+    }
+
+    // An existing index whose leading columns are exactly these already serves the query
+    private boolean isCovered(String table, List<String> columns) {
+        for (List<String> index : tableIndexes.getOrDefault(table, List.of())) {
+            if (index.size() < columns.size()) continue;
+            boolean match = true;
+            for (int i = 0; i < columns.size() && match; i++) {
+                match = index.get(i).equalsIgnoreCase(columns.get(i));
+            }
+            if (match) return true;
+        }
+        return false;
+    }
+
+    private long distinct(String table, List<String> columns) throws SQLException {
+        String key = table + ":" + columns;
+        Long cached = distinctCounts.get(key);
+        if (cached != null) return cached;
+
+        String sql = "SELECT COUNT(DISTINCT " + String.join(", ", columns) + ") FROM `" + tableNames.get(table) + "`";
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            long n = rs.next() ? rs.getLong(1) : 1;
+            distinctCounts.put(key, n);
+            return n;
+        }
+    }
+
+    private static long limit(String text) {
+        Matcher m = LIMIT.matcher(text);
+        long n = -1;
+        while (m.find()) {
+            n = Long.parseLong(m.group(1));
+            if (m.group(2) != null) n += Long.parseLong(m.group(2));
+        }
+        return n;
+    }
+
+    private void loadSchema(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT TABLE_NAME, COLUMN_NAME FROM information_schema.COLUMNS "
+                     + "WHERE TABLE_SCHEMA = DATABASE() ORDER BY TABLE_NAME, ORDINAL_POSITION")) {
+            while (rs.next()) {
+                String table = rs.getString(1);
+                tableNames.put(table.toLowerCase(Locale.ROOT), table);
+                tableColumns.computeIfAbsent(table.toLowerCase(Locale.ROOT), t -> new ArrayList<>()).add(rs.getString(2));
+            }
+        }
+
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT TABLE_NAME, INDEX_NAME, COLUMN_NAME FROM information_schema.STATISTICS "
+                     + "WHERE TABLE_SCHEMA = DATABASE() ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX")) {
+            String lastKey = null;
+            List<String> current = null;
+            while (rs.next()) {
+                String table = rs.getString(1).toLowerCase(Locale.ROOT);
+                String key = table + "." + rs.getString(2);
+                if (!key.equals(lastKey)) {
+                    current = new ArrayList<>();
+                    tableIndexes.computeIfAbsent(table, t -> new ArrayList<>()).add(current);
+                    lastKey = key;
+                }
+                current.add(rs.getString(3));
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       Helper Functions
+       --------------------------------------------------- */
+    // EXPLAIN needs values: LIMIT/OFFSET get 1, everything else '1' (MySQL converts it for numeric columns)
+    static String bindPlaceholders(String sql) {
+        StringBuilder out = new StringBuilder(sql.length() + 16);
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                out.append(c);
+                if (c == '\\' && i + 1 < sql.length()) out.append(sql.charAt(++i));
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                out.append(c);
+            } else if (c == '?') {
+                boolean limit = Pattern.compile("(?i)\\b(LIMIT|OFFSET)\\s*(\\d+\\s*,\\s*)?$").matcher(out).find();
+                out.append(limit ? "1" : "'1'");
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String firstWord(String sql) {
+        int start = 0;
+        while (start < sql.length() && (sql.charAt(start) == '(' || Character.isWhitespace(sql.charAt(start)))) start++;
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) end++;
+        return sql.substring(start, end).toUpperCase(Locale.ROOT);
+    }
+
+    private static String unescape(String literal) {
+        StringBuilder out = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '\\' && i + 1 < literal.length()) {
+                char next = literal.charAt(++i);
+                out.append(next == 'n' ? '\n' : next == 't' ? '\t' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void addOnce(List<String> list, String value) {
+        for (String v : list) if (v.equalsIgnoreCase(value)) return;
+        list.add(value);
+    }
+
+    private static List<String> dedupe(List<String> values) {
+        List<String> out = new ArrayList<>();
+        for (String v : values) addOnce(out, v);
+        return out;
+    }
+
+    private static String abbreviate(String sql) {
+        String flat = sql.replaceAll("\\s+", " ").trim();
+        return flat.length() > 160 ? flat.substring(0, 157) + "..." : flat;
+    }
+}
@@ -1,33 +1,50 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.sql.*;
+import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
 import java.io.FileInputStream;
 
 public class Main {
 
+    // Settings from src/app.properties, loaded once at startup
+    private static Properties config = new Properties();
+    private static final int MAX_ID_LIST = 100_000; // IDs one readIdList answer may expand to
+
+    // Background services, started once the pool is up
+    private static PlayCountIngestor playCounts;
+    private static Catalog catalog;
+    private static Playlists playlists;
+    private static Charts charts;
+    private static PlayHistory history;
+    private static ApiServer api;
+    private static Purger purger;
+    private static ReadRouter reads;
+    private static ReportCache reportCache;
+
     public static void main(String[] args) {
-        try (Connection conn = getConnection();
+        try (ConnectionPool pool = getConnectionPool();
              Scanner sc = new Scanner(System.in)) {
 
-            if (conn == null) {
+            if (pool == null) {
                 System.out.println("DB connection failed.");
                 return;
             }
 
             System.out.println("Connected to DB successfully!");
+            System.out.println(pool.stats());
 
-            runMenu(conn, sc);
-        } catch (SQLException e) {
-            System.out.println("DB error: " + e.getMessage());
+            startServices(pool);
+            runMenu(pool, sc);
+            stopServices();
         }
     }
 
     /* ---------------------------------------------------
-       1. JDBC CONNECTION
+       1. JDBC CONNECTION POOL
        --------------------------------------------------- */
-    private static Connection getConnection() {
+    private static Properties loadProperties() {
         Properties props = new Properties();
 
         try (FileInputStream fis = new FileInputStream("src/app.properties")) {
@@ -36,23 +53,84 @@ public class Main {
             System.out.println("Could not load app.properties: " + e.getMessage());
             return null;
         }
-
-        String url = props.getProperty("db.url");
-        String user = props.getProperty("db.user");
-        String pass = props.getProperty("db.password");
+        return props;
+    }
+    private static ConnectionPool getConnectionPool() {
+        Properties props = loadProperties();
+        if (props == null) return null;
+        config = props;
 
         try {
-            return DriverManager.getConnection(url, user, pass);
+            return ConnectionPool.fromProperties(props);
         } catch (SQLException e) {
             System.out.println("Failed to connect: " + e.getMessage());
             return null;
         }
     }
 
+    private static void startServices(ConnectionPool pool) {
+        reads = ReadRouter.fromProperties(pool, config);
+        reportCache = ReportCache.fromProperties(config);
+        pool.addWriteListener(reportCache);
+        catalog = Catalog.fromProperties(pool, config);
+        playlists = new Playlists(pool);
+        playCounts = new PlayCountIngestor(pool,
+                ConnectionPool.longProp(config, "plays.flushIntervalMs", 1000),
+                ConnectionPool.intProp(config, "plays.maxPendingSongs", 100000),
+                ConnectionPool.intProp(config, "plays.flushBatchSize", 1000),
+                false);
+        startHistory(pool);
+        startPurger(pool);
+
+        // Charts follow every committed flush after one seed of the top songs and artists
+        charts = new Charts(pool, playCounts,
+                ConnectionPool.intProp(config, "charts.k", 100),
+                ConnectionPool.intProp(config, "charts.artistK", 10),
+                ConnectionPool.intProp(config, "charts.maxArtistCharts", 1000));
+        playCounts.addFlushListener(charts::onPlaysFlushed);
+        reloadCharts();
+
+        // Ctrl+C still writes buffered play counts
+        Runtime.getRuntime().addShutdownHook(new Thread(Main::stopServices, "shutdown-flush"));
+    }
+    private static void stopServices() {
+        if (api != null) api.close();
+        if (playCounts != null) playCounts.close();
+        if (history != null) history.close();
+        if (purger != null) purger.close();
+        if (reads != null) reads.close();
+    }
+    // Needs the PlayEvent tables; an older database gets them from Reset Database
+    private static void startHistory(ConnectionPool pool) {
+        if (history != null || !Boolean.parseBoolean(config.getProperty("history.enabled", "true"))) return;
+        if (!PlayHistory.tablesExist(pool)) {
+            System.out.println("Play history is off: PlayEvent tables are missing (run 999. Reset Database).");
+            return;
+        }
+        history = new PlayHistory(pool,
+                ConnectionPool.intProp(config, "history.retentionDays", 30),
+                ConnectionPool.intProp(config, "history.partitionsAhead", 7),
+                ConnectionPool.longProp(config, "history.rollupIntervalMs", 60000));
+        playCounts.recordHistory(true);
+    }
+    // delete.mode=purge: User/Artist deletes are soft, the cascade runs in the background
+    private static void startPurger(ConnectionPool pool) {
+        if (purger != null || !config.getProperty("delete.mode", "purge").equalsIgnoreCase("purge")) return;
+        if (!Purger.tablesExist(pool)) {
+            System.out.println("Background purge is off: DeletedAt/PurgeJob are missing (run 999. Reset Database).");
+            return;
+        }
+        purger = new Purger(pool, catalog,
+                ConnectionPool.intProp(config, "purge.chunkRows", 500),
+                ConnectionPool.longProp(config, "purge.pauseMs", 20),
+                ConnectionPool.longProp(config, "purge.pollMs", 1000));
+        catalog.softDeletes(true);
+    }
+
     /* ---------------------------------------------------
        2. MAIN MENU (Scanner I/O)
        --------------------------------------------------- */
-    private static void runMenu(Connection conn, Scanner sc) {
+    private static void runMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB MAIN MENU =====");
             System.out.println("1. View Tables");
@@ -61,6 +139,15 @@ public class Main {
             System.out.println("4. Delete Data");
             System.out.println("5. Transaction Demo");
             System.out.println("6. Call View / Stored Procedure");
+            System.out.println("7. Diagnostics (Stats / Index Advisor)");
+            System.out.println("8. Bulk Import (CSV/TSV)");
+            System.out.println("9. Play Counts");
+            System.out.println("10. Playlists");
+            System.out.println("11. HTTP API (start / stop / load test)");
+            System.out.println("12. Export Table (CSV / JSON Lines)");
+            System.out.println("13. Generate Synthetic Data (scale testing)");
+            System.out.println("997. Save Snapshot (for fast resets)");
+            System.out.println("998. Fast Reset (restore snapshot)");
             System.out.println("999. Reset Database");
             System.out.println("0. Exit");
             System.out.print("Choose: ");
@@ -68,13 +155,22 @@ public class Main {
             String choice = sc.nextLine();
 
             switch (choice) {
-                case "1": viewMenu(conn, sc); break;
-                case "2": insertMenu(conn, sc); break;
-                case "3": updateMenu(conn, sc); break;
-                case "4": deleteMenu(conn, sc); break;
-                case "5": transactionDemoMenu(conn, sc); break;
-                case "6": runViewProcedureMenu(conn, sc); break;
-                case "999": resetDatabase(conn); break;
+                case "1": viewMenu(pool, sc); break;
+                case "2": insertMenu(pool, sc); break;
+                case "3": updateMenu(pool, sc); break;
+                case "4": deleteMenu(pool, sc); break;
+                case "5": transactionDemoMenu(pool, sc); break;
+                case "6": runViewProcedureMenu(pool, sc); break;
+                case "7": diagnosticsMenu(pool, sc); break;
+                case "8": bulkImport(pool, sc); break;
+                case "9": playCountMenu(pool, sc); break;
+                case "10": playlistMenu(sc); break;
+                case "11": apiMenu(pool, sc); break;
+                case "12": exportTable(pool, sc); break;
+                case "13": generateData(pool, sc); break;
+                case "997": saveSnapshot(pool); break;
+                case "998": restoreSnapshot(pool); break;
+                case "999": resetDatabase(pool); break;
                 case "0": return;
                 default: System.out.println("Invalid choice.");
             }
@@ -84,59 +180,88 @@ public class Main {
     /* ---------------------------------------------------
        3. VIEW OPERATIONS
        --------------------------------------------------- */
-    private static void viewMenu(Connection conn, Scanner sc) {
+    private static void viewMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB VIEW OPTIONS MENU =====");
             System.out.println("1. View Users");
             System.out.println("2. View Artists");
             System.out.println("3. View Songs");
+            System.out.println("4. Find Artist By ID");
+            System.out.println("5. Find Song By ID");
             System.out.println("0. Return To Main Menu");
             System.out.print("Choose: ");
 
             String c = sc.nextLine();
 
             switch (c) {
-                case "1": viewUsers(conn); break;
-                case "2": viewArtists(conn); break;
-                case "3": viewSongs(conn); break;
+                case "1": viewUsers(pool, sc); break;
+                case "2": viewArtists(pool, sc); break;
+                case "3": viewSongs(pool, sc); break;
+                case "4": findArtist(sc); break;
+                case "5": findSong(sc); break;
                 case "0": return;
                 default: System.out.println("Invalid option.");
             }
         }
     }
 
-    private static void viewUsers(Connection conn) {
-        try {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM User");
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
-        } catch (SQLException e) {
-            System.out.println("Error: " + e.getMessage());
-        }
+    private static void viewUsers(ConnectionPool pool, Scanner sc) {
+        new TablePager(reads, "User", "UserID", pageSize(), "DeletedAt IS NULL").browse(sc);
+    }
+    private static void viewArtists(ConnectionPool pool, Scanner sc) {
+        new TablePager(reads, "Artist", "ArtistID", pageSize(), "DeletedAt IS NULL").browse(sc);
+    }
+    private static void viewSongs(ConnectionPool pool, Scanner sc) {
+        new TablePager(reads, "Song", "SongID", pageSize(), Catalog.songVisible("Song")).browse(sc);
     }
-    private static void viewArtists(Connection conn) {
+
+    // Served from the entity cache; a hot artist or song costs no queries
+    private static void findArtist(Scanner sc) {
+        int id = readInt(sc, "Enter ArtistID: ");
+
         try {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM Artist");
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
+            Catalog.Artist artist = catalog.artist(id);
+            if (artist == null) {
+                System.out.println("No artist found with that ID.");
+                return;
+            }
+            System.out.println("ArtistID: " + artist.artistId());
+            System.out.println("Name:     " + artist.name());
+            System.out.println("Genre:    " + (artist.genre() == null ? "" : artist.genre()));
+            System.out.println("Country:  " + (artist.country() == null ? "" : artist.country()));
+            Catalog.User user = artist.userId() == null ? null : catalog.user(artist.userId());
+            System.out.println("User:     " + (user == null ? "" : user.username() + " (" + user.userId() + ")"));
         } catch (SQLException e) {
-            System.out.println("Error: " + e.getMessage());
+            System.out.println("Error loading artist: " + e.getMessage());
         }
     }
-    private static void viewSongs(Connection conn) {
+    private static void findSong(Scanner sc) {
+        int id = readInt(sc, "Enter SongID: ");
+
         try {
-            PreparedStatement ps = conn.prepareStatement("SELECT * FROM Song");
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
+            Catalog.Song song = catalog.song(id);
+            if (song == null) {
+                System.out.println("No song found with that ID.");
+                return;
+            }
+            Catalog.Album album = catalog.album(song.albumId());
+            Catalog.Artist artist = album == null ? null : catalog.artist(album.artistId());
+
+            System.out.println("SongID:   " + song.songId());
+            System.out.println("Title:    " + song.title());
+            System.out.println("Duration: " + song.duration() + " s");
+            System.out.println("Album:    " + (album == null ? "" : album.title() + " (" + album.albumId() + ", "
+                    + album.releaseDate() + ")"));
+            System.out.println("Artist:   " + (artist == null ? "" : artist.name() + " (" + artist.artistId() + ")"));
         } catch (SQLException e) {
-            System.out.println("Error: " + e.getMessage());
+            System.out.println("Error loading song: " + e.getMessage());
         }
     }
 
     /* ---------------------------------------------------
        4. INSERT OPERATIONS
        --------------------------------------------------- */
-    private static void insertMenu(Connection conn, Scanner sc) {
+    private static void insertMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB INSERT OPTIONS MENU =====");
             System.out.println("1. Insert User");
@@ -148,37 +273,26 @@ public class Main {
             String c = sc.nextLine();
 
             switch (c) {
-                case "1": insertUser(conn, sc); break;
-                case "2": insertArtist(conn, sc); break;
-                case "3": insertSong(conn, sc); break;
+                case "1": insertUser(pool, sc); break;
+                case "2": insertArtist(pool, sc); break;
+                case "3": insertSong(pool, sc); break;
                 case "0": return;
                 default: System.out.println("Invalid option.");
             }
         }
     }
 
-    private static void insertUser(Connection conn, Scanner sc) {
+    private static void insertUser(ConnectionPool pool, Scanner sc) {
         while (true) {
             try {
                 System.out.println("\n--- Insert New User ---");
                 String username = readRequiredString(sc, "Username: ");
                 String password = readRequiredString(sc, "Password: ");
 
-                String insertUserSQL = "INSERT INTO User (Username, Password) VALUES (?, ?)";
-
-                try (PreparedStatement ps = conn.prepareStatement(insertUserSQL)) {
-                    ps.setString(1, username);
-                    ps.setString(2, password);
-                    ps.executeUpdate();
-                    System.out.println("User added successfully!");
-                }
-
-                String selectSQL = "SELECT UserID, Username, Password FROM User WHERE Username = ?";
-                try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-                    ps.setString(1, username);
-                    ResultSet rs = ps.executeQuery();
-                    printResultSetTable(rs);
-                }
+                long calls = StatementCache.executionsOnThisThread();
+                Catalog.User user = catalog.insertUser(username, password);
+                System.out.println("User added successfully!");
+                printWrittenRow(Catalog.User.COLUMNS, user.values(), calls);
 
                 return; // success → back to menu
 
@@ -188,7 +302,7 @@ public class Main {
             }
         }
     }
-    private static void insertArtist(Connection conn, Scanner sc) {
+    private static void insertArtist(ConnectionPool pool, Scanner sc) {
         while (true) {
             try {
                 System.out.println("\n--- Insert New Artist ---");
@@ -199,28 +313,13 @@ public class Main {
                 String country = sc.nextLine().trim();
                 Integer userId = readOptionalInt(sc, "UserID (optional): ");
 
-                String insertArtistSQL = "INSERT INTO Artist (Name, Genre, Country, UserID) VALUES (?, ?, ?, ?)";
-
-                try (PreparedStatement ps = conn.prepareStatement(insertArtistSQL)) {
-                    ps.setString(1, name);
-                    ps.setString(2, genre.isEmpty() ? null : genre);
-                    ps.setString(3, country.isEmpty() ? null : country);
-
-                    if (userId == null)
-                        ps.setNull(4, java.sql.Types.INTEGER);
-                    else
-                        ps.setInt(4, userId);
-
-                    ps.executeUpdate();
-                    System.out.println("Artist added successfully!");
-                }
-
-                String selectSQL = "SELECT ArtistID, Name, Genre, Country, UserID FROM Artist WHERE Name = ?";
-                try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-                    ps.setString(1, name);
-                    ResultSet rs = ps.executeQuery();
-                    printResultSetTable(rs);
-                }
+                long calls = StatementCache.executionsOnThisThread();
+                Catalog.Artist artist = catalog.insertArtist(name,
+                        genre.isEmpty() ? null : genre,
+                        country.isEmpty() ? null : country,
+                        userId);
+                System.out.println("Artist added successfully!");
+                printWrittenRow(Catalog.Artist.COLUMNS, artist.values(), calls);
 
                 return;
 
@@ -230,7 +329,7 @@ public class Main {
             }
         }
     }
-    private static void insertSong(Connection conn, Scanner sc) {
+    private static void insertSong(ConnectionPool pool, Scanner sc) {
         while (true) {
             try {
                 System.out.println("\n--- Insert New Song ---");
@@ -238,22 +337,10 @@ public class Main {
                 int duration = readPositiveInt(sc, "Duration (seconds > 0): ");
                 int albumId = readPositiveInt(sc, "AlbumID: ");
 
-                String insertSongSQL = "INSERT INTO Song (Title, Duration, AlbumID) VALUES (?, ?, ?)";
-
-                try (PreparedStatement ps = conn.prepareStatement(insertSongSQL)) {
-                    ps.setString(1, title);
-                    ps.setInt(2, duration);
-                    ps.setInt(3, albumId);
-                    ps.executeUpdate();
-                    System.out.println("Song added successfully!");
-                }
-
-                String selectSQL = "SELECT SongID, Title, Duration, AlbumID FROM Song WHERE Title = ?";
-                try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-                    ps.setString(1, title);
-                    ResultSet rs = ps.executeQuery();
-                    printResultSetTable(rs);
-                }
+                long calls = StatementCache.executionsOnThisThread();
+                Catalog.Song song = catalog.insertSong(title, duration, albumId);
+                System.out.println("Song added successfully!");
+                printWrittenRow(Catalog.Song.COLUMNS, song.values(), calls);
 
                 return;
 
@@ -268,47 +355,47 @@ public class Main {
     /* ---------------------------------------------------
        5. UPDATE OPERATIONS
        --------------------------------------------------- */
-    private static void updateMenu(Connection conn, Scanner sc) {
+    private static void updateMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB UPDATE OPTIONS MENU =====");
             System.out.println("1. Update User");
             System.out.println("2. Update Artist");
             System.out.println("3. Update Song");
+            System.out.println("4. Batch Update Songs");
             System.out.println("0. Return To Main Menu");
             System.out.print("Choose: ");
 
             String c = sc.nextLine();
 
             switch (c) {
-                case "1": updateUser(conn, sc); break;
-                case "2": updateArtist(conn, sc); break;
-                case "3": updateSong(conn, sc); break;
+                case "1": updateUser(pool, sc); break;
+                case "2": updateArtist(pool, sc); break;
+                case "3": updateSong(pool, sc); break;
+                case "4": batchUpdateSongs(pool, sc); break;
                 case "0": return;
                 default: System.out.println("Invalid option.");
             }
         }
     }
 
-    private static void updateUser(Connection conn, Scanner sc) {
-        viewUsers(conn);
+    private static void updateUser(ConnectionPool pool, Scanner sc) {
+        viewUsers(pool, sc);
         System.out.println("\n--- Update User ---");
 
         int id = readInt(sc, "Enter UserID: ");
 
         // Load old data
-        String sqlOld = "SELECT Username, Password FROM User WHERE UserID = ?";
+        Catalog.User old;
         String oldUser, oldPass;
 
-        try (PreparedStatement ps = conn.prepareStatement(sqlOld)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    System.out.println("No user found with that ID.");
-                    return;
-                }
-                oldUser = rs.getString("Username");
-                oldPass = rs.getString("Password");
+        try {
+            old = catalog.user(id);
+            if (old == null) {
+                System.out.println("No user found with that ID.");
+                return;
             }
+            oldUser = old.username();
+            oldPass = old.password();
         } catch (SQLException e) {
             System.out.println("Error loading user: " + e.getMessage());
             return;
@@ -320,51 +407,42 @@ public class Main {
         String newPass = chooseNewValue(sc, "Password", oldPass);
 
         // UPDATE
-        String updateUserSQL = "UPDATE User SET Username = ?, Password = ? WHERE UserID = ?";
-
-        try (PreparedStatement ps = conn.prepareStatement(updateUserSQL)) {
-            ps.setString(1, newUser);
-            ps.setString(2, newPass);
-            ps.setInt(3, id);
-            ps.executeUpdate();
+        try {
+            long calls = StatementCache.executionsOnThisThread();
+            Catalog.User user = catalog.updateUser(old, new Catalog.User(id, newUser, newPass, old.version()));
+            if (user == null) {
+                System.out.println("No user found with that ID.");
+                return;
+            }
             System.out.println("User updated successfully!");
+            printWrittenRow(Catalog.User.COLUMNS, user.values(), calls);
+        } catch (Catalog.ConflictException e) {
+            System.out.println("Not saved: " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Error updating user: " + e.getMessage());
         }
-
-        String selectSQL = "SELECT UserID, Username, Password FROM User WHERE Username = ?";
-        try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-            ps.setString(1, newUser);
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
-        } catch (SQLException e) {
-            // None
-        }
-
     }
-    private static void updateArtist(Connection conn, Scanner sc) {
-        viewArtists(conn);
+    private static void updateArtist(ConnectionPool pool, Scanner sc) {
+        viewArtists(pool, sc);
         System.out.println("\n--- Update Artist ---");
 
         int id = readInt(sc, "Enter ArtistID: ");
 
         // Load existing row
-        String sqlOld = "SELECT Name, Genre, Country, UserID FROM Artist WHERE ArtistID = ?";
+        Catalog.Artist old;
         String oldName, oldGenre, oldCountry;
         Integer oldUserID;
 
-        try (PreparedStatement ps = conn.prepareStatement(sqlOld)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    System.out.println("No artist found with that ID.");
-                    return;
-                }
-                oldName = rs.getString("Name");
-                oldGenre = rs.getString("Genre");
-                oldCountry = rs.getString("Country");
-                oldUserID = (Integer) rs.getObject("UserID");
+        try {
+            old = catalog.artist(id);
+            if (old == null) {
+                System.out.println("No artist found with that ID.");
+                return;
             }
+            oldName = old.name();
+            oldGenre = old.genre();
+            oldCountry = old.country();
+            oldUserID = old.userId();
         } catch (SQLException e) {
             System.out.println("Error loading artist: " + e.getMessage());
             return;
@@ -379,57 +457,45 @@ public class Main {
         Integer userId = chooseNewInt(sc, "UserID", oldUserID);
 
         // UPDATE
-        String updateArtistSQL = "UPDATE Artist SET Name=?, Genre=?, Country=?, UserID=? WHERE ArtistID=?";
-
-        try (PreparedStatement ps = conn.prepareStatement(updateArtistSQL)) {
-            ps.setString(1, name);
-            ps.setString(2, genre.isEmpty() ? null : genre);
-            ps.setString(3, country.isEmpty() ? null : country);
-
-            if (userId == null)
-                ps.setNull(4, java.sql.Types.INTEGER);
-            else
-                ps.setInt(4, userId);
-
-            ps.setInt(5, id);
-
-            ps.executeUpdate();
+        try {
+            long calls = StatementCache.executionsOnThisThread();
+            Catalog.Artist artist = catalog.updateArtist(old, new Catalog.Artist(id, name,
+                    genre.isEmpty() ? null : genre,
+                    country.isEmpty() ? null : country,
+                    userId, old.version()));
+            if (artist == null) {
+                System.out.println("No artist found with that ID.");
+                return;
+            }
             System.out.println("Artist updated successfully!");
+            printWrittenRow(Catalog.Artist.COLUMNS, artist.values(), calls);
+            if (!artist.name().equals(oldName)) charts.artistRenamed(id, artist.name());
+        } catch (Catalog.ConflictException e) {
+            System.out.println("Not saved: " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Error updating artist: " + e.getMessage());
         }
-
-        String selectSQL = "SELECT ArtistID, Name, Genre, Country, UserID FROM Artist WHERE Name = ?";
-        try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-            ps.setString(1, name);
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
-        } catch (SQLException e) {
-            // None
-        }
     }
-    private static void updateSong(Connection conn, Scanner sc) {
-        viewSongs(conn);
+    private static void updateSong(ConnectionPool pool, Scanner sc) {
+        viewSongs(pool, sc);
         System.out.println("\n--- Update Song ---");
 
         int id = readInt(sc, "Enter SongID: ");
 
         // Load existing row
-        String sqlOld = "SELECT Title, Duration, AlbumID FROM Song WHERE SongID = ?";
+        Catalog.Song old;
         String oldTitle;
         int oldDuration, oldAlbumID;
 
-        try (PreparedStatement ps = conn.prepareStatement(sqlOld)) {
-            ps.setInt(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) {
-                    System.out.println("No song found with that ID.");
-                    return;
-                }
-                oldTitle = rs.getString("Title");
-                oldDuration = rs.getInt("Duration");
-                oldAlbumID = rs.getInt("AlbumID");
+        try {
+            old = catalog.song(id);
+            if (old == null) {
+                System.out.println("No song found with that ID.");
+                return;
             }
+            oldTitle = old.title();
+            oldDuration = old.duration();
+            oldAlbumID = old.albumId();
         } catch (SQLException e) {
             System.out.println("Error loading song: " + e.getMessage());
             return;
@@ -449,118 +515,160 @@ public class Main {
         int newAlbumID = albStr.isEmpty() ? oldAlbumID : Integer.parseInt(albStr);
 
         // UPDATE
-        String updateSongSQL = "UPDATE Song SET Title=?, Duration=?, AlbumID=? WHERE SongID=?";
-
-        try (PreparedStatement ps = conn.prepareStatement(updateSongSQL)) {
-            ps.setString(1, newTitle);
-            ps.setInt(2, newDuration);
-            ps.setInt(3, newAlbumID);
-            ps.setInt(4, id);
-
-            ps.executeUpdate();
+        try {
+            long calls = StatementCache.executionsOnThisThread();
+            Catalog.Song song = catalog.updateSong(old,
+                    new Catalog.Song(id, newTitle, newDuration, newAlbumID, old.version()));
+            if (song == null) {
+                System.out.println("No song found with that ID.");
+                return;
+            }
             System.out.println("Song updated successfully!");
+            printWrittenRow(Catalog.Song.COLUMNS, song.values(), calls);
+            charts.songChanged(id);
+        } catch (Catalog.ConflictException e) {
+            System.out.println("Not saved: " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Error updating song: " + e.getMessage());
         }
+    }
 
-        String selectSQL = "SELECT SongID, Title, Duration, AlbumID FROM Song WHERE Title = ?";
-        try (PreparedStatement ps = conn.prepareStatement(selectSQL)) {
-            ps.setString(1, newTitle);
-            ResultSet rs = ps.executeQuery();
-            printResultSetTable(rs);
-        } catch (SQLException e) {
-            // None
+    // Same new Title/Duration/AlbumID for many songs, in one statement; blank keeps each song's own value
+    private static void batchUpdateSongs(ConnectionPool pool, Scanner sc) {
+        viewSongs(pool, sc);
+        System.out.println("\n--- Batch Update Songs ---");
+
+        List<Integer> ids = readIdList(sc, "SongIDs (e.g. 4,8,15-42): ");
+        System.out.println("Press ENTER to keep each song's current value.");
+        System.out.print("Title: ");
+        String title = sc.nextLine().trim();
+        Integer duration = readOptionalInt(sc, "Duration: ");
+        Integer albumId = readOptionalInt(sc, "AlbumID: ");
+        if (title.isEmpty() && duration == null && albumId == null) {
+            System.out.println("Nothing to change.");
+            return;
         }
 
+        try {
+            // Expected Versions are the ones seen now; a song changed before the UPDATE is a conflict
+            List<Catalog.SongChange> changes = new java.util.ArrayList<>();
+            for (int id : ids) {
+                Catalog.Song song = catalog.song(id);
+                if (song == null) {
+                    System.out.println("No song found with ID " + id + ".");
+                    return;
+                }
+                changes.add(new Catalog.SongChange(id, song.version(), title.isEmpty() ? null : title,
+                        duration, albumId));
+            }
+
+            long start = System.nanoTime();
+            int updated = catalog.updateSongs(changes);
+            System.out.printf("%d songs updated in %.1f ms.%n", updated, (System.nanoTime() - start) / 1e6);
+            if (!title.isEmpty() || albumId != null) charts.songsChanged(ids);
+        } catch (Catalog.ConflictException e) {
+            System.out.println("Not saved: " + e.getMessage());
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println("Error updating songs: " + e.getMessage());
+        }
     }
 
     /* ---------------------------------------------------
        6. DELETE OPERATIONS
        --------------------------------------------------- */
-    private static void deleteMenu(Connection conn, Scanner sc) {
+    private static void deleteMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB DELETE OPTIONS MENU =====");
             System.out.println("1. Delete User");
             System.out.println("2. Delete Artist");
             System.out.println("3. Delete Song");
+            System.out.println("4. Background Purge Jobs");
             System.out.println("0. Return To Main Menu");
             System.out.print("Choose: ");
 
             String c = sc.nextLine();
 
             switch (c) {
-                case "1": deleteUser(conn, sc); break;
-                case "2": deleteArtist(conn, sc); break;
-                case "3": deleteSong(conn, sc); break;
+                case "1": deleteUser(pool, sc); break;
+                case "2": deleteArtist(pool, sc); break;
+                case "3": deleteSong(pool, sc); break;
+                case "4": showPurgeJobs(); break;
                 case "0": return;
                 default: System.out.println("Invalid option.");
             }
         }
     }
 
-    private static void deleteUser(Connection conn, Scanner sc) {
-        viewUsers(conn);
+    private static void deleteUser(ConnectionPool pool, Scanner sc) {
+        viewUsers(pool, sc);
         int userId = readInt(sc, "Enter UserID to delete: ");
 
-        String deleteUserSQL = "DELETE FROM User WHERE UserID = ?";
-
-        try (PreparedStatement ps = conn.prepareStatement(deleteUserSQL)) {
-            ps.setInt(1, userId);
-
-            int rows = ps.executeUpdate();
-            if (rows > 0)
-                System.out.println("User deleted.");
+        try {
+            if (catalog.deleteUser(userId))
+                System.out.println(purger != null ? "User deleted (playlists are purged in the background)." : "User deleted.");
             else
                 System.out.println("No user found with that ID.");
         } catch (SQLException e) {
             System.out.println("Error deleting user: " + e.getMessage());
         }
     }
-    private static void deleteArtist(Connection conn, Scanner sc) {
-        viewArtists(conn);
+    private static void deleteArtist(ConnectionPool pool, Scanner sc) {
+        viewArtists(pool, sc);
         int artistId = readInt(sc, "Enter ArtistID to delete: ");
 
-        String deleteArtistSQL = "DELETE FROM Artist WHERE ArtistID = ?";
-
-        try (PreparedStatement ps = conn.prepareStatement(deleteArtistSQL)) {
-            ps.setInt(1, artistId);
-
-            int rows = ps.executeUpdate();
-            if (rows > 0)
-                System.out.println("Artist deleted.");
-            else
+        try {
+            if (catalog.deleteArtist(artistId)) {
+                System.out.println(purger != null ? "Artist deleted (albums and songs are purged in the background)."
+                        : "Artist deleted.");
+                charts.artistRemoved(artistId);
+            } else {
                 System.out.println("No artist found with that ID.");
+            }
         } catch (SQLException e) {
             System.out.println("Error deleting artist: " + e.getMessage());
         }
     }
-    private static void deleteSong(Connection conn, Scanner sc) {
-        viewSongs(conn);
+    private static void deleteSong(ConnectionPool pool, Scanner sc) {
+        viewSongs(pool, sc);
         int songId = readInt(sc, "Enter SongID to delete: ");
 
-        String deleteSongSQL = "DELETE FROM Song WHERE SongID = ?";
-
-        try (PreparedStatement ps = conn.prepareStatement(deleteSongSQL)) {
-            ps.setInt(1, songId);
-
-            int rows = ps.executeUpdate();
-            if (rows > 0)
+        try {
+            if (catalog.deleteSong(songId)) {
                 System.out.println("Song deleted.");
-            else
+                charts.songDeleted(songId);
+            } else {
                 System.out.println("No song found with that ID.");
+            }
         } catch (SQLException e) {
             System.out.println("Error deleting song: " + e.getMessage());
         }
     }
+    private static void showPurgeJobs() {
+        if (purger == null) {
+            System.out.println("Background purge is off (delete.mode=cascade); deletes cascade immediately.");
+            return;
+        }
+        try {
+            List<Object[]> rows = new java.util.ArrayList<>();
+            for (Purger.Job job : purger.recentJobs(20)) rows.add(job.values());
+            if (rows.isEmpty()) System.out.println("No purge jobs yet.");
+            else TablePrinter.printRows(Purger.Job.COLUMNS, rows);
+            System.out.println(purger.stats());
+        } catch (SQLException e) {
+            System.out.println("Error loading purge jobs: " + e.getMessage());
+        }
+    }
 
     /* ---------------------------------------------------
        7. TRANSACTION WORKFLOW (commit + rollback)
        --------------------------------------------------- */
-    private static void transactionDemoMenu(Connection conn, Scanner sc) {
+    private static void transactionDemoMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== TRANSACTION DEMO MENU =====");
             System.out.println("1. Run Transaction and COMMIT");
             System.out.println("2. Run Transaction and ROLLBACK");
+            System.out.println("3. Onboard Many Artists (grouped commits, retries)");
+            System.out.println("998. Fast Reset (restore snapshot)");
             System.out.println("999. Reset Database");
             System.out.println("0. Return To Main Menu");
             System.out.print("Choose: ");
@@ -570,39 +678,50 @@ public class Main {
             switch (c) {
                 case "1":
                     System.out.println("\n--- Starting Transaction and Committing ---");
-                    try {
-                        conn.setAutoCommit(false);
+                    try (Connection conn = pool.getConnection()) {
+                        try {
+                            conn.setAutoCommit(false);
 
-                        runTransactionDemo(conn);
+                            runTransactionDemo(conn);
 
-                        conn.commit();
-                        System.out.println("Transaction committed.");
+                            conn.commit();
+                            pool.wrote(null, "User", "Artist", "Album", "Song");
+                            System.out.println("Transaction committed.");
 
-                    } catch (Exception e) {
+                        } catch (Exception e) {
+                            System.out.println("Error during commit workflow: " + e.getMessage());
+                            try { conn.rollback(); } catch (SQLException ignored) {}
+                        } finally {
+                            try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+                        }
+                    } catch (SQLException e) {
                         System.out.println("Error during commit workflow: " + e.getMessage());
-                        try { conn.rollback(); } catch (SQLException ignored) {}
-                    } finally {
-                        try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
                     }
                     break;
 
                 case "2":
                     System.out.println("\n--- Starting Transaction and Rolling Back ---");
-                    try {
-                        conn.setAutoCommit(false);
-                        runTransactionDemo(conn);
-
-                        System.out.println("Forcing rollback...");
-                        conn.rollback();
-                        System.out.println("Transaction rolled back successfully.");
-                    } catch (Exception e) {
+                    try (Connection conn = pool.getConnection()) {
+                        try {
+                            conn.setAutoCommit(false);
+                            runTransactionDemo(conn);
+
+                            System.out.println("Forcing rollback...");
+                            conn.rollback();
+                            System.out.println("Transaction rolled back successfully.");
+                        } catch (Exception e) {
+                            System.out.println("Error during rollback workflow: " + e.getMessage());
+                            try { conn.rollback(); } catch (SQLException ignored) {}
+                        } finally {
+                            try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+                        }
+                    } catch (SQLException e) {
                         System.out.println("Error during rollback workflow: " + e.getMessage());
-                        try { conn.rollback(); } catch (SQLException ignored) {}
-                    } finally {
-                        try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
                     }
                     break;
-                case "999": resetDatabase(conn); break;
+                case "3": onboardArtists(pool, sc); break;
+                case "998": restoreSnapshot(pool); break;
+                case "999": resetDatabase(pool); break;
                 case "0":
                     return;
                 default:
@@ -611,6 +730,27 @@ public class Main {
         }
     }
 
+    // The demo's User -> Artist -> Album -> Song bundle, N times, through Onboarding
+    private static void onboardArtists(ConnectionPool pool, Scanner sc) {
+        int count = readPositiveInt(sc, "Artists to onboard: ");
+        int songs = readPositiveInt(sc, "Songs per album: ");
+
+        String prefix = "onboard_" + System.currentTimeMillis() + "_"; // usernames are UNIQUE
+        List<Onboarding.Bundle> bundles = new java.util.ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            List<Onboarding.Track> tracks = new java.util.ArrayList<>(songs);
+            for (int t = 1; t <= songs; t++) tracks.add(new Onboarding.Track("Onboarded Song " + t, 180 + t));
+            bundles.add(new Onboarding.Bundle(prefix + i, "strongpassword", "Onboarded Artist " + i, "Indie", "USA",
+                    "Debut Album " + i, java.sql.Date.valueOf("2024-10-12"), tracks));
+        }
+
+        Onboarding onboarding = new Onboarding(pool,
+                ConnectionPool.intProp(config, "onboard.groupSize", 100),
+                ConnectionPool.intProp(config, "onboard.maxRetries", 5),
+                ConnectionPool.longProp(config, "onboard.retryBackoffMs", 50));
+        System.out.println(onboarding.onboard(bundles));
+    }
+
     private static void runTransactionDemo(Connection conn) {
         System.out.println("Running transactional workflow...");
         try {
@@ -680,45 +820,59 @@ public class Main {
     /* ---------------------------------------------------
        8. VIEW / STORED PROCEDURE CALLS (SQL)
        --------------------------------------------------- */
-    private static void runViewProcedureMenu(Connection conn, Scanner sc) {
+    private static void runViewProcedureMenu(ConnectionPool pool, Scanner sc) {
         while (true) {
             System.out.println("\n===== MUSIC DB VIEW PROCEDURES OPTIONS MENU =====");
             System.out.println("1. View (SELECT from VIEW)");
             System.out.println("2. Call Stored Procedure/Routine");
+            System.out.println("3. Artist Stats (maintained summary table)");
+            System.out.println("4. Artist Stats For One Artist");
+            System.out.println("5. Rebuild Artist Stats");
+            System.out.println("6. Album Totals (all albums, one grouped query)");
+            System.out.println("7. Dashboard (all reports in parallel)");
+            System.out.println("8. Artist Top Songs");
+            System.out.println("9. Latest Album Per Artist");
             System.out.println("0. Return To Main Menu");
             System.out.print("Choose: ");
 
             String c = sc.nextLine();
 
             switch (c) {
-                case "1": callView(conn); break;
-                case "2": callStoredProcedure(conn); break;
+                case "1": callView(pool); break;
+                case "2": callStoredProcedure(pool); break;
+                case "3": runReport(pool, Reports.ARTIST_STATS); break;
+                case "4": artistStatsForOne(pool, sc); break;
+                case "5": rebuildArtistStats(pool); break;
+                case "6": runReport(pool, Reports.ALBUM_TOTALS); break;
+                case "7": runDashboard(pool, sc); break;
+                case "8": runReport(pool, Reports.ARTIST_TOP_SONG); break;
+                case "9": runReport(pool, Reports.LATEST_ALBUMS); break;
                 case "0": return;
                 default: System.out.println("Invalid option.");
             }
         }
     }
 
-    private static void callView(Connection conn) {
+    private static void callView(ConnectionPool pool) {
         String filePath = "sql/view.sql";
         printSqlFileBeforeRunning(filePath);
 
         System.out.println("\nCalling view SQL...");
 
-        try {
+        try (Connection conn = pool.getConnection()) {
             runSqlFile(conn, filePath);
             System.out.println("View executed successfully.");
         } catch (Exception e) {
             System.out.println("Failed to execute view SQL: " + e.getMessage());
         }
     }
-    private static void callStoredProcedure(Connection conn) {
+    private static void callStoredProcedure(ConnectionPool pool) {
         String filePath = "sql/routine.sql";
         printSqlFileBeforeRunning(filePath);
 
         System.out.println("\nCalling stored procedure SQL...");
 
-        try {
+        try (Connection conn = pool.getConnection()) {
             runSqlFile(conn, filePath);
             System.out.println("Stored procedure executed successfully.");
         } catch (Exception e) {
@@ -726,159 +880,704 @@ public class Main {
         }
     }
 
+    // Panels print in the order their queries finish; ENTER cancels whatever is still running
+    private static void runDashboard(ConnectionPool pool, Scanner sc) {
+        List<Reports.Report> reports = Reports.dashboard();
+        System.out.println("\nRunning " + reports.size() + " reports in parallel. Press ENTER to abort.");
+
+        Dashboard dashboard = new Dashboard(reads, ConnectionPool.intProp(config, "dashboard.queryTimeoutSec", 10),
+                reportCache);
+        boolean[] aborted = {false};
+        try {
+            Dashboard.Summary summary = dashboard.run(reports, panel -> {
+                System.out.printf("%n--- %s (%.1f ms%s) ---%n", panel.report().title, panel.ms(),
+                        panel.ageMs() < 0 ? "" : String.format(", cached %.1f s ago", panel.ageMs() / 1000.0));
+                if (panel.error() != null) {
+                    System.out.println("Failed: " + panel.error());
+                    return;
+                }
+                TablePrinter.printRows(panel.columns(), panel.rows());
+                if (panel.truncated()) System.out.println("(first " + Dashboard.MAX_ROWS + " rows shown)");
+            }, () -> {
+                try {
+                    return aborted[0] = System.in.available() > 0;
+                } catch (java.io.IOException e) {
+                    return false;
+                }
+            });
+            if (aborted[0]) sc.nextLine(); // the ENTER that aborted
+            System.out.println(summary);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    // Rows are streamed to the screen, so a report over a large catalog never sits in memory;
+    // a result small enough for the report cache is kept on the way past
+    private static void runReport(ConnectionPool pool, Reports.Report report) {
+        System.out.println("\n--- " + report.title + " ---");
+
+        long start = System.nanoTime();
+        if (printCached(report, null, start)) return;
+        ReportCache.Capture capture = reportCache.capture(report, null);
+        try (Connection conn = reads.getConnection();
+             PreparedStatement ps = conn.prepareStatement(report.sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = ps.executeQuery()) {
+                TablePrinter.print(rs, capture::onRow);
+                capture.done(rs);
+            }
+            System.out.printf("(%.1f ms)%n", (System.nanoTime() - start) / 1e6);
+        } catch (SQLException e) {
+            System.out.println("Error running report: " + e.getMessage());
+        }
+    }
+    private static void artistStatsForOne(ConnectionPool pool, Scanner sc) {
+        int artistId = readPositiveInt(sc, "ArtistID: ");
+
+        long start = System.nanoTime();
+        if (printCached(Reports.ARTIST_STATS_BY_ID, artistId, start)) return;
+        ReportCache.Capture capture = reportCache.capture(Reports.ARTIST_STATS_BY_ID, artistId);
+        try (Connection conn = reads.getConnection();
+             PreparedStatement ps = conn.prepareStatement(Reports.ARTIST_STATS_BY_ID.sql)) {
+            ps.setInt(1, artistId);
+            try (ResultSet rs = ps.executeQuery()) {
+                TablePrinter.print(rs, capture::onRow);
+                capture.done(rs);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error reading artist stats: " + e.getMessage());
+        }
+    }
+    // Prints the report from the cache when it is there; false on a miss
+    private static boolean printCached(Reports.Report report, Integer artistId, long startNanos) {
+        ReportCache.Result cached = reportCache.get(report, artistId);
+        if (cached == null) return false;
+        TablePrinter.printRows(cached.columns(), cached.rows());
+        System.out.printf("(%.1f ms, cached %.1f s ago)%n", (System.nanoTime() - startNanos) / 1e6,
+                cached.ageMs() / 1000.0);
+        return true;
+    }
+    private static void rebuildArtistStats(ConnectionPool pool) {
+        System.out.println("Rebuilding ArtistSongStats from Song/Album...");
+
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection();
+             CallableStatement cs = conn.prepareCall(Reports.REBUILD_ARTIST_STATS)) {
+            cs.execute();
+            pool.wrote(null, "ArtistSongStats");
+            System.out.printf("Artist stats rebuilt in %.1f ms.%n", (System.nanoTime() - start) / 1e6);
+        } catch (SQLException e) {
+            System.out.println("Error rebuilding artist stats: " + e.getMessage());
+        }
+    }
+
 
     /* ---------------------------------------------------
-       9. Helper Functions
+       9. BULK IMPORT / EXPORT / GENERATOR
        --------------------------------------------------- */
-    // SQL
-    private static void resetDatabase(Connection conn) {
-        System.out.println("Resetting database...");
+    private static void bulkImport(ConnectionPool pool, Scanner sc) {
+        System.out.println("\n--- Bulk Import ---");
+        System.out.println("Tables: " + String.join(", ", BulkImporter.tables()));
+        System.out.println("First line of the file must name the columns, e.g. Title,Duration,AlbumID");
+        String table = readRequiredString(sc, "Table: ");
+        String path = readRequiredString(sc, "File path (.csv or .tsv): ");
+
+        BulkImporter importer = new BulkImporter(pool,
+                ConnectionPool.intProp(config, "import.batchSize", 1000),
+                ConnectionPool.intProp(config, "import.commitEvery", 10000));
 
         try {
-            runSqlFile(conn, "sql/create_and_populate.sql");
-            System.out.println("Database reset complete.");
+            System.out.println("Importing " + path + " into " + table + "...");
+            System.out.println(importer.importFile(table, path));
+            reloadCharts();
         } catch (Exception e) {
-            System.out.println("Failed to reset database: " + e.getMessage());
+            System.out.println("Import failed: " + e.getMessage());
         }
     }
-    private static void runSqlFile(Connection conn, String filePath) throws Exception {
-        StringBuilder sb = new StringBuilder();
-        String delimiter = ";"; // default delimiter
+    private static void exportTable(ConnectionPool pool, Scanner sc) {
+        System.out.println("\n--- Export Table ---");
+        System.out.println("Any table or view, e.g. Song, PlaylistSong, v_artist_song_stats");
+        String table = readRequiredString(sc, "Table or view: ");
+        System.out.print("Format (1 = CSV, 2 = JSON Lines) [1]: ");
+        Exporter.Format format = sc.nextLine().trim().equals("2") ? Exporter.Format.JSONL : Exporter.Format.CSV;
+        System.out.print("Gzip? (y/N): ");
+        boolean gzip = sc.nextLine().trim().equalsIgnoreCase("y");
+        int defaultSplit = ConnectionPool.intProp(config, "export.splitMb", 0);
+        Integer splitMb = readOptionalInt(sc, "Split into files of N MB (ENTER = " + defaultSplit + ", 0 = one file): ");
+        if (splitMb == null) splitMb = defaultSplit;
+
+        Exporter exporter = new Exporter(reads, ConnectionPool.intProp(config, "export.bufferKb", 1024) * 1024);
+        String base = config.getProperty("export.dir", "export") + java.io.File.separator + table;
+        try {
+            System.out.println("Exporting " + table + "...");
+            System.out.println(exporter.export(table, format, gzip, Math.max(0, splitMb) * 1024L * 1024L, base));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Export failed: " + e.getMessage());
+        }
+    }
+    private static void generateData(ConnectionPool pool, Scanner sc) {
+        System.out.println("\n--- Generate Synthetic Data ---");
+        System.out.println("Rows are appended after the current max IDs; a count of 0 reuses existing rows as parents.");
+        int defaultSeed = ConnectionPool.intProp(config, "gen.seed", 42);
+        Integer seed = readOptionalInt(sc, "Seed (ENTER = " + defaultSeed + "): ");
+        DataGenerator.Spec spec = new DataGenerator.Spec(seed == null ? defaultSeed : seed,
+                Math.max(0, readInt(sc, "Users: ")),
+                Math.max(0, readInt(sc, "Artists: ")),
+                Math.max(0, readInt(sc, "Albums: ")),
+                Math.max(0, readInt(sc, "Songs: ")),
+                Math.max(0, readInt(sc, "Playlists: ")));
+
+        DataGenerator generator = new DataGenerator(pool,
+                ConnectionPool.intProp(config, "gen.rowsPerStatement", 1000),
+                ConnectionPool.intProp(config, "gen.commitEvery", 50000),
+                ConnectionPool.doubleProp(config, "gen.zipfExponent", 1.0),
+                ConnectionPool.intProp(config, "gen.maxPlays", 1000000),
+                ConnectionPool.intProp(config, "gen.maxPlaylistSize", 5000));
+        try {
+            System.out.println("Generating...");
+            System.out.println(generator.generate(spec));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Generation failed (rows committed before the error are kept): " + e.getMessage());
+        }
+        catalog.invalidateAll();
+        reloadCharts();
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
 
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
+    /* ---------------------------------------------------
+       10. PLAY COUNTS (write-behind)
+       --------------------------------------------------- */
+    private static void playCountMenu(ConnectionPool pool, Scanner sc) {
+        while (true) {
+            System.out.println("\n===== PLAY COUNTS MENU =====");
+            System.out.println("1. Record Plays For A Song");
+            System.out.println("2. Simulate Listening Traffic");
+            System.out.println("3. Flush Now");
+            System.out.println("4. Show Stats");
+            System.out.println("5. Top Songs");
+            System.out.println("6. Top Artists");
+            System.out.println("7. Top Songs For An Artist");
+            System.out.println("8. Reload Charts From Database");
+            System.out.println("9. Top Songs In The Last N Hours (history)");
+            System.out.println("10. Plays Of One Song In The Last N Hours (history)");
+            System.out.println("11. Roll Up Play History Now");
+            System.out.println("12. Check TimesPlayed Against History");
+            System.out.println("0. Return To Main Menu");
+            System.out.print("Choose: ");
 
-                // Ignore comment lines
-                if (line.startsWith("--") || line.startsWith("#") || line.isEmpty()) {
-                    continue;
-                }
+            String c = sc.nextLine();
+
+            switch (c) {
+                case "1": recordPlays(sc); break;
+                case "2": simulatePlays(pool, sc); break;
+                case "3": flushPlays(); break;
+                case "4": System.out.println(playCounts.stats()); break;
+                case "5": showTopSongs(sc); break;
+                case "6": showTopArtists(sc); break;
+                case "7": showTopSongsForArtist(sc); break;
+                case "8": reloadCharts(); System.out.println(charts.stats()); break;
+                case "9": case "10": case "11": case "12": playHistoryOption(c, sc); break;
+                case "0": return;
+                default: System.out.println("Invalid option.");
+            }
+        }
+    }
+
+    private static void recordPlays(Scanner sc) {
+        int songId = readPositiveInt(sc, "SongID: ");
+        Integer userId = readOptionalInt(sc, "UserID (ENTER = anonymous): ");
+        int plays = readPositiveInt(sc, "Plays: ");
 
-                // Detect delimiter change
-                if (line.toUpperCase().startsWith("DELIMITER")) {
-                    delimiter = line.substring("DELIMITER".length()).trim();
-                    continue;
+        try {
+            playCounts.record(songId, userId, plays);
+            System.out.println("Recorded. Written to Song.TimesPlayed on the next flush.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    private static void simulatePlays(ConnectionPool pool, Scanner sc) {
+        int total = readPositiveInt(sc, "Number of plays: ");
+        int threads = readPositiveInt(sc, "Listener threads: ");
+
+        // Every existing song can be played; low indexes are played far more often.
+        // Each play is by a random user, for the play history.
+        java.util.List<Integer> songIds = new java.util.ArrayList<>();
+        java.util.List<Integer> userIds = new java.util.ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT SongID FROM Song");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) songIds.add(rs.getInt(1));
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT UserID FROM `User` WHERE DeletedAt IS NULL");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) userIds.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading songs: " + e.getMessage());
+            return;
+        }
+        if (songIds.isEmpty()) {
+            System.out.println("No songs to play.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int plays = total / threads + (t < total % threads ? 1 : 0);
+            workers[t] = new Thread(() -> {
+                java.util.concurrent.ThreadLocalRandom rnd = java.util.concurrent.ThreadLocalRandom.current();
+                try {
+                    for (int i = 0; i < plays; i++) {
+                        double skew = Math.pow(rnd.nextDouble(), 3);
+                        Integer userId = userIds.isEmpty() ? null : userIds.get(rnd.nextInt(userIds.size()));
+                        playCounts.record(songIds.get((int) (skew * songIds.size())), userId, 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        double ingestSecs = (System.nanoTime() - start) / 1e9;
 
-                sb.append(line).append("\n");
+        flushPlays();
+        double totalSecs = (System.nanoTime() - start) / 1e9;
 
-                // Check if statement ends with the current delimiter
-                if (sb.toString().trim().endsWith(delimiter)) {
-                    String sql = sb.toString().trim();
-                    sb.setLength(0);
+        System.out.printf("Ingested %d plays in %.3f s (%.0f plays/sec); durable after flush in %.3f s (%.0f plays/sec)%n",
+                total, ingestSecs, total / ingestSecs, totalSecs, total / totalSecs);
+    }
+    private static void flushPlays() {
+        try {
+            playCounts.flush();
+            System.out.println(playCounts.stats());
+        } catch (SQLException e) {
+            System.out.println("Flush failed (will retry): " + e.getMessage());
+        }
+    }
 
-                    // Remove the delimiter from the end
-                    sql = sql.substring(0, sql.length() - delimiter.length()).trim();
+    // Charts count flushed plays only; press Flush Now to see the latest
+    private static void showTopSongs(Scanner sc) {
+        int n = readPositiveInt(sc, "How many: ");
+        long start = System.nanoTime();
+        List<Charts.SongRow> top = charts.topSongs(n);
+        printChart(Charts.SongRow.COLUMNS, top.stream().map(Charts.SongRow::values).toList(), start);
+    }
+    private static void showTopArtists(Scanner sc) {
+        int n = readPositiveInt(sc, "How many: ");
+        long start = System.nanoTime();
+        List<Charts.ArtistRow> top = charts.topArtists(n);
+        printChart(Charts.ArtistRow.COLUMNS, top.stream().map(Charts.ArtistRow::values).toList(), start);
+    }
+    private static void showTopSongsForArtist(Scanner sc) {
+        int artistId = readInt(sc, "ArtistID: ");
+        int n = readPositiveInt(sc, "How many: ");
+        long start = System.nanoTime();
+        List<Charts.SongRow> top = charts.topSongsForArtist(artistId, n);
+        printChart(Charts.SongRow.COLUMNS, top.stream().map(Charts.SongRow::values).toList(), start);
+    }
+    private static void printChart(String[] columns, List<Object[]> rows, long startNanos) {
+        double micros = (System.nanoTime() - startNanos) / 1e3;
+        if (rows.isEmpty()) System.out.println("Nothing to show.");
+        else TablePrinter.printRows(columns, rows);
+        System.out.printf("(read in %.1f us)%n", micros);
+    }
+    private static void playHistoryOption(String option, Scanner sc) {
+        if (history == null) {
+            System.out.println("Play history is off (history.enabled, or run 999. Reset Database).");
+            return;
+        }
+        try {
+            switch (option) {
+                case "9": {
+                    int hours = readPositiveInt(sc, "Hours back: ");
+                    int n = readPositiveInt(sc, "How many: ");
+                    java.time.LocalDateTime now = java.time.LocalDateTime.now();
+                    List<Object[]> rows = new java.util.ArrayList<>();
+                    for (PlayHistory.SongPlays p : history.topSongs(now.minusHours(hours), now, n)) rows.add(p.values());
+                    if (rows.isEmpty()) System.out.println("No plays in that window.");
+                    else TablePrinter.printRows(PlayHistory.SongPlays.COLUMNS, rows);
+                    break;
+                }
+                case "10": {
+                    int songId = readPositiveInt(sc, "SongID: ");
+                    int hours = readPositiveInt(sc, "Hours back: ");
+                    java.time.LocalDateTime now = java.time.LocalDateTime.now();
+                    System.out.println("Plays: " + history.songPlays(songId, now.minusHours(hours), now));
+                    break;
+                }
+                case "11":
+                    flushPlays();
+                    System.out.println("Rolled up " + history.rollup() + " events.");
+                    System.out.println(history.stats());
+                    break;
+                case "12": {
+                    List<Object[]> rows = history.inconsistentSongs(20);
+                    if (rows.isEmpty()) System.out.println("Every song's TimesPlayed matches its history.");
+                    else TablePrinter.printRows(new String[]{"SongID", "Title", "TimesPlayed", "History"}, rows);
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error reading play history: " + e.getMessage());
+        }
+    }
+    // Re-reads the top songs and artists (the charts wait for any flush in flight)
+    private static void reloadCharts() {
+        try {
+            charts.reload();
+        } catch (SQLException e) {
+            System.out.println("Error loading charts: " + e.getMessage());
+        }
+    }
 
-                    try {
-                        System.out.println("\nExecuting SQL:\n" + sql);
 
-                        if (sql.toLowerCase().startsWith("select")) {
-                            tryPrintSelectResult(conn, sql);
-                        } else {
-                            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                                ps.execute();
-                            }
-                        }
+    /* ---------------------------------------------------
+       11. PLAYLISTS
+       --------------------------------------------------- */
+    private static void playlistMenu(Scanner sc) {
+        while (true) {
+            System.out.println("\n===== PLAYLISTS MENU =====");
+            System.out.println("1. List A User's Playlists");
+            System.out.println("2. Create Playlist");
+            System.out.println("3. Add Songs");
+            System.out.println("4. Remove Songs");
+            System.out.println("5. Move Song");
+            System.out.println("6. Browse Playlist");
+            System.out.println("7. Delete Playlist");
+            System.out.println("0. Return To Main Menu");
+            System.out.print("Choose: ");
 
-                        System.out.println("Statement executed successfully.");
+            String c = sc.nextLine();
 
-                    } catch (SQLException e) {
-                        System.out.println("\n--- SQL EXECUTION ERROR ---");
-                        System.out.println("Error executing: " + sql);
-                        System.out.println("Message: " + e.getMessage());
-                    }
+            try {
+                switch (c) {
+                    case "1": listPlaylists(sc); break;
+                    case "2": createPlaylist(sc); break;
+                    case "3": addPlaylistSongs(sc); break;
+                    case "4": removePlaylistSongs(sc); break;
+                    case "5": movePlaylistSong(sc); break;
+                    case "6": browsePlaylist(sc); break;
+                    case "7": deletePlaylist(sc); break;
+                    case "0": return;
+                    default: System.out.println("Invalid option.");
                 }
+            } catch (SQLException e) {
+                System.out.println("Playlist operation failed: " + e.getMessage());
             }
         }
     }
-    private static void printSqlFileBeforeRunning(String filePath) {
-        System.out.println("\n--- SQL FILE: " + filePath + " ---");
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                System.out.println(line);
+    private static void listPlaylists(Scanner sc) throws SQLException {
+        int userId = readInt(sc, "UserID: ");
+        List<Object[]> rows = new java.util.ArrayList<>();
+        for (Playlists.Playlist p : playlists.forUser(userId)) rows.add(p.values());
+        TablePrinter.printRows(Playlists.Playlist.COLUMNS, rows);
+    }
+    private static void createPlaylist(Scanner sc) throws SQLException {
+        int userId = readInt(sc, "UserID: ");
+        String title = readRequiredString(sc, "Title: ");
+        System.out.println("Created playlist " + playlists.create(userId, title) + ".");
+    }
+    private static void addPlaylistSongs(Scanner sc) throws SQLException {
+        int playlistId = readInt(sc, "PlaylistID: ");
+        List<Integer> songIds = readIdList(sc, "SongIDs to append (e.g. 4,8,15-42): ");
+
+        long calls = StatementCache.executionsOnThisThread();
+        int added = playlists.addSongs(playlistId, songIds);
+        System.out.println("Added " + added + " of " + songIds.size() + " songs"
+                + (added < songIds.size() ? " (the rest were already in the playlist or do not exist)" : "")
+                + ". (server calls: " + (StatementCache.executionsOnThisThread() - calls) + ")");
+    }
+    private static void removePlaylistSongs(Scanner sc) throws SQLException {
+        int playlistId = readInt(sc, "PlaylistID: ");
+        List<Integer> songIds = readIdList(sc, "SongIDs to remove (e.g. 4,8,15-42): ");
+
+        long calls = StatementCache.executionsOnThisThread();
+        int removed = playlists.removeSongs(playlistId, songIds);
+        System.out.println("Removed " + removed + " songs. (server calls: "
+                + (StatementCache.executionsOnThisThread() - calls) + ")");
+    }
+    private static void movePlaylistSong(Scanner sc) throws SQLException {
+        int playlistId = readInt(sc, "PlaylistID: ");
+        int songId = readInt(sc, "SongID to move: ");
+        Integer before = readOptionalInt(sc, "Place before SongID (ENTER = move to end): ");
+
+        if (playlists.move(playlistId, songId, before))
+            System.out.println("Song moved.");
+        else
+            System.out.println("Both songs must already be in the playlist.");
+    }
+    private static void browsePlaylist(Scanner sc) throws SQLException {
+        int playlistId = readInt(sc, "PlaylistID: ");
+        long after = 0;
+
+        while (true) {
+            List<Playlists.Track> page = playlists.page(playlistId, after, pageSize());
+            if (page.isEmpty()) {
+                System.out.println(after == 0 ? "Playlist is empty or does not exist." : "End of playlist.");
+                return;
             }
-        } catch (Exception e) {
-            System.out.println("Failed to read SQL file: " + e.getMessage());
-        }
 
-        System.out.println("\n--- END OF SQL FILE ---\n");
+            List<Object[]> rows = new java.util.ArrayList<>(page.size());
+            for (Playlists.Track t : page) rows.add(t.values());
+            TablePrinter.printRows(Playlists.Track.COLUMNS, rows);
+            after = page.get(page.size() - 1).position();
+
+            if (page.size() < pageSize()) return;
+            System.out.print("ENTER = next page, q = stop: ");
+            if (sc.nextLine().trim().equalsIgnoreCase("q")) return;
+        }
+    }
+    private static void deletePlaylist(Scanner sc) throws SQLException {
+        int playlistId = readInt(sc, "PlaylistID to delete: ");
+        System.out.println(playlists.delete(playlistId) ? "Playlist deleted." : "No playlist found with that ID.");
     }
-    private static void tryPrintSelectResult(Connection conn, String sql) {
-        String trimmed = sql.trim().toLowerCase();
 
-        if (!trimmed.startsWith("select")) return;  // not a SELECT statement
 
-        try (PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
+    /* ---------------------------------------------------
+       12. HTTP API
+       --------------------------------------------------- */
+    private static void apiMenu(ConnectionPool pool, Scanner sc) {
+        while (true) {
+            System.out.println("\n===== HTTP API MENU =====");
+            System.out.println(api == null ? "(not running)" : api.stats());
+            System.out.println("1. Start Server");
+            System.out.println("2. Stop Server");
+            System.out.println("3. Load Test (concurrent GETs)");
+            System.out.println("4. Show Server Metrics");
+            System.out.println("0. Return To Main Menu");
+            System.out.print("Choose: ");
 
-            System.out.println("\n--- RESULT SET ---");
-            printResultSetTable(rs);
+            String c = sc.nextLine();
 
-        } catch (SQLException e) {
-            System.out.println("Error printing SELECT result: " + e.getMessage());
+            switch (c) {
+                case "1": startApi(pool); break;
+                case "2": stopApi(); break;
+                case "3": apiLoadTest(pool, sc); break;
+                case "4": System.out.println(api == null ? "Server is not running." : api.metricsJson()); break;
+                case "0": return;
+                default: System.out.println("Invalid option.");
+            }
         }
     }
 
+    private static void startApi(ConnectionPool pool) {
+        if (api != null) {
+            System.out.println("Already running on port " + api.port() + ".");
+            return;
+        }
+        try {
+            api = new ApiServer(reads, reportCache, catalog, charts,
+                    ConnectionPool.intProp(config, "api.port", 8080),
+                    ConnectionPool.intProp(config, "api.pageSize", 50),
+                    ConnectionPool.intProp(config, "api.maxPageSize", 500),
+                    ConnectionPool.intProp(config, "api.platformThreads", 64));
+            System.out.println("Listening on http://localhost:" + api.port() + "/ (try /songs?limit=5, /metrics)");
+        } catch (java.io.IOException e) {
+            System.out.println("Could not start the API server: " + e.getMessage());
+        }
+    }
+    private static void stopApi() {
+        if (api == null) return;
+        api.close();
+        api = null;
+        System.out.println("API server stopped.");
+    }
+    private static void apiLoadTest(ConnectionPool pool, Scanner sc) {
+        if (api == null) startApi(pool);
+        if (api == null) return;
 
-    // UI
-    private static void printResultSetTable(ResultSet rs) {
+        int clients = readPositiveInt(sc, "Concurrent clients: ");
+        int seconds = readPositiveInt(sc, "Seconds: ");
         try {
-            ResultSetMetaData md = rs.getMetaData();
-            int colCount = md.getColumnCount();
+            List<String> paths = ApiLoadTest.readPaths(pool);
+            api.resetMetrics();
+            System.out.println("Running " + clients + " clients for " + seconds + " s...");
+            System.out.println(ApiLoadTest.run("http://localhost:" + api.port(), paths, clients, seconds));
+            System.out.println("Server side: " + api.metricsJson());
+        } catch (SQLException e) {
+            System.out.println("Error picking IDs for the load test: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            // Determine column widths
-            int[] widths = new int[colCount];
 
-            // Initialize with column name lengths
-            for (int i = 0; i < colCount; i++) {
-                widths[i] = md.getColumnName(i + 1).length();
-            }
+    /* ---------------------------------------------------
+       13. DIAGNOSTICS
+       --------------------------------------------------- */
+    private static void diagnosticsMenu(ConnectionPool pool, Scanner sc) {
+        while (true) {
+            System.out.println("\n===== DIAGNOSTICS MENU =====");
+            System.out.println("1. Show Stats");
+            System.out.println("2. Index Advisor (EXPLAIN every query the app uses)");
+            System.out.println("0. Return To Main Menu");
+            System.out.print("Choose: ");
 
-            // Store rows and compute field widths
-            java.util.List<String[]> rows = new java.util.ArrayList<>();
+            String c = sc.nextLine();
 
-            while (rs.next()) {
-                String[] row = new String[colCount];
-                for (int i = 0; i < colCount; i++) {
-                    String value = rs.getString(i + 1);
-                    if (value == null) value = "NULL";
-                    row[i] = value;
-                    widths[i] = Math.max(widths[i], value.length());
-                }
-                rows.add(row);
+            switch (c) {
+                case "1": showStats(pool); break;
+                case "2": runIndexAdvisor(pool); break;
+                case "0": return;
+                default: System.out.println("Invalid option.");
             }
+        }
+    }
 
-            // Print header
-            System.out.println();
-            for (int i = 0; i < colCount; i++) {
-                System.out.printf("%-" + (widths[i] + 2) + "s", md.getColumnName(i + 1));
-            }
-            System.out.println();
+    private static void showStats(ConnectionPool pool) {
+        System.out.println("\n===== DIAGNOSTICS =====");
+        System.out.println(pool.stats());
+        System.out.println(pool.statementStats());
+        System.out.println(playCounts.stats());
+        System.out.println(catalog.stats());
+        System.out.println(charts.stats());
+        if (history != null) System.out.println(history.stats());
+        if (api != null) System.out.println(api.stats());
+        if (purger != null) System.out.println(purger.stats());
+        System.out.println(reads.stats());
+        System.out.println(reportCache.stats());
+    }
+    private static void runIndexAdvisor(ConnectionPool pool) {
+        try {
+            List<IndexAdvisor.Query> queries = IndexAdvisor.collect(pool.statementStats().seenSql(), "src", "sql");
+            new IndexAdvisor(pool,
+                    Boolean.parseBoolean(config.getProperty("advisor.analyze", "true")),
+                    ConnectionPool.longProp(config, "advisor.minRows", 0))
+                    .run(queries);
+        } catch (Exception e) {
+            System.out.println("Index advisor failed: " + e.getMessage());
+        }
+    }
 
-            // Separator line
-            for (int i = 0; i < colCount; i++) {
-                System.out.print("-".repeat(widths[i] + 2));
-            }
-            System.out.println();
 
-            // Print rows
-            for (String[] row : rows) {
-                for (int i = 0; i < colCount; i++) {
-                    System.out.printf("%-" + (widths[i] + 2) + "s", row[i]);
-                }
-                System.out.println();
-            }
+    /* ---------------------------------------------------
+       14. Helper Functions
+       --------------------------------------------------- */
+    // SQL
+    private static void resetDatabase(ConnectionPool pool) {
+        System.out.println("Resetting database...");
 
-            System.out.println();
+        try (Connection conn = pool.getConnection()) {
+            SqlScriptRunner.Report report = new SqlScriptRunner(conn)
+                    .echo(Boolean.parseBoolean(config.getProperty("sql.reset.echo", "false")))
+                    .batch(true)
+                    .batchSize(ConnectionPool.intProp(config, "sql.batchSize", 1000))
+                    .run("sql/create_and_populate.sql");
+            dataReplaced(pool);
+            System.out.println(report);
+            System.out.println("Database reset complete.");
+        } catch (Exception e) {
+            System.out.println("Failed to reset database: " + e.getMessage());
+        }
+    }
+    // After Reset Database or a snapshot restore: nothing cached or derived is still valid
+    private static void dataReplaced(ConnectionPool pool) throws SQLException {
+        pool.wrote(null, "User", "Artist", "Album", "Song", "Playlist", "ArtistSongStats");
+        catalog.invalidateAll();
+        reloadCharts();
+        if (history == null) startHistory(pool);
+        else history.maintain(); // day partitions for the new PlayEvent table
+        startPurger(pool);
+    }
+    private static Snapshot snapshot(ConnectionPool pool) {
+        return new Snapshot(pool,
+                ConnectionPool.intProp(config, "snapshot.threads", 4),
+                ConnectionPool.intProp(config, "snapshot.rowsPerStatement", 1000));
+    }
+    private static java.nio.file.Path snapshotDir() {
+        return java.nio.file.Path.of(config.getProperty("snapshot.dir", "snapshot"));
+    }
+    private static void saveSnapshot(ConnectionPool pool) {
+        java.nio.file.Path dir = snapshotDir();
+        System.out.println("Saving snapshot to " + dir.toAbsolutePath() + "...");
+        try {
+            playCounts.flush(); // buffered plays belong in the snapshot
+            System.out.println(snapshot(pool).capture(dir));
+            System.out.println("Snapshot saved; 998 restores it.");
+        } catch (Exception e) {
+            System.out.println("Failed to save snapshot: " + e.getMessage());
+        }
+    }
+    private static void restoreSnapshot(ConnectionPool pool) {
+        java.nio.file.Path dir = snapshotDir();
+        if (!Snapshot.exists(dir)) {
+            System.out.println("No snapshot in " + dir.toAbsolutePath() + ". Run 999 (or load data), then 997 to save one.");
+            return;
+        }
+        System.out.println("Restoring snapshot from " + dir.toAbsolutePath() + "...");
 
+        // Nothing else may write between the truncate and the reload: no flush, rollup or purge
+        if (history != null) history.close();
+        if (purger != null) purger.close();
+        history = null;
+        purger = null;
+
+        Snapshot.Report[] report = new Snapshot.Report[1];
+        try {
+            playCounts.withoutFlushing(() -> {
+                long dropped = playCounts.discardPending(); // they counted against the data being replaced
+                if (dropped > 0) System.out.println("Discarded " + dropped + " buffered plays.");
+                try {
+                    report[0] = snapshot(pool).restore(dir);
+                } catch (java.io.IOException e) {
+                    throw new SQLException(e.getMessage(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted", e);
+                }
+            });
+            dataReplaced(pool);
+            System.out.println(report[0]);
+            System.out.println("Database restored from snapshot.");
         } catch (SQLException e) {
-            System.out.println("Error printing table: " + e.getMessage());
+            System.out.println("Failed to restore snapshot: " + e.getMessage());
+        } finally {
+            // Already back after dataReplaced; this covers a failed restore
+            startHistory(pool);
+            startPurger(pool);
+        }
+    }
+    private static void runSqlFile(Connection conn, String filePath) throws Exception {
+        // Interactive: echo every statement and print every result set
+        new SqlScriptRunner(conn).run(filePath);
+    }
+    private static void printSqlFileBeforeRunning(String filePath) {
+        System.out.println("\n--- SQL FILE: " + filePath + " ---");
+
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                System.out.println(line);
+            }
+        } catch (Exception e) {
+            System.out.println("Failed to read SQL file: " + e.getMessage());
         }
+
+        System.out.println("\n--- END OF SQL FILE ---\n");
+    }
+
+    // UI
+    private static int pageSize() {
+        return ConnectionPool.intProp(config, "ui.pageSize", 50);
+    }
+    private static void printWrittenRow(String[] columns, Object[] values, long callsBefore) {
+        TablePrinter.printRow(columns, values);
+        System.out.println("(server calls: " + (StatementCache.executionsOnThisThread() - callsBefore) + ")");
     }
     public static boolean askRetry(Scanner sc) {
         while (true) {
@@ -916,6 +1615,41 @@ public class Main {
             return null;
         }
     }
+    // "4, 8, 15-42" -> [4, 8, 15, 16, ..., 42], at most MAX_ID_LIST IDs
+    private static List<Integer> readIdList(Scanner sc, String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String input = sc.nextLine().trim();
+            List<Integer> ids = new java.util.ArrayList<>();
+
+            try {
+                for (String part : input.split(",")) {
+                    part = part.trim();
+                    if (part.isEmpty()) continue;
+                    int dash = part.indexOf('-', 1);
+                    if (dash < 0) {
+                        ids.add(Integer.parseInt(part));
+                    } else {
+                        int from = Integer.parseInt(part.substring(0, dash).trim());
+                        int to = Integer.parseInt(part.substring(dash + 1).trim());
+                        if (to < from) throw new IllegalArgumentException("Range " + part + " runs backwards.");
+                        if ((long) to - from + 1 > MAX_ID_LIST - ids.size()) throw tooManyIds();
+                        for (long id = from; id <= to; id++) ids.add((int) id); // long: to may be Integer.MAX_VALUE
+                    }
+                    if (ids.size() > MAX_ID_LIST) throw tooManyIds();
+                }
+                if (!ids.isEmpty()) return ids;
+                System.out.println("Enter at least one ID.");
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid list. Use numbers and ranges, e.g. 4,8,15-42.");
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+    private static IllegalArgumentException tooManyIds() {
+        return new IllegalArgumentException("At most " + MAX_ID_LIST + " IDs at a time.");
+    }
     private static int readPositiveInt(Scanner sc, String prompt) {
         while (true) {
             System.out.print(prompt);
@@ -0,0 +1,82 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/* ---------------------------------------------------
+   MULTI-ROW INSERT
+   Buffers rows and sends them rowsPerStatement at a time in one
+   INSERT ... VALUES (...), (...); the full-size statement is prepared
+   once and reused, the partial last one by finish(). Commits every
+   commitEvery rows (the caller turns autocommit off and commits the rest).
+   --------------------------------------------------- */
+public class MultiRowInsert implements AutoCloseable {
+
+    private final Connection conn;
+    private final String prefix;
+    private final String rowPlaceholders;
+    private final int columns;
+    private final int rowsPerStatement;
+    private final long commitEvery;
+    private final boolean progress;
+    private final Object[] buffer;
+    private PreparedStatement full;
+    private int buffered;
+    private long rows;
+    private long sinceCommit;
+    final long startNanos = System.nanoTime();
+
+    // table and columns are trusted identifiers from code or the schema, never user input
+    public MultiRowInsert(Connection conn, String table, int rowsPerStatement, long commitEvery, boolean progress,
+                          String... columns) {
+        this.conn = conn;
+        this.columns = columns.length;
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        this.commitEvery = Math.max(this.rowsPerStatement, commitEvery);
+        this.progress = progress;
+        this.prefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+        this.rowPlaceholders = "(" + "?, ".repeat(columns.length - 1) + "?)";
+        this.buffer = new Object[this.rowsPerStatement * columns.length];
+    }
+
+    public void add(Object... values) throws SQLException {
+        System.arraycopy(values, 0, buffer, buffered * columns, columns);
+        if (++buffered == rowsPerStatement) {
+            if (full == null) full = conn.prepareStatement(sql(rowsPerStatement));
+            send(full);
+        }
+    }
+
+    private String sql(int rowCount) {
+        return prefix + (rowPlaceholders + ", ").repeat(rowCount - 1) + rowPlaceholders;
+    }
+
+    private void send(PreparedStatement ps) throws SQLException {
+        for (int i = 0; i < buffered * columns; i++) ps.setObject(i + 1, buffer[i]);
+        ps.executeUpdate();
+        rows += buffered;
+        sinceCommit += buffered;
+        buffered = 0;
+        if (sinceCommit >= commitEvery) {
+            conn.commit();
+            sinceCommit = 0;
+            if (progress) {
+                System.out.printf("  ... %d rows, %.0f rows/sec%n", rows, rows / ((System.nanoTime() - startNanos) / 1e9));
+            }
+        }
+    }
+
+    // Sends the partial last statement; returns the rows inserted
+    public long finish() throws SQLException {
+        if (buffered > 0) {
+            try (PreparedStatement tail = conn.prepareStatement(sql(buffered))) {
+                send(tail);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (full != null) full.close();
+    }
+}
@@ -0,0 +1,191 @@
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* ---------------------------------------------------
+   ONBOARDING (many User -> Artist -> Album -> Song bundles at once)
+   Bundles go in groups of groupSize, one transaction per group: one
+   batched INSERT per table (rewriteBatchedStatements makes each a
+   multi-row INSERT), with each level's generated keys feeding the next
+   level's foreign keys. That is 4 round trips and 1 commit per group
+   instead of 4+ round trips and a commit per bundle.
+   A group that fails with a transient error (deadlock, lock wait
+   timeout, lost connection) is rolled back and retried on its own after
+   a jittered backoff; groups already committed stay committed. Any other
+   error stops the run.
+   --------------------------------------------------- */
+public class Onboarding {
+
+    public record Track(String title, int duration) {
+    }
+
+    public record Bundle(String username, String password, String artistName, String genre, String country,
+                         String albumTitle, Date releaseDate, List<Track> tracks) {
+    }
+
+    public static final class Result {
+        int bundles;
+        int songs;
+        int groups;
+        int retries;
+        long nanos;
+        String error; // why the run stopped early, or null
+
+        @Override
+        public String toString() {
+            double secs = nanos / 1e9;
+            return String.format("Onboarded %d bundles (%d songs) in %d groups, %d retries, %.2f s (%.0f bundles/sec)%s",
+                    bundles, songs, groups, retries, secs, secs > 0 ? bundles / secs : 0.0,
+                    error == null ? "" : "\nStopped: " + error);
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final int groupSize;
+    private final int maxRetries;
+    private final long backoffMs;
+
+    public Onboarding(ConnectionPool pool, int groupSize, int maxRetries, long backoffMs) {
+        this.pool = pool;
+        this.groupSize = Math.max(1, groupSize);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    public Result onboard(List<Bundle> bundles) {
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        for (int from = 0; from < bundles.size(); from += groupSize) {
+            List<Bundle> group = bundles.subList(from, Math.min(bundles.size(), from + groupSize));
+            try {
+                result.songs += commitGroup(group, result);
+                result.bundles += group.size();
+                result.groups++;
+            } catch (SQLException e) {
+                result.error = "bundles " + (from + 1) + "-" + (from + group.size()) + ": " + e.getMessage();
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.error = "interrupted";
+                break;
+            }
+        }
+
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // One group, retried while the failure is transient; returns the songs inserted
+    private int commitGroup(List<Bundle> group, Result result) throws SQLException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return insertGroup(group);
+            } catch (SQLException e) {
+                // A commit lost with its connection may have applied; the retry then hits the
+                // unique Username and stops the run instead of onboarding twice
+                if (!isTransient(e) || attempt >= maxRetries) throw e;
+                result.retries++;
+                // Exponential backoff with jitter, so the transactions that collided do not collide again
+                long cap = backoffMs << Math.min(attempt, 10);
+                Thread.sleep(cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+            }
+        }
+    }
+
+    private int insertGroup(List<Bundle> group) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int[] userIds = insertBatch(conn, "INSERT INTO `User` (Username, Password) VALUES (?, ?)",
+                        group, (ps, b, i) -> {
+                            ps.setString(1, b.username());
+                            ps.setString(2, b.password());
+                        });
+                int[] artistIds = insertBatch(conn, "INSERT INTO Artist (Name, Genre, Country, UserID) VALUES (?, ?, ?, ?)",
+                        group, (ps, b, i) -> {
+                            ps.setString(1, b.artistName());
+                            ps.setString(2, b.genre());
+                            ps.setString(3, b.country());
+                            ps.setInt(4, userIds[i]);
+                        });
+                int[] albumIds = insertBatch(conn, "INSERT INTO Album (Title, ReleaseDate, ArtistID) VALUES (?, ?, ?)",
+                        group, (ps, b, i) -> {
+                            ps.setString(1, b.albumTitle());
+                            ps.setDate(2, b.releaseDate());
+                            ps.setInt(3, artistIds[i]);
+                        });
+
+                int songs = 0;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO Song (Title, Duration, AlbumID) VALUES (?, ?, ?)")) {
+                    for (int i = 0; i < group.size(); i++) {
+                        for (Track t : group.get(i).tracks()) {
+                            ps.setString(1, t.title());
+                            ps.setInt(2, t.duration());
+                            ps.setInt(3, albumIds[i]);
+                            ps.addBatch();
+                            songs++;
+                        }
+                    }
+                    if (songs > 0) ps.executeBatch();
+                }
+
+                conn.commit();
+                pool.wrote(null, "User", "Artist", "Album", "Song");
+                return songs;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) {
+                    // connection is gone; the pool discards it and the server rolled back
+                }
+                throw e;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps, Bundle b, int index) throws SQLException;
+    }
+
+    // One row per bundle; returns the generated keys in bundle order
+    private static int[] insertBatch(Connection conn, String sql, List<Bundle> group, Binder binder) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < group.size(); i++) {
+                binder.bind(ps, group.get(i), i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            int[] ids = new int[group.size()];
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!keys.next()) throw new SQLException("Missing generated key for: " + sql);
+                    ids[i] = keys.getInt(1);
+                }
+            }
+            return ids;
+        }
+    }
+
+    // Deadlock (1213 / 40001), lock wait timeout (1205), lost connection (class 08)
+    static boolean isTransient(SQLException e) {
+        for (SQLException x = e; x != null; x = x.getNextException()) {
+            String state = x.getSQLState();
+            if (x instanceof SQLTransientException || x instanceof SQLRecoverableException
+                    || x.getErrorCode() == 1213 || x.getErrorCode() == 1205
+                    || "40001".equals(state) || (state != null && state.startsWith("08"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,399 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/* ---------------------------------------------------
+   WRITE-BEHIND PLAY COUNTS
+   record(songId) only bumps an in-memory counter. A background flusher
+   turns the accumulated per-song deltas into one batched transaction of
+   UPDATE Song SET TimesPlayed = TimesPlayed + ? statements.
+   With history on, counters are kept per (song, user, second) and the same
+   transaction inserts them as PlayEvent rows, so TimesPlayed and the
+   event history never disagree.
+   Memory is bounded by maxPendingSongs: a full stripe blocks its
+   recorders, and while a failed flush's carried-over entries are at the
+   bound every recorder of a new entry blocks until a flush succeeds.
+   --------------------------------------------------- */
+public class PlayCountIngestor implements AutoCloseable {
+
+    // What plays are coalesced by; userId is null and second 0 when history is off
+    private record PlayKey(int songId, Integer userId, long second) {}
+
+    // One stripe per lock; a thread always lands on the same stripe
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition notFull = lock.newCondition();
+        HashMap<PlayKey, int[]> deltas = new HashMap<>();
+    }
+
+    private final ConnectionPool pool;
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final int maxPending;
+    private final int flushBatchSize;
+    private volatile boolean recordHistory;
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Object flushLock = new Object();
+
+    // Told about every committed flush (SongID -> plays added), on the flushing thread
+    private final List<Consumer<Map<Integer, Long>>> flushListeners = new CopyOnWriteArrayList<>();
+
+    // Deltas from a failed flush, retried first next time; carriedKeys is its size for recorders
+    private final HashMap<PlayKey, Long> carryOver = new HashMap<>();
+    private volatile int carriedKeys;
+
+    // Counters
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong flushedPlays = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong eventsWritten = new AtomicLong();
+    private final AtomicLong unknownSongs = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    private volatile double lastFlushMs;
+    private final long startNanos = System.nanoTime();
+
+    public PlayCountIngestor(ConnectionPool pool, long flushIntervalMs, int maxPendingSongs, int flushBatchSize,
+                             boolean recordHistory) {
+        this.pool = pool;
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+        this.recordHistory = recordHistory;
+
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) stripes[i] = new Stripe();
+        this.stripeCapacity = Math.max(1, maxPendingSongs / count);
+        this.maxPending = Math.max(1, maxPendingSongs);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "play-count-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /* ---------------------------------------------------
+       INGESTION
+       --------------------------------------------------- */
+    public void record(int songId) throws InterruptedException {
+        record(songId, null, 1);
+    }
+
+    public void record(int songId, int plays) throws InterruptedException {
+        record(songId, null, plays);
+    }
+
+    // Blocks while this thread's stripe is full, or unflushed carry-over is at the bound (backpressure)
+    public void record(int songId, Integer userId, int plays) throws InterruptedException {
+        if (closed.get()) throw new IllegalStateException("Play count ingestion is shut down.");
+        if (plays <= 0) return;
+
+        PlayKey key = recordHistory
+                ? new PlayKey(songId, userId, System.currentTimeMillis() / 1000)
+                : new PlayKey(songId, null, 0);
+
+        Stripe stripe = stripeFor(Thread.currentThread());
+        stripe.lock.lock();
+        try {
+            int[] counter = stripe.deltas.get(key);
+            while (counter == null && (stripe.deltas.size() >= stripeCapacity || carriedKeys >= maxPending)) {
+                backpressureWaits.incrementAndGet();
+                requestFlush();
+                stripe.notFull.await();
+                counter = stripe.deltas.get(key);
+            }
+            if (counter == null) stripe.deltas.put(key, counter = new int[1]);
+            counter[0] += plays;
+        } finally {
+            stripe.lock.unlock();
+        }
+        recorded.addAndGet(plays);
+    }
+
+    private Stripe stripeFor(Thread thread) {
+        long h = thread.getId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 40) & (stripes.length - 1)];
+    }
+
+    private void requestFlush() {
+        if (!closed.get() && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false); // shutting down; close() does the final flush
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       FLUSH
+       --------------------------------------------------- */
+    public void flush() throws SQLException {
+        synchronized (flushLock) {
+            flushQueued.set(false);
+
+            // Swap every stripe's map out; recorders are blocked only for the swap itself
+            HashMap<PlayKey, Long> events = new HashMap<>(carryOver);
+            carryOver.clear();
+            for (Stripe stripe : stripes) {
+                HashMap<PlayKey, int[]> drained;
+                stripe.lock.lock();
+                try {
+                    drained = stripe.deltas;
+                    stripe.deltas = new HashMap<>();
+                    // Woken by the next successful flush instead while the carry-over is at the bound
+                    if (carriedKeys < maxPending) stripe.notFull.signalAll();
+                } finally {
+                    stripe.lock.unlock();
+                }
+                for (Map.Entry<PlayKey, int[]> e : drained.entrySet()) {
+                    events.merge(e.getKey(), (long) e.getValue()[0], Long::sum);
+                }
+            }
+            if (events.isEmpty()) return;
+
+            TreeMap<Integer, Long> deltas = new TreeMap<>(); // SongID order = consistent lock order
+            for (Map.Entry<PlayKey, Long> e : events.entrySet()) {
+                deltas.merge(e.getKey().songId(), e.getValue(), Long::sum);
+            }
+
+            long start = System.nanoTime();
+            try {
+                write(deltas, events);
+            } catch (SQLException e) {
+                failedFlushes.incrementAndGet();
+                carryOver.putAll(events); // nothing is lost; retried on the next flush
+                carriedKeys = carryOver.size(); // at most about 2 x maxPending: new keys wait from here on
+                throw e;
+            }
+            if (carriedKeys > 0) {
+                carriedKeys = 0;
+                signalAll();
+            }
+
+            long plays = 0;
+            for (long d : deltas.values()) plays += d;
+            flushedPlays.addAndGet(plays);
+            flushes.incrementAndGet();
+            lastFlushMs = (System.nanoTime() - start) / 1e6;
+
+            Map<Integer, Long> committed = Collections.unmodifiableMap(deltas);
+            for (Consumer<Map<Integer, Long>> listener : flushListeners) {
+                try {
+                    listener.accept(committed);
+                } catch (RuntimeException e) {
+                    System.out.println("Play count flush listener failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Drops every buffered play without writing it (the data they counted against is being replaced)
+    public long discardPending() {
+        synchronized (flushLock) {
+            long plays = 0;
+            for (long d : carryOver.values()) plays += d;
+            carryOver.clear();
+            carriedKeys = 0;
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    for (int[] counter : stripe.deltas.values()) plays += counter[0];
+                    stripe.deltas = new HashMap<>();
+                    stripe.notFull.signalAll();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            return plays;
+        }
+    }
+
+    // Wakes recorders blocked on the carry-over bound
+    private void signalAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.notFull.signalAll();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public void addFlushListener(Consumer<Map<Integer, Long>> listener) {
+        flushListeners.add(listener);
+    }
+
+    // Runs the action with no flush in progress, so it sees Song.TimesPlayed
+    // and the listeners' state at the same point
+    public void withoutFlushing(SqlAction action) throws SQLException {
+        synchronized (flushLock) {
+            action.run();
+        }
+    }
+
+    public interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private void write(TreeMap<Integer, Long> deltas, Map<PlayKey, Long> events) throws SQLException {
+        // A soft-deleted artist's songs count as unknown, like purged ones
+        String sql = "UPDATE Song SET TimesPlayed = TimesPlayed + ? WHERE SongID = ? AND " + Catalog.songVisible("Song");
+        String eventSql = "INSERT INTO PlayEvent (PlayedAt, SongID, UserID, Plays) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Set<Integer> missing = new HashSet<>();
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    List<Integer> batch = new ArrayList<>(flushBatchSize);
+                    for (Map.Entry<Integer, Long> e : deltas.entrySet()) {
+                        ps.setLong(1, e.getValue());
+                        ps.setInt(2, e.getKey());
+                        ps.addBatch();
+                        batch.add(e.getKey());
+                        if (batch.size() == flushBatchSize) {
+                            countRows(ps.executeBatch(), batch, missing);
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty()) countRows(ps.executeBatch(), batch, missing);
+                }
+
+                // History is only written for songs whose counter moved
+                int written = recordHistory ? insertEvents(conn, eventSql, events, missing) : 0;
+                conn.commit();
+                eventsWritten.addAndGet(written);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private int insertEvents(Connection conn, String sql, Map<PlayKey, Long> events, Set<Integer> missing)
+            throws SQLException {
+        int written = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int inBatch = 0;
+            for (Map.Entry<PlayKey, Long> e : events.entrySet()) {
+                PlayKey key = e.getKey();
+                if (key.second() == 0 || missing.contains(key.songId())) continue; // recorded while history was off
+
+                ps.setObject(1, LocalDateTime.ofInstant(Instant.ofEpochSecond(key.second()), ZoneId.systemDefault()));
+                ps.setInt(2, key.songId());
+                if (key.userId() == null) ps.setNull(3, Types.INTEGER);
+                else ps.setInt(3, key.userId());
+                ps.setLong(4, e.getValue());
+                ps.addBatch();
+                written++;
+                if (++inBatch == flushBatchSize) {
+                    ps.executeBatch();
+                    inBatch = 0;
+                }
+            }
+            if (inBatch > 0) ps.executeBatch();
+        }
+        return written;
+    }
+
+    private void countRows(int[] counts, List<Integer> songIds, Set<Integer> missing) {
+        for (int i = 0; i < counts.length; i++) {
+            int c = counts[i];
+            if (c == 0) {
+                unknownSongs.incrementAndGet(); // song was deleted meanwhile
+                missing.add(songIds.get(i));
+            } else if (c > 0 || c == java.sql.Statement.SUCCESS_NO_INFO) {
+                rowsUpdated.incrementAndGet();
+            }
+        }
+    }
+
+    // Turned on once the PlayEvent tables exist (after Reset Database on an older schema)
+    public void recordHistory(boolean on) {
+        recordHistory = on;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.out.println("Play count flush failed (will retry): " + e.getMessage());
+        }
+    }
+
+    // Durable shutdown: stop the timer, then write whatever is still pending
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.out.println("Final play count flush failed: " + e.getMessage()
+                    + " (" + pendingPlays() + " plays not written)");
+        }
+    }
+
+    /* ---------------------------------------------------
+       STATS
+       --------------------------------------------------- */
+    public long pendingPlays() {
+        long total = 0;
+        synchronized (flushLock) {
+            for (long d : carryOver.values()) total += d;
+        }
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (int[] c : stripe.deltas.values()) total += c[0];
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    public String stats() {
+        double secs = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("Plays: recorded=%d flushed=%d pending=%d (%.0f plays/sec avg) | flushes=%d "
+                        + "rows updated=%d unknown songs=%d failed flushes=%d backpressure waits=%d last flush=%.1f ms",
+                recorded.get(), flushedPlays.get(), pendingPlays(), recorded.get() / secs, flushes.get(),
+                rowsUpdated.get(), unknownSongs.get(), failedFlushes.get(), backpressureWaits.get(), lastFlushMs)
+                + (recordHistory ? " | play events written=" + eventsWritten.get() : " | history off");
+    }
+}
@@ -0,0 +1,346 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+   PLAY HISTORY (PlayEvent -> PlayHourly / PlayDaily)
+   A background job rolls every event past the watermark into the hourly
+   and daily tables in one transaction, keeps day partitions of PlayEvent
+   created ahead of time, and drops partitions older than the retention
+   window once everything in them has been rolled up.
+   Range queries read whole days from PlayDaily, the leftover hours from
+   PlayHourly, and only not-yet-rolled events from PlayEvent.
+   --------------------------------------------------- */
+public class PlayHistory implements AutoCloseable {
+
+    public record SongPlays(int rank, int songId, String title, String artist, long plays) {
+        public static final String[] COLUMNS = {"Rank", "SongID", "Title", "Artist", "Plays"};
+        public Object[] values() { return new Object[]{rank, songId, title, artist, plays}; }
+    }
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+    private static final long TO_DAYS_EPOCH = 719528; // TO_DAYS('1970-01-01')
+
+    // upperBound is TO_DAYS of the exclusive bound, Long.MAX_VALUE for MAXVALUE
+    private record Partition(String name, long upperBound) {}
+
+    private final ConnectionPool pool;
+    private final int retentionDays;
+    private final int partitionsAhead;
+    private final ScheduledExecutorService job;
+
+    // Counters
+    private final AtomicLong rollups = new AtomicLong();
+    private final AtomicLong eventsRolled = new AtomicLong();
+    private final AtomicLong partitionsAdded = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private volatile double lastRollupMs;
+
+    public PlayHistory(ConnectionPool pool, int retentionDays, int partitionsAhead, long rollupIntervalMs) {
+        this.pool = pool;
+        this.retentionDays = Math.max(1, retentionDays);
+        this.partitionsAhead = Math.max(1, partitionsAhead);
+
+        job = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "play-history-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        job.scheduleWithFixedDelay(this::maintainQuietly, 0, rollupIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // False on a database created before PlayEvent existed (until Reset Database)
+    public static boolean tablesExist(ConnectionPool pool) {
+        String sql = "SELECT COUNT(*) FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME IN ('PlayEvent', 'PlayHourly', 'PlayDaily', 'PlayRollupWatermark')";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) == 4;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /* ---------------------------------------------------
+       BACKGROUND JOB
+       --------------------------------------------------- */
+    // Rollup first, so pruning never finds unrolled events in an old partition
+    public synchronized void maintain() throws SQLException {
+        rollup();
+        addPartitions();
+        prune();
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (SQLException e) {
+            System.out.println("Play history maintenance failed (will retry): " + e.getMessage());
+        }
+    }
+
+    // Moves every event past the watermark into the rollups; returns how many events
+    public synchronized long rollup() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long from;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT LastEventID FROM PlayRollupWatermark WHERE ID = 1 FOR UPDATE");
+                     ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) throw new SQLException("PlayRollupWatermark has no row; run Reset Database.");
+                    from = rs.getLong(1);
+                }
+
+                // Only the play-count flusher inserts events, one transaction at a time,
+                // so no event up to MAX(EventID) can still be uncommitted
+                long to;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT COALESCE(MAX(EventID), 0) FROM PlayEvent");
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    to = Math.max(from, rs.getLong(1));
+                }
+                if (to == from) {
+                    conn.rollback();
+                    return 0;
+                }
+
+                // Events of deleted songs are skipped (the rollups cascade with Song)
+                rollInto(conn, "PlayHourly", "HourStart", "DATE_FORMAT(e.PlayedAt, '%Y-%m-%d %H:00:00')", from, to);
+                rollInto(conn, "PlayDaily", "Day", "DATE(e.PlayedAt)", from, to);
+
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE PlayRollupWatermark SET LastEventID = ? WHERE ID = 1")) {
+                    ps.setLong(1, to);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+
+                rollups.incrementAndGet();
+                eventsRolled.addAndGet(to - from);
+                lastRollupMs = (System.nanoTime() - start) / 1e6;
+                return to - from;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void rollInto(Connection conn, String table, String bucketColumn, String bucketExpr,
+                                 long fromEventId, long toEventId) throws SQLException {
+        String sql = "INSERT INTO " + table + " (" + bucketColumn + ", SongID, Plays) "
+                + "SELECT * FROM ("
+                + "  SELECT " + bucketExpr + " AS Bucket, e.SongID, SUM(e.Plays) AS Added "
+                + "  FROM PlayEvent e "
+                + "  JOIN Song s ON s.SongID = e.SongID "
+                + "  WHERE e.EventID > ? AND e.EventID <= ? "
+                + "  GROUP BY Bucket, e.SongID"
+                + ") r "
+                + "ON DUPLICATE KEY UPDATE Plays = " + table + ".Plays + r.Added";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, fromEventId);
+            ps.setLong(2, toEventId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Splits empty pmax so there is a partition for every day up to partitionsAhead from today
+    private void addPartitions() throws SQLException {
+        LocalDate lastCovered = null; // exclusive upper bound of the highest day partition
+        for (Partition p : partitions()) {
+            if (p.upperBound() != Long.MAX_VALUE) lastCovered = LocalDate.ofEpochDay(p.upperBound() - TO_DAYS_EPOCH);
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate day = lastCovered == null || lastCovered.isBefore(today) ? today : lastCovered;
+        LocalDate until = today.plusDays(partitionsAhead);
+        if (!day.isBefore(until)) return;
+
+        StringBuilder sql = new StringBuilder("ALTER TABLE PlayEvent REORGANIZE PARTITION pmax INTO (");
+        int added = 0;
+        for (; day.isBefore(until); day = day.plusDays(1)) {
+            sql.append("PARTITION ").append(PARTITION_NAME.format(day))
+                    .append(" VALUES LESS THAN (TO_DAYS('").append(day.plusDays(1)).append("')), ");
+            added++;
+        }
+        sql.append("PARTITION pmax VALUES LESS THAN MAXVALUE)");
+
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute(sql.toString());
+        }
+        partitionsAdded.addAndGet(added);
+    }
+
+    // Drops day partitions that end before the retention cutoff and hold no unrolled events
+    private void prune() throws SQLException {
+        long cutoff = LocalDate.now().minusDays(retentionDays).toEpochDay() + TO_DAYS_EPOCH;
+
+        List<String> drop = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            for (Partition p : partitions()) {
+                if (p.upperBound() > cutoff) continue;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT COUNT(*) FROM PlayEvent PARTITION (" + p.name() + ") "
+                                + "WHERE EventID > (SELECT LastEventID FROM PlayRollupWatermark WHERE ID = 1)");
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) == 0) drop.add(p.name());
+                }
+            }
+            if (drop.isEmpty()) return;
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("ALTER TABLE PlayEvent DROP PARTITION " + String.join(", ", drop));
+            }
+        }
+        partitionsDropped.addAndGet(drop.size());
+    }
+
+    private List<Partition> partitions() throws SQLException {
+        String sql = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'PlayEvent' "
+                + "ORDER BY PARTITION_ORDINAL_POSITION";
+
+        List<Partition> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String bound = rs.getString(2);
+                out.add(new Partition(rs.getString(1),
+                        "MAXVALUE".equalsIgnoreCase(bound) ? Long.MAX_VALUE : Long.parseLong(bound.trim())));
+            }
+        }
+        if (out.isEmpty()) throw new SQLException("PlayEvent is not partitioned; run Reset Database.");
+        return out;
+    }
+
+    /* ---------------------------------------------------
+       QUERIES (ranges are whole hours: from is rounded down, to up)
+       --------------------------------------------------- */
+    public List<SongPlays> topSongs(LocalDateTime from, LocalDateTime to, int limit) throws SQLException {
+        return query(from, to, null, limit);
+    }
+
+    public long songPlays(int songId, LocalDateTime from, LocalDateTime to) throws SQLException {
+        List<SongPlays> rows = query(from, to, songId, 1);
+        return rows.isEmpty() ? 0 : rows.get(0).plays();
+    }
+
+    private List<SongPlays> query(LocalDateTime from, LocalDateTime to, Integer songId, int limit) throws SQLException {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS).equals(to) ? to : to.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+
+        // Whole days inside [start, end) come from PlayDaily, the hours around them from PlayHourly
+        LocalDate firstDay = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start.toLocalDate() : start.toLocalDate().plusDays(1);
+        LocalDate endDay = end.toLocalDate();
+        boolean anyDays = firstDay.isBefore(endDay);
+        LocalDateTime headEnd = anyDays ? firstDay.atStartOfDay() : end;
+        LocalDateTime tailStart = anyDays ? endDay.atStartOfDay() : end;
+
+        String song = songId == null ? "" : " AND SongID = ?";
+        String sql = "SELECT t.SongID, s.Title, ar.Name, SUM(t.Plays) AS Plays "
+                + "FROM ("
+                + "  SELECT SongID, Plays FROM PlayDaily WHERE Day >= ? AND Day < ?" + song
+                + "  UNION ALL "
+                + "  SELECT SongID, Plays FROM PlayHourly "
+                + "  WHERE ((HourStart >= ? AND HourStart < ?) OR (HourStart >= ? AND HourStart < ?))" + song
+                + "  UNION ALL "
+                + "  SELECT SongID, Plays FROM PlayEvent "
+                + "  WHERE EventID > (SELECT LastEventID FROM PlayRollupWatermark WHERE ID = 1) "
+                + "  AND PlayedAt >= ? AND PlayedAt < ?" + song
+                + ") t "
+                + "JOIN Song s    ON s.SongID = t.SongID "
+                + "JOIN Album al  ON al.AlbumID = s.AlbumID "
+                + "JOIN Artist ar ON ar.ArtistID = al.ArtistID "
+                + "GROUP BY t.SongID, s.Title, ar.Name "
+                + "ORDER BY Plays DESC, t.SongID "
+                + "LIMIT ?";
+
+        List<SongPlays> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            ps.setObject(i++, anyDays ? firstDay : endDay);
+            ps.setObject(i++, endDay);
+            if (songId != null) ps.setInt(i++, songId);
+            ps.setObject(i++, start);
+            ps.setObject(i++, headEnd);
+            ps.setObject(i++, tailStart);
+            ps.setObject(i++, end);
+            if (songId != null) ps.setInt(i++, songId);
+            ps.setObject(i++, start);
+            ps.setObject(i++, end);
+            if (songId != null) ps.setInt(i++, songId);
+            ps.setInt(i, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new SongPlays(out.size() + 1, rs.getInt(1), rs.getString(2), rs.getString(3), rs.getLong(4)));
+                }
+            }
+        }
+        return out;
+    }
+
+    // Songs whose TimesPlayed differs from baseline + rollups + unrolled events (should be none)
+    public List<Object[]> inconsistentSongs(int limit) throws SQLException {
+        String sql = "SELECT s.SongID, s.Title, s.TimesPlayed, COALESCE(d.Plays, 0) + COALESCE(e.Plays, 0) AS History "
+                + "FROM Song s "
+                + "LEFT JOIN (SELECT SongID, SUM(Plays) AS Plays FROM PlayDaily GROUP BY SongID) d ON d.SongID = s.SongID "
+                + "LEFT JOIN (SELECT SongID, SUM(Plays) AS Plays FROM PlayEvent "
+                + "           WHERE EventID > (SELECT LastEventID FROM PlayRollupWatermark WHERE ID = 1) "
+                + "           GROUP BY SongID) e ON e.SongID = s.SongID "
+                + "WHERE s.TimesPlayed <> COALESCE(d.Plays, 0) + COALESCE(e.Plays, 0) "
+                + "ORDER BY s.SongID "
+                + "LIMIT ?";
+
+        List<Object[]> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(new Object[]{rs.getInt(1), rs.getString(2), rs.getLong(3), rs.getLong(4)});
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        job.shutdown();
+        try {
+            job.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String stats() {
+        return String.format("Play history: rollups=%d events rolled=%d last rollup=%.1f ms | "
+                        + "partitions added=%d dropped=%d (raw retention %d days)",
+                rollups.get(), eventsRolled.get(), lastRollupMs, partitionsAdded.get(), partitionsDropped.get(),
+                retentionDays);
+    }
+}
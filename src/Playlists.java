@@ -0,0 +1,293 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/* ---------------------------------------------------
+   PLAYLISTS
+   PlaylistSong.Position is sparse (STEP apart), so a move writes one row:
+   the midpoint between its new neighbours. Only when two neighbours are
+   adjacent numbers is the playlist respaced, in two statements.
+   Bulk adds/removes are multi-row statements of up to CHUNK songs, so a
+   10k-track edit is a handful of round trips, not 10k.
+   --------------------------------------------------- */
+public class Playlists {
+
+    public static final long STEP = 1L << 20;
+    private static final int CHUNK = 1000;
+
+    public record Playlist(int playlistId, String title, int userId, java.sql.Timestamp createdAt, long songCount) {
+        public static final String[] COLUMNS = {"PlaylistID", "Title", "UserID", "CreatedAt", "Songs"};
+        public Object[] values() { return new Object[]{playlistId, title, userId, createdAt, songCount}; }
+    }
+
+    public record Track(long position, int songId, String title, int duration, String album, String artist) {
+        public static final String[] COLUMNS = {"Position", "SongID", "Title", "Duration", "Album", "Artist"};
+        public Object[] values() { return new Object[]{position, songId, title, duration, album, artist}; }
+    }
+
+    private final ConnectionPool pool;
+
+    public Playlists(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /* ---------------------------------------------------
+       PLAYLISTS
+       --------------------------------------------------- */
+    public int create(int userId, String title) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO Playlist (Title, UserID) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, title);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+            pool.wrote(null, "Playlist");
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new SQLException("Failed to get generated PlaylistID");
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    // Songs go with it (ON DELETE CASCADE)
+    public boolean delete(int playlistId) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM Playlist WHERE PlaylistID = ?")) {
+            ps.setInt(1, playlistId);
+            int rows = ps.executeUpdate();
+            pool.wrote(null, "Playlist");
+            return rows > 0;
+        }
+    }
+
+    public List<Playlist> forUser(int userId) throws SQLException {
+        String sql = "SELECT p.PlaylistID, p.Title, p.UserID, p.CreatedAt, COUNT(ps.SongID) "
+                + "FROM Playlist p "
+                + "LEFT JOIN PlaylistSong ps ON ps.PlaylistID = p.PlaylistID "
+                + "WHERE p.UserID = ? "
+                + "GROUP BY p.PlaylistID "
+                + "ORDER BY p.PlaylistID";
+
+        List<Playlist> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new Playlist(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getTimestamp(4), rs.getLong(5)));
+                }
+            }
+        }
+        return out;
+    }
+
+    /* ---------------------------------------------------
+       BULK ADD / REMOVE
+       --------------------------------------------------- */
+    // Appends in the given order; songs already in the playlist or not in Song are skipped.
+    // Returns how many were added.
+    public int addSongs(int playlistId, List<Integer> songIds) throws SQLException {
+        if (songIds.isEmpty()) return 0;
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long position = lockAndGetLastPosition(conn, playlistId);
+                int added = 0;
+                for (int from = 0; from < songIds.size(); from += CHUNK) {
+                    List<Integer> chunk = songIds.subList(from, Math.min(songIds.size(), from + CHUNK));
+                    // Songs of a soft-deleted artist are skipped like missing ones (their positions stay unused)
+                    String sql = "INSERT IGNORE INTO PlaylistSong (PlaylistID, SongID, Position) "
+                            + "SELECT ?, c.SongID, c.Position FROM ("
+                            + "SELECT CAST(? AS SIGNED) AS SongID, CAST(? AS SIGNED) AS Position"
+                            + " UNION ALL SELECT ?, ?".repeat(chunk.size() - 1)
+                            + ") c JOIN Song s ON s.SongID = c.SongID WHERE " + Catalog.songVisible("s");
+
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        int i = 1;
+                        ps.setInt(i++, playlistId);
+                        for (int songId : chunk) {
+                            position += STEP;
+                            ps.setInt(i++, songId);
+                            ps.setLong(i++, position);
+                        }
+                        added += ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                pool.wrote(null, "Playlist");
+                return added;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public int removeSongs(int playlistId, List<Integer> songIds) throws SQLException {
+        if (songIds.isEmpty()) return 0;
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int removed = 0;
+                for (int from = 0; from < songIds.size(); from += CHUNK) {
+                    List<Integer> chunk = songIds.subList(from, Math.min(songIds.size(), from + CHUNK));
+                    String sql = "DELETE FROM PlaylistSong WHERE PlaylistID = ? AND SongID IN ("
+                            + "?, ".repeat(chunk.size() - 1) + "?)";
+
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        ps.setInt(1, playlistId);
+                        int i = 2;
+                        for (int songId : chunk) ps.setInt(i++, songId);
+                        removed += ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                pool.wrote(null, "Playlist");
+                return removed; // gaps left behind are fine; order is by Position, not by count
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       REORDER
+       --------------------------------------------------- */
+    // Moves songId to just before beforeSongId, or to the end when beforeSongId is null.
+    // Returns false if either song is not in the playlist.
+    public boolean move(int playlistId, int songId, Integer beforeSongId) throws SQLException {
+        if (beforeSongId != null && beforeSongId == songId) return true;
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long last = lockAndGetLastPosition(conn, playlistId);
+                long newPosition;
+
+                if (beforeSongId == null) {
+                    newPosition = last + STEP;
+                } else {
+                    long[] slot = slotBefore(conn, playlistId, beforeSongId, songId);
+                    if (slot == null) {
+                        conn.rollback();
+                        return false;
+                    }
+                    if (slot[1] - slot[0] < 2) {
+                        respace(conn, playlistId); // no room between the neighbours
+                        slot = slotBefore(conn, playlistId, beforeSongId, songId);
+                    }
+                    newPosition = slot[0] + (slot[1] - slot[0]) / 2;
+                }
+
+                int rows;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE PlaylistSong SET Position = ? WHERE PlaylistID = ? AND SongID = ?")) {
+                    ps.setLong(1, newPosition);
+                    ps.setInt(2, playlistId);
+                    ps.setInt(3, songId);
+                    rows = ps.executeUpdate();
+                }
+                conn.commit();
+                pool.wrote(null, "Playlist");
+                return rows > 0;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // {previous position (0 if first), target position} around beforeSongId, ignoring the song being moved
+    private long[] slotBefore(Connection conn, int playlistId, int beforeSongId, int movingSongId) throws SQLException {
+        String sql = "SELECT t.Position, "
+                + "(SELECT MAX(x.Position) FROM PlaylistSong x "
+                + " WHERE x.PlaylistID = t.PlaylistID AND x.Position < t.Position AND x.SongID <> ?) "
+                + "FROM PlaylistSong t "
+                + "WHERE t.PlaylistID = ? AND t.SongID = ?";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, movingSongId);
+            ps.setInt(2, playlistId);
+            ps.setInt(3, beforeSongId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long target = rs.getLong(1);
+                long previous = rs.getLong(2); // NULL -> 0: positions start at STEP
+                return new long[]{previous, target};
+            }
+        }
+    }
+
+    // Rewrites positions as 1..n * STEP in current order. Negating first keeps
+    // uq_plsong_position from colliding mid-statement.
+    private void respace(Connection conn, int playlistId) throws SQLException {
+        try (PreparedStatement negate = conn.prepareStatement(
+                "UPDATE PlaylistSong SET Position = -Position WHERE PlaylistID = ?")) {
+            negate.setInt(1, playlistId);
+            negate.executeUpdate();
+        }
+
+        String sql = "UPDATE PlaylistSong ps "
+                + "JOIN (SELECT SongID, ROW_NUMBER() OVER (ORDER BY Position DESC) AS rn "
+                + "      FROM PlaylistSong WHERE PlaylistID = ?) r ON r.SongID = ps.SongID "
+                + "SET ps.Position = r.rn * ? "
+                + "WHERE ps.PlaylistID = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, playlistId);
+            ps.setLong(2, STEP);
+            ps.setInt(3, playlistId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Serializes edits of one playlist on its Playlist row; also proves it exists
+    private long lockAndGetLastPosition(Connection conn, int playlistId) throws SQLException {
+        String sql = "SELECT (SELECT COALESCE(MAX(ps.Position), 0) FROM PlaylistSong ps WHERE ps.PlaylistID = p.PlaylistID) "
+                + "FROM Playlist p WHERE p.PlaylistID = ? FOR UPDATE";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, playlistId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("No playlist found with ID " + playlistId);
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       PAGED READ (keyset on uq_plsong_position)
+       --------------------------------------------------- */
+    // Tracks after the given position (0 = from the start), in playback order, one query per page
+    public List<Track> page(int playlistId, long afterPosition, int limit) throws SQLException {
+        String sql = "SELECT ps.Position, s.SongID, s.Title, s.Duration, al.Title, ar.Name "
+                + "FROM PlaylistSong ps "
+                + "JOIN Song s    ON s.SongID = ps.SongID "
+                + "JOIN Album al  ON al.AlbumID = s.AlbumID "
+                + "JOIN Artist ar ON ar.ArtistID = al.ArtistID "
+                + "WHERE ps.PlaylistID = ? AND ps.Position > ? "
+                + "ORDER BY ps.Position "
+                + "LIMIT ?";
+
+        List<Track> out = new ArrayList<>(limit);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, playlistId);
+            ps.setLong(2, afterPosition);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new Track(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getInt(4),
+                            rs.getString(5), rs.getString(6)));
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,285 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+   PURGE (chunked background cascade for soft deletes)
+   Catalog.deleteUser/deleteArtist only stamp DeletedAt and queue a
+   PurgeJob row; reads skip rows with DeletedAt set. This worker then
+   removes the dependent rows bottom-up, at most chunkRows per statement,
+   each chunk in its own short transaction together with the job's
+   progress, and deletes the root row last, so no FK cascade ever has
+   more than one row to follow.
+   Every step deletes "some of what is still there", so a job cut off by
+   a crash continues from the remaining rows on the next start.
+   --------------------------------------------------- */
+public class Purger implements AutoCloseable {
+
+    public record Job(int jobId, String rootTable, int rootId, String phase, long rowsDeleted, int chunks,
+                      Timestamp createdAt, Timestamp finishedAt) {
+        public static final String[] COLUMNS = {"JobID", "Root", "RootID", "Phase", "RowsDeleted", "Chunks",
+                "CreatedAt", "FinishedAt"};
+        public Object[] values() {
+            return new Object[]{jobId, rootTable, rootId, phase, rowsDeleted, chunks, createdAt, finishedAt};
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Catalog catalog;
+    private final int chunkRows;
+    private final long pauseMs;
+    private final ScheduledExecutorService worker;
+    private volatile boolean closing;
+
+    // Counters
+    private final AtomicLong jobsFinished = new AtomicLong();
+    private final AtomicLong rowsDeleted = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private volatile double maxChunkMs;
+
+    public Purger(ConnectionPool pool, Catalog catalog, int chunkRows, long pauseMs, long pollMs) {
+        this.pool = pool;
+        this.catalog = catalog;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.pauseMs = Math.max(0, pauseMs);
+
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "purge-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        // Unfinished jobs from a previous run are picked up by the first pass
+        worker.scheduleWithFixedDelay(this::runQuietly, 0, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    // False on a database created before soft deletes existed (until Reset Database)
+    public static boolean tablesExist(ConnectionPool pool) {
+        String sql = "SELECT COUNT(*) FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND ((TABLE_NAME IN ('User', 'Artist') AND COLUMN_NAME = 'DeletedAt') "
+                + "  OR (TABLE_NAME = 'PurgeJob' AND COLUMN_NAME = 'JobID'))";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && rs.getInt(1) == 3;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /* ---------------------------------------------------
+       BACKGROUND JOB
+       --------------------------------------------------- */
+    // Works through every open job, oldest first
+    public synchronized void runPending() throws SQLException {
+        while (!closing) {
+            Job job = nextOpenJob();
+            if (job == null) return;
+            if (job.rootTable().equals("Artist")) purgeArtist(job);
+            else purgeUser(job);
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            runPending();
+        } catch (SQLException e) {
+            System.out.println("Purge failed (will retry): " + e.getMessage());
+        }
+    }
+
+    private Job nextOpenJob() throws SQLException {
+        List<Job> open = jobs("WHERE FinishedAt IS NULL ORDER BY JobID LIMIT 1");
+        return open.isEmpty() ? null : open.get(0);
+    }
+
+    // Artist -> songs' PlaylistSong/PlayHourly/PlayDaily rows -> songs -> albums -> artist
+    private void purgeArtist(Job job) throws SQLException {
+        int artistId = job.rootId();
+        List<Integer> songIds;
+        while (!(songIds = ids("SELECT s.SongID FROM Song s JOIN Album al ON al.AlbumID = s.AlbumID "
+                + "WHERE al.ArtistID = ? ORDER BY s.SongID LIMIT ?", artistId)).isEmpty()) {
+            String in = inList(songIds.size());
+            Object[] params = songIds.toArray();
+            drain(job, "playlist entries", "DELETE FROM PlaylistSong WHERE SongID IN " + in + " LIMIT ?", params);
+            drain(job, "hourly plays", "DELETE FROM PlayHourly WHERE SongID IN " + in + " LIMIT ?", params);
+            drain(job, "daily plays", "DELETE FROM PlayDaily WHERE SongID IN " + in + " LIMIT ?", params);
+            if (closing) return;
+            chunk(job, "songs", "DELETE FROM Song WHERE SongID IN " + in, params);
+            for (int songId : songIds) catalog.invalidateSong(songId);
+        }
+        drain(job, "albums", "DELETE FROM Album WHERE ArtistID = ? LIMIT ?", artistId);
+        if (closing) return;
+
+        finish(job, "DELETE FROM Artist WHERE ArtistID = ? AND DeletedAt IS NOT NULL", artistId);
+        catalog.artistDeleted(artistId);
+        pool.changed(artistId, "Artist", "Album", "Song");
+    }
+
+    // User -> playlists' PlaylistSong rows -> playlists -> Artist.UserID (SET NULL) -> user
+    private void purgeUser(Job job) throws SQLException {
+        int userId = job.rootId();
+        List<Integer> playlistIds;
+        while (!(playlistIds = ids("SELECT PlaylistID FROM Playlist WHERE UserID = ? ORDER BY PlaylistID LIMIT ?",
+                userId)).isEmpty()) {
+            String in = inList(playlistIds.size());
+            Object[] params = playlistIds.toArray();
+            drain(job, "playlist entries", "DELETE FROM PlaylistSong WHERE PlaylistID IN " + in + " LIMIT ?", params);
+            if (closing) return;
+            chunk(job, "playlists", "DELETE FROM Playlist WHERE PlaylistID IN " + in, params);
+        }
+        drain(job, "artist links", "UPDATE Artist SET UserID = NULL, Version = Version + 1 "
+                + "WHERE UserID = ? LIMIT ?", userId);
+        if (closing) return;
+
+        finish(job, "DELETE FROM `User` WHERE UserID = ? AND DeletedAt IS NOT NULL", userId);
+        catalog.userDeleted(userId);
+        pool.changed(null, "User", "Playlist", "Artist");
+    }
+
+    // Up to chunkRows root-owned IDs; sql ends in "LIMIT ?"
+    private List<Integer> ids(String sql, int rootId) throws SQLException {
+        List<Integer> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, rootId);
+            ps.setInt(2, chunkRows);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getInt(1));
+            }
+        }
+        return out;
+    }
+
+    private static String inList(int n) {
+        return "(" + "?, ".repeat(n - 1) + "?)";
+    }
+
+    // Repeats a "... LIMIT ?" statement (chunkRows appended to params) until it comes up short
+    private void drain(Job job, String phase, String sql, Object... params) throws SQLException {
+        Object[] withLimit = java.util.Arrays.copyOf(params, params.length + 1);
+        withLimit[params.length] = chunkRows;
+        while (!closing && chunk(job, phase, sql, withLimit) == chunkRows) {
+            // next chunk
+        }
+    }
+
+    // One statement plus the job's progress in one transaction; returns the rows it touched
+    private int chunk(Job job, String phase, String sql, Object... params) throws SQLException {
+        long start = System.nanoTime();
+        int rows;
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+                    rows = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE PurgeJob SET Phase = ?, RowsDeleted = RowsDeleted + ?, Chunks = Chunks + 1, "
+                                + "UpdatedAt = CURRENT_TIMESTAMP WHERE JobID = ?")) {
+                    ps.setString(1, phase);
+                    ps.setInt(2, rows);
+                    ps.setInt(3, job.jobId());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        double ms = (System.nanoTime() - start) / 1e6;
+        if (ms > maxChunkMs) maxChunkMs = ms;
+        chunks.incrementAndGet();
+        rowsDeleted.addAndGet(rows);
+        pause();
+        return rows;
+    }
+
+    // Deletes the root row (one row, nothing left to cascade) and closes the job
+    private void finish(Job job, String sql, int rootId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int rows;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, rootId);
+                    rows = ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE PurgeJob SET Phase = 'done', RowsDeleted = RowsDeleted + ?, Chunks = Chunks + 1, "
+                                + "UpdatedAt = CURRENT_TIMESTAMP, FinishedAt = CURRENT_TIMESTAMP WHERE JobID = ?")) {
+                    ps.setInt(1, rows);
+                    ps.setInt(2, job.jobId());
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                rowsDeleted.addAndGet(rows);
+                jobsFinished.incrementAndGet();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Gives other writers the locks between chunks
+    private void pause() {
+        if (pauseMs == 0) return;
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closing = true;
+        }
+    }
+
+    /* ---------------------------------------------------
+       JOB LISTING
+       --------------------------------------------------- */
+    // Open jobs first, then the most recent finished ones
+    public List<Job> recentJobs(int limit) throws SQLException {
+        return jobs("ORDER BY FinishedAt IS NULL DESC, JobID DESC LIMIT " + Math.max(1, limit));
+    }
+
+    private List<Job> jobs(String tail) throws SQLException {
+        List<Job> out = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT JobID, RootTable, RootID, Phase, RowsDeleted, Chunks, CreatedAt, FinishedAt "
+                             + "FROM PurgeJob " + tail);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new Job(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.getLong(5),
+                        rs.getInt(6), rs.getTimestamp(7), rs.getTimestamp(8)));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        closing = true;
+        worker.shutdown();
+        try {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String stats() {
+        return String.format("Purge: jobs finished=%d rows=%d chunks=%d (max %d rows each, slowest %.1f ms, pause %d ms)",
+                jobsFinished.get(), rowsDeleted.get(), chunks.get(), chunkRows, maxChunkMs, pauseMs);
+    }
+}
@@ -0,0 +1,217 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+   READ ROUTING (replicas for reports, views and browsing)
+   Read-only paths borrow from here instead of the primary pool; every
+   write, and every read that must see the caller's own write, stays on
+   the primary. A replica is used only while its last health check found
+   it reachable and at most maxLagSeconds behind (SHOW REPLICA STATUS).
+   Read-your-writes: for maxLagSeconds (+ one check interval) after a
+   thread's last ConnectionPool.wrote() that thread's reads go to the
+   primary, since until then even an in-bound replica may not have the
+   write yet. Other threads (other API requests) keep using the replicas.
+   With no db.replica.urls everything goes to the primary.
+   --------------------------------------------------- */
+public class ReadRouter implements AutoCloseable, ConnectionSource {
+
+    private static final class Replica {
+        final String url;
+        final Properties props;
+        volatile ConnectionPool pool; // null until the replica was first reachable
+        volatile boolean healthy;
+        volatile String status = "not checked";
+        final AtomicLong reads = new AtomicLong();
+
+        Replica(String url, Properties props) {
+            this.url = url;
+            this.props = props;
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMs;
+    private final long checkIntervalMs;
+    private final ScheduledExecutorService checker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Counters
+    private final AtomicLong primaryReads = new AtomicLong();
+    private final AtomicLong fencedReads = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    // replicaProps: one Properties per replica, in ConnectionPool.fromProperties form
+    public ReadRouter(ConnectionPool primary, List<Properties> replicaProps, long maxLagSeconds, long checkIntervalMs) {
+        this.primary = primary;
+        this.maxLagMs = maxLagSeconds < 0 ? -1 : maxLagSeconds * 1000;
+        this.checkIntervalMs = Math.max(100, checkIntervalMs);
+        for (Properties p : replicaProps) replicas.add(new Replica(p.getProperty("db.url"), p));
+
+        if (replicas.isEmpty()) {
+            checker = null;
+            return;
+        }
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-check");
+            t.setDaemon(true);
+            return t;
+        });
+        checkAll(); // route correctly from the first read
+        checker.scheduleWithFixedDelay(this::checkAll, this.checkIntervalMs, this.checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // db.replica.urls=url1,url2; user, password and pool size default to the primary's
+    public static ReadRouter fromProperties(ConnectionPool primary, Properties props) {
+        List<Properties> replicaProps = new ArrayList<>();
+        for (String url : props.getProperty("db.replica.urls", "").split(",")) {
+            if (url.isBlank()) continue;
+            Properties p = new Properties();
+            p.putAll(props);
+            p.setProperty("db.url", url.trim());
+            p.setProperty("db.user", props.getProperty("db.replica.user", props.getProperty("db.user", "")));
+            p.setProperty("db.password", props.getProperty("db.replica.password", props.getProperty("db.password", "")));
+            p.setProperty("db.pool.minSize", "1");
+            p.setProperty("db.pool.maxSize", props.getProperty("db.replica.pool.maxSize",
+                    props.getProperty("db.pool.maxSize", "10")));
+            p.setProperty("db.pool.reconnectAttempts", "1"); // a dead replica falls back at once
+            replicaProps.add(p);
+        }
+        return new ReadRouter(primary, replicaProps,
+                ConnectionPool.longProp(props, "db.replica.maxLagSeconds", 5),
+                ConnectionPool.longProp(props, "db.replica.checkIntervalMs", 1000));
+    }
+
+    /* ---------------------------------------------------
+       ROUTING
+       --------------------------------------------------- */
+    // For read-only work; close() returns it to whichever pool it came from
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            primaryReads.incrementAndGet();
+            return primary.getConnection();
+        }
+        if (recentlyWritten()) {
+            fencedReads.incrementAndGet();
+            primaryReads.incrementAndGet();
+            return primary.getConnection();
+        }
+
+        // Round robin over the healthy replicas; one that cannot be reached now is skipped until its
+        // next good check, one whose pool is merely busy (borrow timeout) only for this read
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = replicas.get((start + i) % replicas.size());
+            ConnectionPool pool = r.pool;
+            if (!r.healthy || pool == null) continue;
+            try {
+                Connection conn = pool.getConnection();
+                r.reads.incrementAndGet();
+                return conn;
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) continue;
+                r.healthy = false;
+                r.status = "unreachable: " + e.getMessage();
+            }
+        }
+        fallbacks.incrementAndGet();
+        primaryReads.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    // Lost or refused connection (SQLState class 08)
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLRecoverableException || (state != null && state.startsWith("08"));
+    }
+
+    private boolean recentlyWritten() {
+        long fence = maxLagMs < 0 ? 0 : maxLagMs + checkIntervalMs;
+        return System.currentTimeMillis() - ConnectionPool.lastWriteOnThisThread() < fence;
+    }
+
+    /* ---------------------------------------------------
+       HEALTH CHECK
+       --------------------------------------------------- */
+    private void checkAll() {
+        for (Replica r : replicas) check(r);
+    }
+
+    private void check(Replica r) {
+        try {
+            if (r.pool == null) r.pool = ConnectionPool.fromProperties(r.props);
+            try (Connection conn = r.pool.getConnection()) {
+                if (maxLagMs < 0) { // lag check off: reachable is enough (e.g. two standalone test instances)
+                    r.healthy = true;
+                    r.status = "reachable (lag not checked)";
+                    return;
+                }
+                Long lagSeconds = lagSeconds(conn);
+                if (lagSeconds == null) {
+                    r.healthy = false;
+                    r.status = "replication not running";
+                } else if (lagSeconds * 1000 > maxLagMs) {
+                    r.healthy = false;
+                    r.status = "lagging " + lagSeconds + " s";
+                } else {
+                    r.healthy = true;
+                    r.status = "ok, " + lagSeconds + " s behind";
+                }
+            }
+        } catch (SQLException e) {
+            r.healthy = false;
+            r.status = "unreachable: " + e.getMessage();
+        }
+    }
+
+    // Seconds_Behind_Source; null when this is not a replica or its SQL thread is stopped
+    private static Long lagSeconds(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            ResultSet rs;
+            String column = "Seconds_Behind_Source";
+            try {
+                rs = st.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                if (e.getErrorCode() != 1064) throw e; // before MySQL 8.0.22
+                rs = st.executeQuery("SHOW SLAVE STATUS");
+                column = "Seconds_Behind_Master";
+            }
+            try (ResultSet status = rs) {
+                if (!status.next()) return null;
+                long lag = status.getLong(column);
+                return status.wasNull() ? null : lag;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (checker != null) checker.shutdownNow();
+        for (Replica r : replicas) {
+            if (r.pool != null) r.pool.close();
+        }
+    }
+
+    public String stats() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "Read routing: primary reads=%d (after own writes=%d, replica fallbacks=%d), max lag %s",
+                primaryReads.get(), fencedReads.get(), fallbacks.get(),
+                maxLagMs < 0 ? "not checked" : (maxLagMs / 1000) + " s"));
+        if (replicas.isEmpty()) sb.append("\n  no replicas configured (db.replica.urls)");
+        for (Replica r : replicas) {
+            sb.append(String.format("%n  %s: %s, reads=%d", r.url, r.status, r.reads.get()));
+        }
+        return sb.toString();
+    }
+}
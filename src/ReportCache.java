@@ -0,0 +1,212 @@
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/* ---------------------------------------------------
+   REPORT RESULT CACHE
+   Complete results of the named Reports, served until their TTL runs out
+   (reportCache.ttlMs, or reportCache.ttlMs.<report name>) or a committed
+   write to one of the tables the report reads drops them
+   (ConnectionPool.WriteListener). A write narrowed to one artist keeps
+   the per-artist entries of every other artist.
+   Play-count flushes do not invalidate: TimesPlayed moves all the time,
+   so the play-driven reports get a short TTL instead.
+   Least recently used entries go first to stay under maxBytes
+   (estimated); a result of more than maxRows rows is not cached.
+   --------------------------------------------------- */
+public class ReportCache implements ConnectionPool.WriteListener {
+
+    // ageMs: how long ago the query that produced these rows started
+    public record Result(String[] columns, List<Object[]> rows, long ageMs) {
+    }
+
+    private record Entry(Reports.Report report, Integer artistId, String[] columns, List<Object[]> rows,
+                         long loadedAt, long expiresAt, long bytes) {
+    }
+
+    // Collects a result while the caller streams it; done() stores it if it was complete
+    public final class Capture {
+        private final Reports.Report report;
+        private final Integer artistId;
+        private final long generation;
+        private final long startedAt = System.currentTimeMillis();
+        private String[] columns;
+        private List<Object[]> rows = new ArrayList<>(); // null once over maxRows
+
+        private Capture(Reports.Report report, Integer artistId, long generation) {
+            this.report = report;
+            this.artistId = artistId;
+            this.generation = generation;
+        }
+
+        public boolean wantsRows() {
+            return rows != null;
+        }
+
+        // Call with the cursor on a row
+        public void onRow(ResultSet rs) throws SQLException {
+            if (rows == null) return;
+            if (rows.size() == maxRows) {
+                rows = null;
+                return;
+            }
+            if (columns == null) columns = columns(rs.getMetaData());
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < row.length; i++) row[i] = rs.getObject(i + 1);
+            rows.add(row);
+        }
+
+        // Call after the last row was read
+        public void done(ResultSet rs) throws SQLException {
+            if (rows == null) return;
+            if (columns == null) columns = columns(rs.getMetaData());
+            put(this);
+        }
+    }
+
+    private final long maxBytes;
+    private final int maxRows;
+    private final long defaultTtlMs;
+    private final Map<String, Long> ttlByReport;
+
+    // Access order: the eldest entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation; // bumped by every invalidation, so a load that raced a write is not stored
+
+    // Counters (guarded by this)
+    private long hits, misses, stores, invalidated, expired, evicted, tooLarge;
+
+    public ReportCache(long maxBytes, int maxRows, long defaultTtlMs, Map<String, Long> ttlByReport) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxRows = Math.max(0, maxRows);
+        this.defaultTtlMs = defaultTtlMs;
+        this.ttlByReport = ttlByReport;
+    }
+
+    public static ReportCache fromProperties(Properties props) {
+        String prefix = "reportCache.ttlMs.";
+        Map<String, Long> ttls = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(prefix)) ttls.put(key.substring(prefix.length()), ConnectionPool.longProp(props, key, 0));
+        }
+        return new ReportCache(ConnectionPool.longProp(props, "reportCache.maxKb", 8192) * 1024,
+                ConnectionPool.intProp(props, "reportCache.maxRows", 10000),
+                ConnectionPool.longProp(props, "reportCache.ttlMs", 60000), ttls);
+    }
+
+    /* ---------------------------------------------------
+       LOOKUP / STORE
+       artistId is the parameter of a per-artist report, null otherwise.
+       --------------------------------------------------- */
+    public synchronized Result get(Reports.Report report, Integer artistId) {
+        String key = key(report, artistId);
+        Entry e = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (e != null && now >= e.expiresAt()) {
+            remove(key);
+            expired++;
+            e = null;
+        }
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Result(e.columns(), e.rows(), now - e.loadedAt());
+    }
+
+    // Start one before executing the report's query
+    public synchronized Capture capture(Reports.Report report, Integer artistId) {
+        return new Capture(report, artistId, generation);
+    }
+
+    private synchronized void put(Capture c) {
+        long ttl = ttlByReport.getOrDefault(c.report.name, defaultTtlMs);
+        if (ttl <= 0 || maxBytes == 0 || c.generation != generation) return;
+
+        long size = estimate(c.rows);
+        if (size > maxBytes) {
+            tooLarge++;
+            return;
+        }
+        String key = key(c.report, c.artistId);
+        remove(key);
+        entries.put(key, new Entry(c.report, c.artistId, c.columns, Collections.unmodifiableList(c.rows),
+                c.startedAt, c.startedAt + ttl, size));
+        bytes += size;
+        stores++;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().bytes();
+            it.remove();
+            evicted++;
+        }
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) bytes -= old.bytes();
+    }
+
+    private static String key(Reports.Report report, Integer artistId) {
+        return artistId == null ? report.name : report.name + ":" + artistId;
+    }
+
+    private static String[] columns(ResultSetMetaData md) throws SQLException {
+        String[] columns = new String[md.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) columns[i] = md.getColumnLabel(i + 1);
+        return columns;
+    }
+
+    // Rough heap size: object headers, references, and the characters of strings
+    private static long estimate(List<Object[]> rows) {
+        long size = 128;
+        for (Object[] row : rows) {
+            size += 16 + 8L * row.length;
+            for (Object v : row) {
+                if (v instanceof String) size += 40 + 2L * ((String) v).length();
+                else if (v != null) size += 24;
+            }
+        }
+        return size;
+    }
+
+    /* ---------------------------------------------------
+       INVALIDATION
+       --------------------------------------------------- */
+    @Override
+    public synchronized void tablesChanged(Integer artistId, String... tables) {
+        generation++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (artistId != null && e.artistId() != null && !artistId.equals(e.artistId())) continue;
+            for (String table : tables) {
+                if (e.report().tables.contains(table)) {
+                    bytes -= e.bytes();
+                    it.remove();
+                    invalidated++;
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized String stats() {
+        long lookups = hits + misses;
+        return String.format("Report cache: entries=%d (%.1f of %d KB) | hits=%d misses=%d (hit rate %.1f%%) "
+                        + "stores=%d invalidated=%d expired=%d evicted=%d too large=%d",
+                entries.size(), bytes / 1024.0, maxBytes / 1024, hits, misses,
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups, stores, invalidated, expired, evicted, tooLarge);
+    }
+}
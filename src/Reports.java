@@ -0,0 +1,115 @@
+import java.util.List;
+
+/* ---------------------------------------------------
+   NAMED REPORT QUERIES
+   The reporting SQL the menus run, in one place.
+   --------------------------------------------------- */
+public final class Reports {
+
+    public static final class Report {
+        public final String name;
+        public final String title;
+        public final String sql;
+        public final List<String> tables; // what it reads, for ReportCache invalidation
+
+        Report(String name, String title, String sql, String... tables) {
+            this.name = name;
+            this.title = title;
+            this.sql = sql;
+            this.tables = List.of(tables);
+        }
+    }
+
+    // Same columns as v_artist_song_stats, read from the ArtistSongStats summary table
+    public static final Report ARTIST_STATS = new Report("artist-stats",
+            "Per-artist song stats (top 10 by plays)",
+            "SELECT u.UserID, u.Username, a.ArtistID, a.Name AS ArtistName, st.SongCount, st.TotalPlays, "
+                    + "COALESCE(ROUND(st.TotalDuration / NULLIF(st.SongCount, 0)), 0) AS AvgDurationSeconds "
+                    + "FROM ArtistSongStats st "
+                    + "JOIN Artist a ON a.ArtistID = st.ArtistID "
+                    + "JOIN `User` u ON u.UserID = a.UserID "
+                    + "WHERE a.DeletedAt IS NULL AND u.DeletedAt IS NULL "
+                    + "ORDER BY st.TotalPlays DESC, st.SongCount DESC, ArtistName ASC "
+                    + "LIMIT 10",
+            "ArtistSongStats", "Artist", "User", "Album", "Song");
+
+    // Single artist: primary-key lookup on the summary table
+    public static final Report ARTIST_STATS_BY_ID = new Report("artist-stats-by-id",
+            "Song stats for one artist",
+            "SELECT a.ArtistID, a.Name AS ArtistName, a.UserID, st.SongCount, st.TotalPlays, "
+                    + "COALESCE(ROUND(st.TotalDuration / NULLIF(st.SongCount, 0)), 0) AS AvgDurationSeconds "
+                    + "FROM ArtistSongStats st "
+                    + "JOIN Artist a ON a.ArtistID = st.ArtistID "
+                    + "WHERE st.ArtistID = ? AND a.DeletedAt IS NULL",
+            "ArtistSongStats", "Artist", "Album", "Song");
+
+    // Every album's song count and total duration in one grouped pass (no per-row AlbumDuration() calls)
+    public static final Report ALBUM_TOTALS = new Report("album-totals",
+            "Album totals (song count and duration)",
+            "SELECT al.AlbumID, al.Title, al.ReleaseDate, al.ArtistID, "
+                    + "COUNT(s.SongID) AS SongCount, COALESCE(SUM(s.Duration), 0) AS TotalDuration "
+                    + "FROM Album al "
+                    + "JOIN Artist a ON a.ArtistID = al.ArtistID "
+                    + "LEFT JOIN Song s ON s.AlbumID = al.AlbumID "
+                    + "WHERE a.DeletedAt IS NULL "
+                    + "GROUP BY al.AlbumID "
+                    + "ORDER BY al.ReleaseDate, al.AlbumID",
+            "Album", "Song", "Artist");
+
+    // Each artist's most played song (v_artist_top_song without depending on view.sql)
+    public static final Report ARTIST_TOP_SONG = new Report("artist-top-song",
+            "Each artist's top song (top 10 by plays)",
+            "SELECT ArtistID, ArtistName, SongID, SongTitle, TimesPlayed "
+                    + "FROM (SELECT a.ArtistID, a.Name AS ArtistName, s.SongID, s.Title AS SongTitle, s.TimesPlayed, "
+                    + "             ROW_NUMBER() OVER (PARTITION BY a.ArtistID ORDER BY s.TimesPlayed DESC, s.SongID) AS rn "
+                    + "      FROM Artist a "
+                    + "      JOIN Album al ON al.ArtistID = a.ArtistID "
+                    + "      JOIN Song s   ON s.AlbumID = al.AlbumID "
+                    + "      WHERE a.DeletedAt IS NULL) ranked "
+                    + "WHERE rn = 1 "
+                    + "ORDER BY TimesPlayed DESC, ArtistName "
+                    + "LIMIT 10",
+            "Artist", "Album", "Song");
+
+    // The read-only queries of 5-ExampleSQLQueries.sql
+    public static final Report USER_PLAYLISTS = new Report("user-playlists",
+            "Users and their playlists",
+            "SELECT u.UserID, u.Username, p.PlaylistID, p.Title AS PlaylistTitle, p.CreatedAt "
+                    + "FROM `User` u "
+                    + "JOIN Playlist p ON p.UserID = u.UserID "
+                    + "WHERE u.DeletedAt IS NULL "
+                    + "ORDER BY u.Username, p.CreatedAt",
+            "User", "Playlist");
+
+    public static final Report TOP_SONGS = new Report("top-songs",
+            "Most played songs (top 25)",
+            "SELECT s.SongID, s.Title, r.Name AS Artist, a.Title AS Album, s.TimesPlayed "
+                    + "FROM Song s "
+                    + "JOIN Album a ON a.AlbumID = s.AlbumID "
+                    + "JOIN Artist r ON r.ArtistID = a.ArtistID "
+                    + "WHERE r.DeletedAt IS NULL "
+                    + "ORDER BY s.TimesPlayed DESC "
+                    + "LIMIT 25",
+            "Song", "Album", "Artist");
+
+    public static final Report LATEST_ALBUMS = new Report("latest-albums",
+            "Each artist's most recent album",
+            "SELECT ar.ArtistID, ar.Name AS ArtistName, a.AlbumID, a.Title AS AlbumTitle, a.ReleaseDate "
+                    + "FROM Artist ar "
+                    + "JOIN Album a ON a.ArtistID = ar.ArtistID "
+                    + "JOIN (SELECT ArtistID, MAX(ReleaseDate) AS LatestDate FROM Album GROUP BY ArtistID) last "
+                    + "  ON last.ArtistID = a.ArtistID AND last.LatestDate = a.ReleaseDate "
+                    + "WHERE ar.DeletedAt IS NULL "
+                    + "ORDER BY a.ReleaseDate DESC",
+            "Artist", "Album");
+
+    public static final String REBUILD_ARTIST_STATS = "{CALL RebuildArtistSongStats()}";
+
+    private Reports() {
+    }
+
+    // Independent read-only reports, run together by the dashboard
+    public static List<Report> dashboard() {
+        return List.of(ARTIST_STATS, ARTIST_TOP_SONG, TOP_SONGS, LATEST_ALBUMS, USER_PLAYLISTS, ALBUM_TOTALS);
+    }
+}
@@ -0,0 +1,572 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/* ---------------------------------------------------
+   SNAPSHOT / RESTORE (fast reset)
+   capture() writes every base table to <dir>/<Table>.snap in a compact
+   typed binary format, all read inside one consistent-snapshot
+   transaction; manifest.txt is written last, so a half-written snapshot
+   is never restored.
+   restore() keeps the schema and replaces the data:
+     1. TRUNCATE every table, children first, with FK checks off
+     2. drop plain secondary indexes (not unique, not backing an FK)
+     3. load the tables in parallel, one connection each, FK and unique
+        checks off, multi-row INSERTs; @restoring is set, which turns the
+        INSERT triggers into no-ops (no per-row stats work, no locking
+        reads of Album while it is still loading)
+     4. only for a schema whose INSERT triggers predate @restoring: the
+        tables they fill (ArtistSongStats, PlayDaily) are truncated again
+        and loaded last, so they hold exactly the snapshot
+     5. re-add the dropped indexes, one ALTER per table, in parallel
+   The schema must match the snapshot (take a new one after Reset Database).
+   --------------------------------------------------- */
+public class Snapshot {
+
+    public static final class Report {
+        final Map<String, Long> tableRows = new LinkedHashMap<>();
+        final Map<String, Double> phaseMs = new LinkedHashMap<>();
+        long rows;
+        long bytes;
+        long nanos;
+        String action;
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            tableRows.forEach((t, n) -> sb.append(String.format("  %-20s %,12d rows%n", t, n)));
+            phaseMs.forEach((p, ms) -> sb.append(String.format("  %-20s %10.1f ms%n", p, ms)));
+            double secs = nanos / 1e9;
+            sb.append(String.format("%s %d tables, %d rows, %.1f MB in %.3f s (%.0f rows/sec)",
+                    action, tableRows.size(), rows, bytes / 1e6, secs, secs > 0 ? rows / secs : 0.0));
+            return sb.toString();
+        }
+    }
+
+    private static final String MAGIC = "MUSICDB-SNAPSHOT-1";
+    private static final String MANIFEST = "manifest.txt";
+    private static final long COMMIT_EVERY = 50_000; // keeps undo and trigger row locks short on big tables
+
+    // Column encodings
+    private static final byte LONG = 1, DOUBLE = 2, TEXT = 3, BYTES = 4, DATE = 5, DATETIME = 6;
+
+    // Write targets inside a trigger body
+    private static final Pattern TRIGGER_WRITE = Pattern.compile(
+            "(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|UPDATE|DELETE\\s+FROM)\\s+`?(\\w+)`?",
+            Pattern.CASE_INSENSITIVE);
+
+    private final ConnectionPool pool;
+    private final int threads;
+    private final int rowsPerStatement;
+
+    public Snapshot(ConnectionPool pool, int threads, int rowsPerStatement) {
+        this.pool = pool;
+        this.threads = Math.max(1, threads);
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+    }
+
+    public static boolean exists(Path dir) {
+        return Files.isRegularFile(dir.resolve(MANIFEST));
+    }
+
+    /* ---------------------------------------------------
+       CAPTURE
+       --------------------------------------------------- */
+    public Report capture(Path dir) throws SQLException, IOException {
+        Files.createDirectories(dir);
+        Report report = new Report();
+        report.action = "Captured";
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection()) {
+            List<String> tables = baseTables(conn);
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            }
+            for (String table : tables) {
+                Path file = dir.resolve(table + ".snap");
+                long rows = writeTable(conn, table, file);
+                report.tableRows.put(table, rows);
+                report.rows += rows;
+                report.bytes += Files.size(file);
+            }
+            conn.commit();
+        }
+
+        // Last, and atomically: the snapshot exists only once every table is on disk
+        Path tmp = dir.resolve(MANIFEST + ".tmp");
+        StringBuilder manifest = new StringBuilder(MAGIC).append('\n');
+        report.tableRows.forEach((t, n) -> manifest.append(t).append('\t').append(n).append('\n'));
+        Files.writeString(tmp, manifest.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static long writeTable(Connection conn, String table, Path file) throws SQLException, IOException {
+        long rows = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 20));
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM `" + table + "`",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE); // row-by-row from the server
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData md = rs.getMetaData();
+                int cols = md.getColumnCount();
+                byte[] kinds = new byte[cols];
+
+                out.writeUTF(MAGIC);
+                out.writeUTF(table);
+                out.writeInt(cols);
+                for (int i = 0; i < cols; i++) {
+                    kinds[i] = kind(md.getColumnType(i + 1));
+                    out.writeUTF(md.getColumnName(i + 1));
+                    out.writeByte(kinds[i]);
+                }
+
+                while (rs.next()) {
+                    out.writeBoolean(true);
+                    for (int i = 0; i < cols; i++) writeValue(out, rs, i + 1, kinds[i]);
+                    rows++;
+                }
+                out.writeBoolean(false);
+                out.writeLong(rows);
+            }
+        }
+        return rows;
+    }
+
+    private static byte kind(int sqlType) {
+        switch (sqlType) {
+            case Types.BIT: case Types.BOOLEAN: case Types.TINYINT: case Types.SMALLINT:
+            case Types.INTEGER: case Types.BIGINT:
+                return LONG;
+            case Types.REAL: case Types.FLOAT: case Types.DOUBLE:
+                return DOUBLE;
+            case Types.DATE:
+                return DATE;
+            case Types.TIMESTAMP: case Types.TIMESTAMP_WITH_TIMEZONE:
+                return DATETIME;
+            case Types.BINARY: case Types.VARBINARY: case Types.LONGVARBINARY: case Types.BLOB:
+                return BYTES;
+            default:
+                return TEXT; // CHAR/VARCHAR/DECIMAL/TIME/ENUM/JSON round-trip as text
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ResultSet rs, int col, byte kind)
+            throws SQLException, IOException {
+        Object v;
+        switch (kind) {
+            case LONG: v = rs.getLong(col); break;
+            case DOUBLE: v = rs.getDouble(col); break;
+            case DATE: v = rs.getObject(col, LocalDate.class); break;
+            case DATETIME: v = rs.getObject(col, LocalDateTime.class); break;
+            case BYTES: v = rs.getBytes(col); break;
+            default: v = rs.getString(col);
+        }
+        if (rs.wasNull() || v == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        switch (kind) {
+            case LONG: out.writeLong((Long) v); break;
+            case DOUBLE: out.writeDouble((Double) v); break;
+            case DATE: out.writeLong(((LocalDate) v).toEpochDay()); break;
+            case DATETIME: {
+                LocalDateTime t = (LocalDateTime) v;
+                out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(t.getNano());
+                break;
+            }
+            case BYTES: {
+                byte[] b = (byte[]) v;
+                out.writeInt(b.length);
+                out.write(b);
+                break;
+            }
+            default: {
+                byte[] b = ((String) v).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       RESTORE
+       --------------------------------------------------- */
+    public Report restore(Path dir) throws SQLException, IOException, InterruptedException {
+        Map<String, Long> manifest = readManifest(dir);
+        Report report = new Report();
+        report.action = "Restored";
+        long start = System.nanoTime();
+
+        try (Connection admin = pool.getConnection()) {
+            List<String> tables = new ArrayList<>(manifest.keySet());
+            checkSchema(admin, dir, tables);
+            List<String> childFirst = childFirst(admin, tables);
+            Set<String> derived = triggerTargets(admin, tables);
+            Map<String, List<String>> indexes = droppableIndexes(admin, tables);
+
+            List<String> base = new ArrayList<>(tables);
+            base.removeAll(derived);
+
+            setChecks(admin, false);
+            try {
+                long t = System.nanoTime();
+                for (String table : childFirst) execute(admin, "TRUNCATE TABLE `" + table + "`");
+                report.phaseMs.put("truncate", (System.nanoTime() - t) / 1e6);
+
+                t = System.nanoTime();
+                for (Map.Entry<String, List<String>> e : indexes.entrySet()) {
+                    List<String> drops = new ArrayList<>();
+                    for (String def : e.getValue()) drops.add("DROP INDEX `" + indexName(def) + "`");
+                    execute(admin, "ALTER TABLE `" + e.getKey() + "` " + String.join(", ", drops));
+                }
+                report.phaseMs.put("drop indexes", (System.nanoTime() - t) / 1e6);
+
+                t = System.nanoTime();
+                loadAll(dir, base, manifest, report);
+                report.phaseMs.put("load tables", (System.nanoTime() - t) / 1e6);
+
+                // Rows the INSERT triggers wrote during the load are replaced by the snapshot's
+                t = System.nanoTime();
+                for (String table : derived) execute(admin, "TRUNCATE TABLE `" + table + "`");
+                loadAll(dir, new ArrayList<>(derived), manifest, report);
+                report.phaseMs.put("load trigger tables", (System.nanoTime() - t) / 1e6);
+            } finally {
+                // Even after a failure, so the schema keeps its indexes
+                try {
+                    long t = System.nanoTime();
+                    List<String[]> adds = new ArrayList<>();
+                    indexes.forEach((table, defs) -> adds.add(new String[]{table, "ALTER TABLE `" + table + "` ADD "
+                            + String.join(", ADD ", defs)}));
+                    runParallel(adds, a -> {
+                        try (Connection conn = pool.getConnection()) {
+                            execute(conn, a[1]);
+                        }
+                        return 0L;
+                    });
+                    report.phaseMs.put("rebuild indexes", (System.nanoTime() - t) / 1e6);
+                } finally {
+                    setChecks(admin, true); // session settings outlive the borrow
+                }
+            }
+        }
+
+        for (String table : manifest.keySet()) report.bytes += Files.size(dir.resolve(table + ".snap"));
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static Map<String, Long> readManifest(Path dir) throws IOException {
+        if (!exists(dir)) throw new IOException("No snapshot in " + dir.toAbsolutePath() + " (take one first)");
+        List<String> lines = Files.readAllLines(dir.resolve(MANIFEST), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(MAGIC)) throw new IOException("Not a snapshot manifest: " + dir);
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) continue;
+            String[] parts = line.split("\t");
+            out.put(parts[0], Long.parseLong(parts[1]));
+        }
+        return out;
+    }
+
+    // Biggest files first, so the slowest table is not started last
+    private void loadAll(Path dir, List<String> tables, Map<String, Long> manifest, Report report)
+            throws SQLException, IOException, InterruptedException {
+        tables.sort(Comparator.comparingLong((String t) -> dir.resolve(t + ".snap").toFile().length()).reversed());
+        List<Long> loaded = runParallel(tables, table -> loadTable(table, dir.resolve(table + ".snap")));
+        for (int i = 0; i < tables.size(); i++) {
+            String table = tables.get(i);
+            if (!loaded.get(i).equals(manifest.get(table))) {
+                throw new IOException(table + ": loaded " + loaded.get(i) + " rows, manifest says " + manifest.get(table));
+            }
+            report.tableRows.put(table, loaded.get(i));
+            report.rows += loaded.get(i);
+        }
+    }
+
+    private long loadTable(String table, Path file) throws SQLException, IOException {
+        try (Connection conn = pool.getConnection();
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 20))) {
+            if (!in.readUTF().equals(MAGIC) || !in.readUTF().equals(table)) throw new IOException("Bad snapshot file: " + file);
+            int cols = in.readInt();
+            String[] names = new String[cols];
+            byte[] kinds = new byte[cols];
+            for (int i = 0; i < cols; i++) {
+                names[i] = "`" + in.readUTF() + "`";
+                kinds[i] = in.readByte();
+            }
+
+            setChecks(conn, false);
+            conn.setAutoCommit(false);
+            try (MultiRowInsert ins = new MultiRowInsert(conn, "`" + table + "`", rowsPerStatement, COMMIT_EVERY,
+                    false, names)) {
+                Object[] row = new Object[cols];
+                while (in.readBoolean()) {
+                    for (int i = 0; i < cols; i++) row[i] = readValue(in, kinds[i]);
+                    ins.add(row);
+                }
+                long rows = ins.finish();
+                if (in.readLong() != rows) throw new IOException("Truncated snapshot file: " + file);
+                conn.commit();
+                return rows;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                setChecks(conn, true); // session settings outlive the borrow
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in, byte kind) throws IOException {
+        if (!in.readBoolean()) return null;
+        switch (kind) {
+            case LONG: return in.readLong();
+            case DOUBLE: return in.readDouble();
+            case DATE: return LocalDate.ofEpochDay(in.readLong());
+            case DATETIME: return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            case BYTES: {
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                return b;
+            }
+            default: {
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                return new String(b, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private interface Task<T> {
+        Long run(T item) throws Exception;
+    }
+
+    // Runs one task per item on up to `threads` connections; results in item order
+    private <T> List<Long> runParallel(List<T> items, Task<T> task)
+            throws SQLException, IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, items.size())), r -> {
+            Thread t = new Thread(r, "snapshot-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (T item : items) futures.add(executor.submit(() -> task.run(item)));
+            List<Long> out = new ArrayList<>();
+            for (Future<Long> f : futures) {
+                try {
+                    out.add(f.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException) throw (SQLException) cause;
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    throw new SQLException(cause.getMessage(), cause);
+                }
+            }
+            return out;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* ---------------------------------------------------
+       SCHEMA INTROSPECTION
+       --------------------------------------------------- */
+    private static List<String> baseTables(Connection conn) throws SQLException {
+        return strings(conn, "SELECT TABLE_NAME FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME");
+    }
+
+    // Every snapshot table must exist with the same columns in the same order
+    private static void checkSchema(Connection conn, Path dir, List<String> tables) throws SQLException, IOException {
+        for (String table : tables) {
+            List<String> live = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COLUMN_NAME FROM information_schema.COLUMNS "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION")) {
+                ps.setString(1, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) live.add(rs.getString(1));
+                }
+            }
+            List<String> saved = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(dir.resolve(table + ".snap"))))) {
+                in.readUTF();
+                in.readUTF();
+                int cols = in.readInt();
+                for (int i = 0; i < cols; i++) {
+                    saved.add(in.readUTF());
+                    in.readByte();
+                }
+            }
+            if (!live.equals(saved)) {
+                throw new IOException("Table " + table + " no longer matches the snapshot "
+                        + (live.isEmpty() ? "(missing)" : saved + " vs " + live) + "; reset and take a new snapshot.");
+            }
+        }
+    }
+
+    // Referencing tables before the tables they reference
+    private static List<String> childFirst(Connection conn, List<String> tables) throws SQLException {
+        Map<String, Set<String>> children = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT DISTINCT TABLE_NAME, REFERENCED_TABLE_NAME "
+                + "FROM information_schema.KEY_COLUMN_USAGE "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (!rs.getString(1).equals(rs.getString(2))) {
+                    children.computeIfAbsent(rs.getString(2), k -> new HashSet<>()).add(rs.getString(1));
+                }
+            }
+        }
+        Set<String> ordered = new LinkedHashSet<>();
+        for (String table : tables) visitChildren(table, children, ordered, new HashSet<>());
+        List<String> out = new ArrayList<>(ordered);
+        out.retainAll(tables);
+        return out;
+    }
+
+    private static void visitChildren(String table, Map<String, Set<String>> children, Set<String> ordered,
+                                      Set<String> path) {
+        if (ordered.contains(table) || !path.add(table)) return;
+        for (String child : children.getOrDefault(table, Collections.emptySet())) {
+            visitChildren(child, children, ordered, path);
+        }
+        ordered.add(table);
+    }
+
+    // Tables an INSERT trigger on another snapshot table writes to
+    private static Set<String> triggerTargets(Connection conn, List<String> tables) throws SQLException {
+        Map<String, String> byLowerName = new HashMap<>();
+        for (String t : tables) byLowerName.put(t.toLowerCase(Locale.ROOT), t);
+        Set<String> out = new LinkedHashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT EVENT_OBJECT_TABLE, ACTION_STATEMENT "
+                + "FROM information_schema.TRIGGERS "
+                + "WHERE TRIGGER_SCHEMA = DATABASE() AND EVENT_MANIPULATION = 'INSERT'");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (rs.getString(2).contains("@restoring")) continue; // a no-op during restore
+                Matcher m = TRIGGER_WRITE.matcher(rs.getString(2));
+                while (m.find()) {
+                    String target = byLowerName.get(m.group(1).toLowerCase(Locale.ROOT));
+                    if (target != null && !target.equalsIgnoreCase(rs.getString(1))) out.add(target);
+                }
+            }
+        }
+        return out;
+    }
+
+    // "INDEX `name` (`col`, ...)" clauses for indexes that are safe to drop during the load:
+    // not PRIMARY, not UNIQUE, no functional parts, and not led by a column an FK uses
+    private static Map<String, List<String>> droppableIndexes(Connection conn, List<String> tables) throws SQLException {
+        Set<String> fkColumns = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT TABLE_NAME, COLUMN_NAME, "
+                + "REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                fkColumns.add(rs.getString(1) + "." + rs.getString(2));
+                fkColumns.add(rs.getString(3) + "." + rs.getString(4));
+            }
+        }
+
+        Map<String, Map<String, List<String>>> parts = new LinkedHashMap<>();
+        Set<String> skip = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX, COLUMN_NAME, "
+                + "SUB_PART, COLLATION, NON_UNIQUE, INDEX_TYPE FROM information_schema.STATISTICS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND INDEX_NAME <> 'PRIMARY' "
+                + "ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String table = rs.getString(1), index = rs.getString(2), column = rs.getString(4);
+                String key = table + "." + index;
+                if (!tables.contains(table)) continue;
+                if (rs.getInt(7) == 0 || column == null || !"BTREE".equals(rs.getString(8))
+                        || (rs.getInt(3) == 1 && fkColumns.contains(table + "." + column))) {
+                    skip.add(key);
+                    continue;
+                }
+                String part = "`" + column + "`" + (rs.getObject(5) != null ? "(" + rs.getInt(5) + ")" : "")
+                        + ("D".equals(rs.getString(6)) ? " DESC" : "");
+                parts.computeIfAbsent(table, k -> new LinkedHashMap<>())
+                        .computeIfAbsent(index, k -> new ArrayList<>()).add(part);
+            }
+        }
+
+        Map<String, List<String>> out = new LinkedHashMap<>();
+        parts.forEach((table, byIndex) -> byIndex.forEach((index, cols) -> {
+            if (!skip.contains(table + "." + index)) {
+                out.computeIfAbsent(table, k -> new ArrayList<>())
+                        .add("INDEX `" + index + "` (" + String.join(", ", cols) + ")");
+            }
+        }));
+        return out;
+    }
+
+    private static String indexName(String definition) {
+        int from = definition.indexOf('`') + 1;
+        return definition.substring(from, definition.indexOf('`', from));
+    }
+
+    private static List<String> strings(Connection conn, String sql) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(rs.getString(1));
+        }
+        return out;
+    }
+
+    // Off for the restore: no FK or unique checks, and @restoring makes the INSERT triggers no-ops
+    private static void setChecks(Connection conn, boolean on) throws SQLException {
+        int v = on ? 1 : 0;
+        execute(conn, "SET SESSION FOREIGN_KEY_CHECKS = " + v + ", UNIQUE_CHECKS = " + v
+                + ", @restoring = " + (on ? "NULL" : "1"));
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
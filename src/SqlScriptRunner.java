@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/* ---------------------------------------------------
+   SQL SCRIPT RUNNER
+   Interactive mode echoes and runs each statement on its own.
+   Batch mode runs DDL in order and sends runs of consecutive DML to the
+   server as JDBC batches inside one transaction.
+   --------------------------------------------------- */
+public class SqlScriptRunner {
+
+    public interface StatementHandler {
+        void accept(String sql) throws SQLException;
+    }
+
+    private final Connection conn;
+    private boolean echo = true;
+    private boolean batch = false;
+    private int batchSize = 1000;
+
+    // Per-run state
+    private Statement batchStatement;
+    private final List<String> pending = new ArrayList<>();
+    private Report report;
+
+    public SqlScriptRunner(Connection conn) {
+        this.conn = conn;
+    }
+
+    public SqlScriptRunner echo(boolean echo) {
+        this.echo = echo;
+        return this;
+    }
+
+    public SqlScriptRunner batch(boolean batch) {
+        this.batch = batch;
+        return this;
+    }
+
+    public SqlScriptRunner batchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    public Report run(String filePath) throws IOException, SQLException {
+        report = new Report(filePath);
+        long start = System.nanoTime();
+
+        boolean oldAutoCommit = conn.getAutoCommit();
+        if (batch) conn.setAutoCommit(false);
+
+        try (Statement st = conn.createStatement()) {
+            batchStatement = st;
+            forEachStatement(filePath, this::execute);
+            flushBatch();
+            commit();
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (batch) conn.rollback();
+            throw e;
+        } finally {
+            batchStatement = null;
+            pending.clear();
+            if (batch) conn.setAutoCommit(oldAutoCommit);
+        }
+
+        report.totalNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /* ---------------------------------------------------
+       STATEMENT SPLITTING
+       --------------------------------------------------- */
+    public static void forEachStatement(String filePath, StatementHandler handler) throws IOException, SQLException {
+        try (SqlTokenizer tokenizer = SqlTokenizer.open(filePath)) {
+            String sql;
+            while ((sql = tokenizer.next()) != null) {
+                handler.accept(sql);
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       EXECUTION
+       --------------------------------------------------- */
+    private void execute(String sql) throws SQLException {
+        if (sql.isEmpty()) return;
+        Kind kind = Kind.of(sql);
+
+        if (batch && kind == Kind.DML) {
+            batchStatement.addBatch(sql);
+            pending.add(sql);
+            if (pending.size() >= batchSize) flushBatch();
+            return;
+        }
+
+        // Anything else is a barrier: earlier DML must be on the server (and committed) first
+        flushBatch();
+        commit();
+
+        if (echo) System.out.println("\nExecuting SQL:\n" + sql);
+
+        if (kind == Kind.QUERY && !echo) {
+            report.skippedQueries++; // nothing to show, nothing changes: don't send it
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (Statement st = conn.createStatement()) {
+            boolean hasResults = st.execute(sql);
+
+            if (hasResults && echo) {
+                try (ResultSet rs = st.getResultSet()) {
+                    System.out.println("\n--- RESULT SET ---");
+                    TablePrinter.print(rs);
+                }
+            }
+            if (echo) System.out.println("Statement executed successfully.");
+        } catch (SQLException e) {
+            report.errors++;
+            printError(sql, e);
+        } finally {
+            report.add(kind, System.nanoTime() - start, 1);
+        }
+    }
+
+    private void flushBatch() {
+        if (pending.isEmpty()) return;
+
+        long start = System.nanoTime();
+        try {
+            batchStatement.executeBatch();
+        } catch (BatchUpdateException e) {
+            // Connector/J keeps going after a failed statement; report each one that failed
+            int[] counts = e.getUpdateCounts();
+            boolean reported = false;
+            for (int i = 0; i < counts.length && i < pending.size(); i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) {
+                    report.errors++;
+                    printError(pending.get(i), e);
+                    reported = true;
+                }
+            }
+            if (!reported) {
+                report.errors++;
+                printError(pending.get(Math.min(counts.length, pending.size() - 1)), e);
+            }
+        } catch (SQLException e) {
+            report.errors++;
+            printError(pending.get(0), e);
+        } finally {
+            try { batchStatement.clearBatch(); } catch (SQLException ignored) {}
+            report.add(Kind.DML, System.nanoTime() - start, pending.size());
+            report.batches++;
+            pending.clear();
+        }
+    }
+
+    private void commit() throws SQLException {
+        if (!batch) return;
+        long start = System.nanoTime();
+        conn.commit();
+        report.commitNanos += System.nanoTime() - start;
+    }
+
+    private void printError(String sql, SQLException e) {
+        System.out.println("\n--- SQL EXECUTION ERROR ---");
+        System.out.println("Error executing: " + (echo || sql.length() <= 200 ? sql : sql.substring(0, 200) + "..."));
+        System.out.println("Message: " + e.getMessage());
+    }
+
+    /* ---------------------------------------------------
+       STATEMENT KINDS + TIMING REPORT
+       --------------------------------------------------- */
+    public enum Kind {
+        DDL, DML, QUERY;
+
+        static Kind of(String sql) {
+            int end = 0;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) end++;
+            String first = sql.substring(0, end).toUpperCase(Locale.ROOT);
+
+            switch (first) {
+                case "INSERT": case "UPDATE": case "DELETE": case "REPLACE":
+                    return DML;
+                case "SELECT": case "SHOW": case "WITH": case "DESCRIBE": case "DESC": case "EXPLAIN":
+                    return QUERY;
+                default:
+                    return DDL;
+            }
+        }
+    }
+
+    public static final class Report {
+        final String filePath;
+        final long[] nanos = new long[Kind.values().length];
+        final long[] statements = new long[Kind.values().length];
+        long batches;
+        long commitNanos;
+        long totalNanos;
+        long skippedQueries;
+        long errors;
+
+        Report(String filePath) {
+            this.filePath = filePath;
+        }
+
+        void add(Kind kind, long elapsed, int count) {
+            nanos[kind.ordinal()] += elapsed;
+            statements[kind.ordinal()] += count;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            long executed = commitNanos;
+            for (long n : nanos) executed += n;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Script %s finished in %.1f ms (%d errors)%n", filePath, totalNanos / 1e6, errors));
+            sb.append(String.format("  parse   %9.1f ms%n", (totalNanos - executed) / 1e6));
+            sb.append(String.format("  DDL     %9.1f ms  %d statements%n",
+                    nanos[Kind.DDL.ordinal()] / 1e6, statements[Kind.DDL.ordinal()]));
+            sb.append(String.format("  DML     %9.1f ms  %d statements in %d batches%n",
+                    nanos[Kind.DML.ordinal()] / 1e6, statements[Kind.DML.ordinal()], batches));
+            sb.append(String.format("  query   %9.1f ms  %d run, %d skipped%n",
+                    nanos[Kind.QUERY.ordinal()] / 1e6, statements[Kind.QUERY.ordinal()], skippedQueries));
+            sb.append(String.format("  commit  %9.1f ms", commitNanos / 1e6));
+            return sb.toString();
+        }
+    }
+}
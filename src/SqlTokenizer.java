@@ -0,0 +1,237 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/* ---------------------------------------------------
+   STREAMING SQL TOKENIZER
+   Single pass over the characters of a script, the way the mysql client
+   splits it: quoted strings, `identifiers`, -- / # / C-style comments and
+   DELIMITER directives are understood, so a delimiter only ends a statement
+   when it appears in plain SQL text. Memory is bounded by the longest statement.
+   --------------------------------------------------- */
+public class SqlTokenizer implements Closeable {
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    private String delimiter = ";";
+    private final StringBuilder sb = new StringBuilder(4096);
+    private int line = 1;
+    private int statementLine;
+
+    public SqlTokenizer(Reader in) {
+        this.in = in;
+    }
+
+    // Reads the file through a FileChannel with a large decode buffer
+    public static SqlTokenizer open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+        return new SqlTokenizer(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_CHARS));
+    }
+
+    // Line (1-based) where the statement last returned by next() begins
+    public int statementLine() {
+        return statementLine;
+    }
+
+    // Returns the next statement without its delimiter, or null at end of input
+    public String next() throws IOException {
+        sb.setLength(0);
+        boolean started = false; // seen anything other than whitespace/comments yet
+
+        while (true) {
+            int c = peek(0);
+            if (c < 0) break;
+
+            // DELIMITER is a client directive, only valid where a statement would begin
+            if (!started && (c == 'D' || c == 'd') && isDelimiterDirective()) {
+                readDelimiterDirective();
+                continue;
+            }
+
+            // Comments
+            if (c == '#' || (c == '-' && peek(1) == '-' && isSpaceOrEnd(peek(2)))) {
+                skipLineComment();
+                if (started) sb.append('\n');
+                continue;
+            }
+            if (c == '/' && peek(1) == '*' && peek(2) != '!') {
+                skipBlockComment();
+                if (started) sb.append(' ');
+                continue;
+            }
+
+            // Quoted text is copied verbatim; delimiters inside it do not count
+            if (c == '\'' || c == '"' || c == '`') {
+                if (!started) {
+                    started = true;
+                    statementLine = line;
+                }
+                copyQuoted((char) c);
+                continue;
+            }
+
+            consume();
+            if (!started) {
+                if (Character.isWhitespace(c)) continue;
+                started = true;
+                statementLine = line;
+            }
+            sb.append((char) c);
+
+            if (c == delimiter.charAt(delimiter.length() - 1) && endsWithDelimiter()) {
+                sb.setLength(sb.length() - delimiter.length());
+                String sql = sb.toString().trim();
+                if (!sql.isEmpty()) return sql;
+
+                // Empty statement (e.g. ";;"): keep going
+                sb.setLength(0);
+                started = false;
+            }
+        }
+
+        // Last statement may have no trailing delimiter
+        String sql = sb.toString().trim();
+        return sql.isEmpty() ? null : sql;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* ---------------------------------------------------
+       LEXICAL HELPERS
+       --------------------------------------------------- */
+    private boolean endsWithDelimiter() {
+        int d = delimiter.length();
+        int n = sb.length();
+        if (n < d) return false;
+        for (int i = 0; i < d; i++) {
+            if (sb.charAt(n - d + i) != delimiter.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean isDelimiterDirective() throws IOException {
+        String word = "DELIMITER";
+        for (int i = 0; i < word.length(); i++) {
+            int c = peek(i);
+            if (c < 0 || Character.toUpperCase(c) != word.charAt(i)) return false;
+        }
+        int after = peek(word.length());
+        return after == ' ' || after == '\t';
+    }
+
+    private void readDelimiterDirective() throws IOException {
+        StringBuilder rest = new StringBuilder();
+        int c;
+        while ((c = peek(0)) >= 0 && c != '\n') {
+            consume();
+            rest.append((char) c);
+        }
+
+        // "DELIMITER //" -> "//" (first whitespace-separated token after the keyword)
+        String arg = rest.substring("DELIMITER".length()).trim();
+        int space = indexOfWhitespace(arg);
+        if (space >= 0) arg = arg.substring(0, space);
+        if (!arg.isEmpty()) delimiter = arg;
+    }
+
+    private void skipLineComment() throws IOException {
+        int c;
+        while ((c = peek(0)) >= 0 && c != '\n') consume();
+    }
+
+    private void skipBlockComment() throws IOException {
+        consume(); // '/'
+        consume(); // '*'
+        int c;
+        while ((c = peek(0)) >= 0) {
+            consume();
+            if (c == '*' && peek(0) == '/') {
+                consume();
+                return;
+            }
+        }
+    }
+
+    private void copyQuoted(char quote) throws IOException {
+        sb.append(quote);
+        consume();
+
+        int c;
+        while ((c = peek(0)) >= 0) {
+            consume();
+            sb.append((char) c);
+
+            if (c == '\\' && quote != '`') {
+                int escaped = peek(0);
+                if (escaped >= 0) {
+                    consume();
+                    sb.append((char) escaped);
+                }
+            } else if (c == quote) {
+                if (peek(0) == quote) { // doubled quote is a literal quote
+                    consume();
+                    sb.append(quote);
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isSpaceOrEnd(int c) {
+        return c < 0 || Character.isWhitespace(c);
+    }
+
+    private static int indexOfWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isWhitespace(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    /* ---------------------------------------------------
+       BUFFERED INPUT (small lookahead, no per-char Reader calls)
+       --------------------------------------------------- */
+    private int peek(int ahead) throws IOException {
+        if (pos + ahead >= limit) fill(ahead + 1);
+        return pos + ahead < limit ? buf[pos + ahead] : -1;
+    }
+
+    private void consume() {
+        if (buf[pos] == '\n') line++;
+        pos++;
+    }
+
+    private void fill(int needed) throws IOException {
+        if (eof) return;
+
+        // Keep the unread tail, then top the buffer up
+        int remaining = limit - pos;
+        System.arraycopy(buf, pos, buf, 0, remaining);
+        pos = 0;
+        limit = remaining;
+
+        while (limit < needed || limit == 0) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+                return;
+            }
+            limit += n;
+        }
+    }
+}
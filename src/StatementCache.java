@@ -0,0 +1,240 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ---------------------------------------------------
+   PREPARED STATEMENT CACHE (one per physical connection)
+   close() on a cached statement parks it for reuse instead of closing it.
+   --------------------------------------------------- */
+public class StatementCache {
+
+    public interface Preparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    // Counters shared by every connection's cache in one pool
+    public static final class Stats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        final AtomicLong leaks = new AtomicLong();
+        final AtomicLong open = new AtomicLong();
+        final AtomicLong cached = new AtomicLong();
+        final AtomicLong executions = new AtomicLong();
+        // Distinct SQL prepared this session (bounded), for the index advisor
+        final Set<String> seenSql = ConcurrentHashMap.newKeySet();
+        volatile String lastLeakedSql;
+
+        public long hits() { return hits.get(); }
+        public long executions() { return executions.get(); }
+        public Set<String> seenSql() { return seenSql; }
+        public long misses() { return misses.get(); }
+        public long leaks() { return leaks.get(); }
+
+        @Override
+        public String toString() {
+            long h = hits.get(), m = misses.get();
+            String s = String.format("Statements: cached=%d open=%d | hits=%d misses=%d (hit rate %.1f%%) "
+                            + "evictions=%d leaks=%d | executions (server round trips)=%d",
+                    cached.get(), open.get(), h, m, h + m == 0 ? 0.0 : 100.0 * h / (h + m),
+                    evictions.get(), leaks.get(), executions.get());
+            if (lastLeakedSql != null) s += "\n  last leaked: " + lastLeakedSql;
+            return s;
+        }
+    }
+
+    private static final int MAX_SEEN_SQL = 1000;
+
+    // execute* calls made by the current thread, so a caller can see what one operation cost
+    private static final ThreadLocal<long[]> THREAD_EXECUTIONS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final int maxSize;
+    private final Stats stats;
+
+    // Idle statements in LRU order; the eldest is closed when the cache is full
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    // Statements currently handed out, for leak detection when the connection goes back to the pool
+    private final Map<PreparedStatement, Checkout> inUse = new IdentityHashMap<>();
+
+    public StatementCache(int maxSize, Stats stats) {
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) return false;
+                stats.evictions.incrementAndGet();
+                stats.cached.decrementAndGet();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public synchronized PreparedStatement prepare(Connection owner, Object[] args, Preparer preparer)
+            throws SQLException {
+        String sql = (String) args[0];
+        if (stats.seenSql.size() < MAX_SEEN_SQL) stats.seenSql.add(sql);
+        String key = args.length == 1 ? sql : sql + '\0' + Arrays.toString(Arrays.copyOfRange(args, 1, args.length));
+
+        PreparedStatement ps = idle.remove(key);
+        if (ps != null && !ps.isClosed()) {
+            stats.hits.incrementAndGet();
+            stats.cached.decrementAndGet();
+        } else {
+            stats.misses.incrementAndGet();
+            if (ps != null) stats.cached.decrementAndGet();
+            ps = preparer.prepare();
+        }
+
+        Checkout checkout = new Checkout(this, owner, key, ps);
+        PreparedStatement handle = (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, checkout);
+        inUse.put(handle, checkout);
+        stats.open.incrementAndGet();
+        return handle;
+    }
+
+    private synchronized void checkin(PreparedStatement handle, Checkout checkout) {
+        if (inUse.remove(handle) == null) return;
+        stats.open.decrementAndGet();
+        park(checkout.key, checkout.physical);
+    }
+
+    private void park(String key, PreparedStatement ps) {
+        try {
+            if (ps.isClosed()) return;
+            ResultSet rs = ps.getResultSet(); // free the server-side cursor now, not on next use
+            if (rs != null) rs.close();
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+            ps.setQueryTimeout(0); // a per-query timeout (dashboard) must not stick to the next user
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return;
+        }
+
+        // A second copy of the same SQL (nested use) is simply closed
+        if (maxSize <= 0 || idle.containsKey(key)) {
+            closeQuietly(ps);
+            return;
+        }
+        idle.put(key, ps);
+        stats.cached.incrementAndGet();
+    }
+
+    public static long executionsOnThisThread() {
+        return THREAD_EXECUTIONS.get()[0];
+    }
+
+    // Called when the owning connection is returned to the pool
+    public synchronized void reclaimLeaks() {
+        Iterator<Map.Entry<PreparedStatement, Checkout>> it = inUse.entrySet().iterator();
+        while (it.hasNext()) {
+            Checkout checkout = it.next().getValue();
+            it.remove();
+            stats.open.decrementAndGet();
+            stats.leaks.incrementAndGet();
+            stats.lastLeakedSql = abbreviate(checkout.key);
+            checkout.closed = true;
+            park(checkout.key, checkout.physical);
+        }
+    }
+
+    // Called when the owning connection is discarded
+    public synchronized void closeAll() {
+        for (Checkout checkout : inUse.values()) {
+            checkout.closed = true;
+            closeQuietly(checkout.physical);
+        }
+        stats.open.addAndGet(-inUse.size());
+        inUse.clear();
+
+        for (PreparedStatement ps : idle.values()) closeQuietly(ps);
+        stats.cached.addAndGet(-idle.size());
+        idle.clear();
+    }
+
+    /* ---------------------------------------------------
+       STATEMENT HANDLE PROXY
+       --------------------------------------------------- */
+    private static final class Checkout implements InvocationHandler {
+        private final StatementCache cache;
+        private final Connection owner;
+        private final String key;
+        private final PreparedStatement physical;
+        private volatile boolean closed;
+
+        Checkout(StatementCache cache, Connection owner, String key, PreparedStatement physical) {
+            this.cache = cache;
+            this.owner = owner;
+            this.key = key;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cache.checkin((PreparedStatement) proxy, this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + physical;
+                default:
+                    break;
+            }
+
+            if (closed) throw new SQLException("Statement has already been closed.");
+
+            // Each execute is one trip to the server; getGeneratedKeys() reads the OK packet already received
+            if (method.getName().startsWith("execute")) {
+                cache.stats.executions.incrementAndGet();
+                THREAD_EXECUTIONS.get()[0]++;
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /* ---------------------------------------------------
+       Helper Functions
+       --------------------------------------------------- */
+    private static String abbreviate(String key) {
+        int end = key.indexOf('\0');
+        String sql = (end < 0 ? key : key.substring(0, end)).replaceAll("\\s+", " ").trim();
+        return sql.length() > 80 ? sql.substring(0, 77) + "..." : sql;
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try { ps.close(); } catch (SQLException ignored) {}
+    }
+}
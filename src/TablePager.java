@@ -0,0 +1,126 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Scanner;
+
+/* ---------------------------------------------------
+   KEYSET PAGINATION
+   Pages are read by primary key (WHERE key > last ORDER BY key LIMIT n),
+   so every page costs one index range scan no matter how deep it is.
+   --------------------------------------------------- */
+public class TablePager {
+
+    private final ConnectionSource pool;
+    private final String table;
+    private final String keyColumn;
+    private final int pageSize;
+
+    private final String nextPageSql;
+    private final String prevPageSql;
+    private final String streamAllSql;
+
+    // Keys of the first and last row on the current page
+    private Long firstKey;
+    private Long lastKey;
+
+    // table and keyColumn are trusted identifiers from code, never user input
+    public TablePager(ConnectionSource pool, String table, String keyColumn, int pageSize) {
+        this(pool, table, keyColumn, pageSize, null);
+    }
+
+    // filter is an extra trusted condition, e.g. "DeletedAt IS NULL"
+    public TablePager(ConnectionSource pool, String table, String keyColumn, int pageSize, String filter) {
+        this.pool = pool;
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.pageSize = pageSize;
+
+        String and = filter == null ? "" : " AND " + filter;
+        this.nextPageSql = "SELECT * FROM " + table + " WHERE " + keyColumn + " > ?" + and
+                + " ORDER BY " + keyColumn + " LIMIT ?";
+        this.prevPageSql = "SELECT * FROM (SELECT * FROM " + table + " WHERE " + keyColumn + " < ?" + and
+                + " ORDER BY " + keyColumn + " DESC LIMIT ?) page ORDER BY " + keyColumn;
+        this.streamAllSql = "SELECT * FROM " + table + (filter == null ? "" : " WHERE " + filter)
+                + " ORDER BY " + keyColumn;
+    }
+
+    public void browse(Scanner sc) {
+        if (!showPage(nextPageSql, Long.MIN_VALUE)) return;
+
+        while (true) {
+            System.out.print("[n]ext  [p]revious  [f]irst  [a]ll (stream)  [q]uit: ");
+            String c = sc.nextLine().trim().toLowerCase();
+
+            switch (c) {
+                case "n": case "":
+                    if (lastKey == null || !showPage(nextPageSql, lastKey)) System.out.println("(last page)");
+                    break;
+                case "p":
+                    if (firstKey == null || !showPage(prevPageSql, firstKey)) System.out.println("(first page)");
+                    break;
+                case "f":
+                    showPage(nextPageSql, Long.MIN_VALUE);
+                    break;
+                case "a":
+                    streamAll();
+                    break;
+                case "q":
+                    return;
+                default:
+                    System.out.println("Invalid option.");
+            }
+        }
+    }
+
+    // Prints the page and moves the cursor; returns false (and keeps the old page) if it is empty
+    private boolean showPage(String sql, long fromKey) {
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, fromKey);
+            ps.setInt(2, pageSize);
+            ps.setFetchSize(pageSize);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.isBeforeFirst()) return false;
+
+                // Remember the page bounds as the rows go by
+                long[] bounds = {Long.MIN_VALUE, Long.MIN_VALUE};
+                long rows = TablePrinter.print(rs, row -> {
+                    bounds[1] = row.getLong(keyColumn);
+                    if (bounds[0] == Long.MIN_VALUE) bounds[0] = bounds[1];
+                });
+                firstKey = bounds[0];
+                lastKey = bounds[1];
+
+                System.out.printf("%s: %d rows, %s %d..%d (%.1f ms)%n", table, rows, keyColumn, firstKey, lastKey,
+                        (System.nanoTime() - start) / 1_000_000.0);
+                return true;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Whole table through a streaming (row-at-a-time) result set; memory does not grow with table size
+    private void streamAll() {
+        long start = System.nanoTime();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(streamAllSql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(Integer.MIN_VALUE); // MySQL Connector/J: stream rows instead of buffering them
+
+            try (ResultSet rs = ps.executeQuery()) {
+                long rows = TablePrinter.print(rs);
+                System.out.printf("%s: %d rows streamed (%.1f ms)%n", table, rows,
+                        (System.nanoTime() - start) / 1_000_000.0);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
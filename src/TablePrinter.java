@@ -0,0 +1,133 @@
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/* ---------------------------------------------------
+   TABLE RENDERING
+   Column widths come from a bounded sample of rows, the rest are streamed
+   with the same widths, so memory stays flat for any result size.
+   --------------------------------------------------- */
+public class TablePrinter {
+
+    public static final int SAMPLE_ROWS = 200;
+    public static final int MAX_COLUMN_WIDTH = 60;
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    public interface RowListener {
+        void onRow(ResultSet rs) throws SQLException;
+    }
+
+    // Prints every row of rs and returns how many rows were printed
+    public static long print(ResultSet rs) throws SQLException {
+        return print(rs, null);
+    }
+
+    // Same, calling listener (if any) on each row while the cursor is on it
+    public static long print(ResultSet rs, RowListener listener) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        int colCount = md.getColumnCount();
+
+        // Initialize with column name lengths
+        int[] widths = new int[colCount];
+        String[] names = new String[colCount];
+        for (int i = 0; i < colCount; i++) {
+            names[i] = md.getColumnLabel(i + 1);
+            widths[i] = Math.min(MAX_COLUMN_WIDTH, names[i].length());
+        }
+
+        // Buffer only the sample and size the columns from it
+        String[][] sample = new String[SAMPLE_ROWS][];
+        int sampled = 0;
+        boolean more = false;
+        while (sampled < SAMPLE_ROWS && (more = rs.next())) {
+            String[] row = readRow(rs, colCount);
+            if (listener != null) listener.onRow(rs);
+            for (int i = 0; i < colCount; i++) {
+                widths[i] = Math.min(MAX_COLUMN_WIDTH, Math.max(widths[i], row[i].length()));
+            }
+            sample[sampled++] = row;
+        }
+        if (sampled == SAMPLE_ROWS) more = rs.next();
+
+        StringBuilder out = new StringBuilder(FLUSH_CHARS + 1024);
+
+        // Header and separator line
+        out.append('\n');
+        appendRow(out, names, widths);
+        for (int w : widths) out.append("-".repeat(w + 2));
+        out.append('\n');
+
+        for (int r = 0; r < sampled; r++) {
+            appendRow(out, sample[r], widths);
+        }
+
+        // Stream the remainder
+        long count = sampled;
+        while (more) {
+            appendRow(out, readRow(rs, colCount), widths);
+            if (listener != null) listener.onRow(rs);
+            count++;
+            if (out.length() >= FLUSH_CHARS) {
+                System.out.print(out);
+                out.setLength(0);
+            }
+            more = rs.next();
+        }
+
+        out.append('\n');
+        System.out.print(out);
+        System.out.flush();
+        return count;
+    }
+
+    // One row from values already in hand (e.g. a row just written), same layout as print(rs)
+    public static void printRow(String[] names, Object[] values) {
+        printRows(names, List.<Object[]>of(values));
+    }
+
+    // Rows already in memory (a page), same layout as print(rs)
+    public static void printRows(String[] names, List<Object[]> rows) {
+        int[] widths = new int[names.length];
+        for (int i = 0; i < names.length; i++) widths[i] = Math.min(MAX_COLUMN_WIDTH, names[i].length());
+
+        String[][] text = new String[rows.size()][];
+        for (int r = 0; r < rows.size(); r++) {
+            Object[] values = rows.get(r);
+            text[r] = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                text[r][i] = values[i] == null ? "NULL" : values[i].toString();
+                widths[i] = Math.min(MAX_COLUMN_WIDTH, Math.max(widths[i], text[r][i].length()));
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append('\n');
+        appendRow(out, names, widths);
+        for (int w : widths) out.append("-".repeat(w + 2));
+        out.append('\n');
+        for (String[] row : text) appendRow(out, row, widths);
+        out.append('\n');
+        System.out.print(out);
+        System.out.flush();
+    }
+
+    private static String[] readRow(ResultSet rs, int colCount) throws SQLException {
+        String[] row = new String[colCount];
+        for (int i = 0; i < colCount; i++) {
+            String value = rs.getString(i + 1);
+            row[i] = value == null ? "NULL" : value;
+        }
+        return row;
+    }
+
+    private static void appendRow(StringBuilder out, String[] row, int[] widths) {
+        for (int i = 0; i < row.length; i++) {
+            String value = row[i];
+            if (value.length() > widths[i]) value = value.substring(0, Math.max(0, widths[i] - 3)) + "...";
+            out.append(value);
+            for (int pad = value.length(); pad < widths[i] + 2; pad++) out.append(' ');
+        }
+        out.append('\n');
+    }
+}
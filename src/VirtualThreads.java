@@ -0,0 +1,41 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/* ---------------------------------------------------
+   VIRTUAL THREADS (when the JVM has them)
+   The project builds on Java 17, so Java 21's virtual-thread executor is
+   looked up reflectively; without it, a bounded pool of daemon platform
+   threads stands in.
+   --------------------------------------------------- */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean available() {
+        ExecutorService probe = virtualPerTask();
+        if (probe == null) return false;
+        probe.shutdown();
+        return true;
+    }
+
+    // A new (virtual) thread per task, or at most platformThreads platform threads
+    public static ExecutorService newPerTaskExecutor(String name, int platformThreads) {
+        ExecutorService virtual = virtualPerTask();
+        if (virtual != null) return virtual;
+
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static ExecutorService virtualPerTask() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // no such method, or a preview feature that is not enabled
+        }
+    }
+}